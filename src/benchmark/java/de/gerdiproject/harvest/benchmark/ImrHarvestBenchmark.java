@@ -0,0 +1,301 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.etls.AbstractImrETL;
+import de.gerdiproject.harvest.etls.ImrSjomilETL;
+import de.gerdiproject.harvest.etls.ImrStationETL;
+import de.gerdiproject.harvest.etls.extractors.AbstractIteratorExtractor;
+import de.gerdiproject.harvest.etls.extractors.ImrSjomilExtractor;
+import de.gerdiproject.harvest.etls.extractors.ImrStationExtractor;
+import de.gerdiproject.harvest.etls.transformers.AbstractIteratorTransformer;
+import de.gerdiproject.harvest.etls.transformers.ImrSjomilTransformer;
+import de.gerdiproject.harvest.etls.transformers.ImrStationTransformer;
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+import de.gerdiproject.harvest.imr.metrics.EndpointMetricsSnapshot;
+import de.gerdiproject.harvest.imr.metrics.RequestMetricsRegistry;
+import de.gerdiproject.json.datacite.DataCiteJson;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class harvests both IMR ETLs from a {@linkplain MockImrServer}, and
+ * reports the wall-clock time, issued requests, transferred bytes, and peak heap
+ * usage of each harvest, as well as the request metrics of each endpoint.
+ * Documents are extracted and transformed, but discarded instead of being
+ * loaded, so that the results depend on the IMR harvesting code only.
+ * <br><br>
+ * Arguments are passed as key=value pairs:
+ * <ul>
+ * <li>stations: the number of generated stations (default: 2000)</li>
+ * <li>stationYears: the number of measurement years of each station (default: 21)</li>
+ * <li>sjomilIds: the number of generated SJØMIL datasets (default: 10000)</li>
+ * <li>latencyMillis: the delay of each response in milliseconds (default: 20)</li>
+ * <li>errorRate: the fraction of requests that fail with a server error (default: 0)</li>
+ * <li>serverThreads: the number of concurrently served requests (default: 64)</li>
+ * <li>keepCache: if true, the IMR cache folder is not deleted before each harvest (default: false)</li>
+ * </ul>
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ImrHarvestBenchmark
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImrHarvestBenchmark.class);
+
+    private static final String MODULE_NAME = "IMR";
+    private static final String EXTRACTOR_TEST_RESOURCES = "/de/gerdiproject/harvest/etls/extractors";
+    private static final String RECORDED_RESPONSES_FOLDER_PREFIX = "mockedHttpResponses";
+    private static final String ARGUMENT_SEPARATOR = "=";
+
+    private static final String STATIONS_ARG = "stations";
+    private static final String STATION_YEARS_ARG = "stationYears";
+    private static final String SJOMIL_IDS_ARG = "sjomilIds";
+    private static final String LATENCY_ARG = "latencyMillis";
+    private static final String ERROR_RATE_ARG = "errorRate";
+    private static final String SERVER_THREADS_ARG = "serverThreads";
+    private static final String KEEP_CACHE_ARG = "keepCache";
+
+    private static final String CONFIGURATION_INFO = "Mocked IMR server: %d stations with %d years, %d SJØMIL datasets, %d ms latency, %.1f%% errors";
+    private static final String REPORT_INFO = "%s: %d documents in %.2f s, %d requests (%d failed), %.2f MB transferred, %.2f MB peak heap";
+    private static final String ENDPOINT_INFO = "  %s: %d requests (%d failed), mean %.1f ms, p50 %d ms, p95 %d ms, p99 %d ms";
+    private static final String INVALID_ARGUMENT_ERROR = "Invalid argument '%s', expected key=value!";
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+
+    /**
+     * Starts the mocked IMR server and harvests both ETLs.
+     *
+     * @param args key=value pairs that configure the benchmark
+     *
+     * @throws IOException if the server could not be started
+     * @throws URISyntaxException if the recorded responses could not be located
+     */
+    public static void main(final String[] args) throws IOException, URISyntaxException
+    {
+        final Map<String, String> arguments = parseArguments(args);
+        final int stationCount = Integer.parseInt(arguments.getOrDefault(STATIONS_ARG, "2000"));
+        final int stationYears = Integer.parseInt(arguments.getOrDefault(STATION_YEARS_ARG, "21"));
+        final int sjomilIds = Integer.parseInt(arguments.getOrDefault(SJOMIL_IDS_ARG, "10000"));
+        final long latencyMillis = Long.parseLong(arguments.getOrDefault(LATENCY_ARG, "20"));
+        final double errorRate = Double.parseDouble(arguments.getOrDefault(ERROR_RATE_ARG, "0"));
+        final int serverThreads = Integer.parseInt(arguments.getOrDefault(SERVER_THREADS_ARG, "64"));
+        final boolean keepCache = Boolean.parseBoolean(arguments.getOrDefault(KEEP_CACHE_ARG, "false"));
+
+        final MockImrResponses responses = new MockImrResponses(getRecordedResponseFolders(), stationCount, stationYears, sjomilIds);
+        LOGGER.info(String.format(CONFIGURATION_INFO, stationCount, stationYears, sjomilIds, latencyMillis, errorRate * 100));
+
+        try
+            (MockImrServer server = new MockImrServer(responses, latencyMillis, errorRate, serverThreads)) {
+            server.useAsProxy();
+            harvest(server, new ImrStationETL(), new ImrStationExtractor(), new ImrStationTransformer(), keepCache);
+            harvest(server, new ImrSjomilETL(), new ImrSjomilExtractor(), new ImrSjomilTransformer(), keepCache);
+        }
+    }
+
+
+    /**
+     * Extracts and transforms all documents of an ETL, and logs the measurements.
+     *
+     * @param server the server from which the ETL harvests
+     * @param etl the harvested ETL
+     * @param extractor a new extractor of the ETL
+     * @param transformer a new transformer of the ETL
+     * @param keepCache if false, the IMR cache folder is deleted before the harvest
+     * @param <T> the type of the extracted value objects
+     *
+     * @throws IOException if the cache folder could not be deleted
+     */
+    private static <T> void harvest(
+        final MockImrServer server,
+        final AbstractImrETL<T> etl,
+        final AbstractIteratorExtractor<T> extractor,
+        final AbstractIteratorTransformer<T, DataCiteJson> transformer,
+        final boolean keepCache) throws IOException
+    {
+        if (!keepCache)
+            deleteCache();
+
+        etl.init(MODULE_NAME);
+        resetPeakHeapUsage();
+        server.resetStatistics();
+        RequestMetricsRegistry.getInstance().reset();
+        final long startTime = System.nanoTime();
+
+        extractor.init(etl);
+        transformer.init(etl);
+
+        final Iterator<DataCiteJson> documents = transformer.transform(extractor.extract());
+        int documentCount = 0;
+
+        while (documents.hasNext()) {
+            documents.next();
+            documentCount++;
+        }
+
+        extractor.clear();
+        transformer.clear();
+
+        final double seconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        LOGGER.info(String.format(
+                        REPORT_INFO,
+                        etl.getName(),
+                        documentCount,
+                        seconds,
+                        server.getRequestCount(),
+                        server.getErrorCount(),
+                        server.getTransferredBytes() / BYTES_PER_MB,
+                        getPeakHeapUsage() / BYTES_PER_MB));
+
+        for (final EndpointMetricsSnapshot endpoint : RequestMetricsRegistry.getInstance().getSnapshots()) {
+            if (endpoint.getRequestCount() > 0)
+                LOGGER.info(String.format(
+                                ENDPOINT_INFO,
+                                endpoint.getEndpoint(),
+                                endpoint.getRequestCount(),
+                                endpoint.getErrorCount(),
+                                endpoint.getMeanLatencyMillis(),
+                                endpoint.getLatencyP50Millis(),
+                                endpoint.getLatencyP95Millis(),
+                                endpoint.getLatencyP99Millis()));
+        }
+    }
+
+
+    /**
+     * Parses key=value arguments.
+     *
+     * @param args the program arguments
+     *
+     * @return a map of argument values
+     */
+    private static Map<String, String> parseArguments(final String[] args)
+    {
+        final Map<String, String> arguments = new HashMap<>();
+
+        for (final String arg : args) {
+            final String[] keyValue = arg.split(ARGUMENT_SEPARATOR, 2);
+
+            if (keyValue.length != 2)
+                throw new IllegalArgumentException(String.format(INVALID_ARGUMENT_ERROR, arg));
+
+            arguments.put(keyValue[0].trim(), keyValue[1].trim());
+        }
+
+        return arguments;
+    }
+
+
+    /**
+     * Retrieves all folders of recorded responses of the extractor tests.
+     *
+     * @return a list of folders that contain recorded responses
+     *
+     * @throws IOException if the test resources could not be listed
+     * @throws URISyntaxException if the test resources could not be located
+     */
+    private static List<File> getRecordedResponseFolders() throws IOException, URISyntaxException
+    {
+        final Path resourceRoot = new File(ImrHarvestBenchmark.class.getResource(EXTRACTOR_TEST_RESOURCES).toURI()).toPath();
+        final List<File> folders = new ArrayList<>();
+
+        try
+            (Stream<Path> paths = Files.walk(resourceRoot, 2)) {
+            paths.filter((final Path path) -> Files.isDirectory(path)
+                         && path.getFileName().toString().startsWith(RECORDED_RESPONSES_FOLDER_PREFIX))
+            .forEach((final Path path) -> folders.add(path.toFile()));
+        }
+
+        return folders;
+    }
+
+
+    /**
+     * Deletes all files that persist IMR harvesting results between harvests,
+     * in order to benchmark a first harvest.
+     *
+     * @throws IOException if the files could not be deleted
+     */
+    private static void deleteCache() throws IOException
+    {
+        final Path cacheFolder = new File(ImrCacheConstants.CACHE_FOLDER).toPath();
+
+        if (!Files.exists(cacheFolder))
+            return;
+
+        // delete files before their folders
+        try
+            (Stream<Path> paths = Files.walk(cacheFolder)) {
+            final Iterator<Path> pathIter = paths.sorted(Comparator.reverseOrder()).iterator();
+
+            while (pathIter.hasNext())
+                Files.delete(pathIter.next());
+        }
+    }
+
+
+    /**
+     * Runs the garbage collector and resets the peak usage of all heap memory pools.
+     */
+    private static void resetPeakHeapUsage()
+    {
+        System.gc(); // NOPMD the peak heap usage should not include garbage of previous harvests
+
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+    }
+
+
+    /**
+     * Sums up the peak usage of all heap memory pools.
+     *
+     * @return the peak heap usage in bytes
+     */
+    private static long getPeakHeapUsage()
+    {
+        long peakUsage = 0;
+
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peakUsage += pool.getPeakUsage().getUsed();
+        }
+
+        return peakUsage;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+import de.gerdiproject.harvest.imr.constants.ImrSjomilConstants;
+import de.gerdiproject.harvest.imr.constants.ImrStationConstants;
+import de.gerdiproject.harvest.utils.data.HttpRequesterUtils;
+
+/**
+ * This class provides the response bodies of a mocked IMR server.
+ * Stations and SJØMIL datasets are generated in configurable numbers,
+ * using the recorded responses of the extractor tests as templates.
+ * All other URLs are looked up in the recorded response folders.
+ *
+ * @author Robin Weiss
+ */
+public class MockImrResponses
+{
+    private static final String POSITIONS_URL = ImrStationConstants.POSITIONS_URL;
+    private static final String YEARS_URL_PREFIX = getUrlPrefix(ImrStationConstants.YEARS_URL);
+    private static final String DATES_URL_PREFIX = getUrlPrefix(ImrStationConstants.DATES_IN_YEAR_URL);
+    private static final String DESCRIPTION_URL_PREFIX = getUrlPrefix(ImrStationConstants.DESCRIPTION_URL);
+    private static final String VIEW_URL_PREFIX = getUrlPrefix(ImrSjomilConstants.VIEW_URL);
+    private static final char QUERY_SEPARATOR = '&';
+
+    private static final String FEATURE_COLLECTION = "{\"type\":\"FeatureCollection\",\"features\":[%s]}";
+    private static final String FEATURE = "{\"type\":\"Feature\",\"properties\":{\"id\":\"%d\",\"name\":\"Mocked Station %d\"},"
+                                          + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[%.4f,%.4f]}}";
+    private static final String DATE = "\"%02d.%02d.%d\"";
+    private static final String DESCRIPTION = "<html><head></head><body><p>Mocked description of station %s.</p></body></html>";
+    private static final String DATASET_BROWSER = "<html><head></head><body><p>%d mocked datasets</p></body></html>";
+    private static final String EMPTY_VIEW_PAGE = "<html><head></head><body>"
+                                                  + "<div class=\"right-margin\">Dataset name:</div><div class=\"left_margin\"></div>"
+                                                  + "<div class=\"right-margin\">Description:</div><div class=\"left_margin\"></div>"
+                                                  + "</body></html>";
+    private static final String TEMPLATE_DATASET_NAME = "Mocked Dataset Name";
+    private static final String TEMPLATE_VIEW_URL = String.format(ImrSjomilConstants.VIEW_URL, 0);
+
+    private static final int LATEST_YEAR = 2000;
+    private static final int MONTHS_PER_YEAR = 12;
+
+    private final List<File> recordedResponseFolders;
+    private final int stationCount;
+    private final int yearsPerStation;
+    private final int datasetCount;
+    private final String positionsResponse;
+    private final String viewPageTemplate;
+
+
+    /**
+     * Constructor that generates the responses that do not depend on the requested IDs.
+     *
+     * @param recordedResponseFolders folders of recorded responses, which are used
+     *         as templates and for all URLs that are not generated
+     * @param stationCount the number of generated stations
+     * @param yearsPerStation the number of measurement years of each station
+     * @param datasetCount the number of generated SJØMIL datasets
+     *
+     * @throws IOException if the recorded SJØMIL view page could not be read
+     */
+    public MockImrResponses(final List<File> recordedResponseFolders, final int stationCount, final int yearsPerStation, final int datasetCount) throws IOException
+    {
+        this.recordedResponseFolders = recordedResponseFolders;
+        this.stationCount = stationCount;
+        this.yearsPerStation = yearsPerStation;
+        this.datasetCount = datasetCount;
+        this.positionsResponse = createPositions(stationCount);
+
+        final byte[] recordedViewPage = getRecordedResponse(TEMPLATE_VIEW_URL);
+
+        if (recordedViewPage == null)
+            throw new IOException(TEMPLATE_VIEW_URL);
+
+        this.viewPageTemplate = new String(recordedViewPage, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Retrieves the response body of a URL.
+     *
+     * @param url the requested URL
+     *
+     * @return the response body, or null if the URL does not exist
+     *
+     * @throws IOException if a recorded response could not be read
+     */
+    public byte[] getResponse(final String url) throws IOException
+    {
+        final String body = getGeneratedResponse(url);
+
+        return body == null
+               ? getRecordedResponse(url)
+               : body.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Generates the response body of a URL of a generated station or dataset.
+     *
+     * @param url the requested URL
+     *
+     * @return the response body, or null if the URL is not generated
+     */
+    private String getGeneratedResponse(final String url)
+    {
+        if (stationCount > 0) {
+            if (url.equals(POSITIONS_URL))
+                return positionsResponse;
+
+            if (url.startsWith(YEARS_URL_PREFIX))
+                return createYears();
+
+            if (url.startsWith(DATES_URL_PREFIX))
+                return createDates(Integer.parseInt(url.substring(url.lastIndexOf('/') + 1)));
+
+            if (url.startsWith(DESCRIPTION_URL_PREFIX))
+                return String.format(DESCRIPTION, url.substring(DESCRIPTION_URL_PREFIX.length()));
+        }
+
+        if (datasetCount > 0) {
+            if (url.equals(ImrSjomilConstants.DATASET_BROWSER_URL))
+                return String.format(DATASET_BROWSER, datasetCount);
+
+            if (url.startsWith(VIEW_URL_PREFIX)) {
+                final int queryEnd = url.indexOf(QUERY_SEPARATOR, VIEW_URL_PREFIX.length());
+                final int id = Integer.parseInt(url.substring(VIEW_URL_PREFIX.length(), queryEnd));
+
+                return id >= 0 && id < datasetCount
+                       ? viewPageTemplate.replace(TEMPLATE_DATASET_NAME, TEMPLATE_DATASET_NAME + ' ' + id)
+                       : EMPTY_VIEW_PAGE;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Looks up the response body of a URL in the recorded response folders.
+     *
+     * @param url the requested URL
+     *
+     * @return the response body, or null if no response was recorded for the URL
+     *
+     * @throws IOException if the recorded response could not be read
+     */
+    private byte[] getRecordedResponse(final String url) throws IOException
+    {
+        for (final File folder : recordedResponseFolders) {
+            final File recordedResponse = HttpRequesterUtils.urlToFilePath(url, folder);
+
+            if (recordedResponse.isFile())
+                return Files.readAllBytes(recordedResponse.toPath());
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Generates the measurement years of a station.
+     *
+     * @return a JSON array of years, sorted in descending order
+     */
+    private String createYears()
+    {
+        final StringBuilder years = new StringBuilder().append('[');
+
+        for (int i = 0; i < yearsPerStation; i++) {
+            if (i > 0)
+                years.append(',');
+
+            years.append(LATEST_YEAR - i);
+        }
+
+        return years.append(']').toString();
+    }
+
+
+    /**
+     * Generates one measurement date per month of a year.
+     *
+     * @param year the year of the measurements
+     *
+     * @return a JSON array of dates, sorted in descending order
+     */
+    private static String createDates(final int year)
+    {
+        final StringBuilder dates = new StringBuilder().append('[');
+
+        for (int month = MONTHS_PER_YEAR; month > 0; month--) {
+            if (month < MONTHS_PER_YEAR)
+                dates.append(',');
+
+            dates.append(String.format(DATE, month, month, year));
+        }
+
+        return dates.append(']').toString();
+    }
+
+
+    /**
+     * Generates the positions of all stations.
+     *
+     * @param stationCount the number of stations
+     *
+     * @return a GeoJSON feature collection of stations
+     */
+    private static String createPositions(final int stationCount)
+    {
+        final StringBuilder features = new StringBuilder();
+
+        for (int id = 1; id <= stationCount; id++) {
+            if (id > 1)
+                features.append(',');
+
+            features.append(String.format(Locale.ENGLISH, FEATURE, id, id, (id % 360) - 180.0, (id % 180) - 90.0));
+        }
+
+        return String.format(FEATURE_COLLECTION, features);
+    }
+
+
+    /**
+     * Retrieves the part of a URL format that precedes the first placeholder.
+     *
+     * @param urlFormat a URL with format placeholders
+     *
+     * @return the constant prefix of the URL format
+     */
+    private static String getUrlPrefix(final String urlFormat)
+    {
+        return urlFormat.substring(0, urlFormat.indexOf('%'));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.imr.concurrency.NamedDaemonThreadFactory;
+
+/**
+ * This class provides a local HTTP server that serves {@linkplain MockImrResponses}.
+ * The server is meant to be used as an HTTP proxy, which allows all IMR URLs
+ * to be requested unchanged. Each response is delayed by a fixed latency,
+ * and a fraction of the requests fails with a server error.
+ *
+ * @author Robin Weiss
+ */
+public class MockImrServer implements AutoCloseable
+{
+    private static final String ROOT_CONTEXT = "/";
+    private static final String PROXY_HOST_PROPERTY = "http.proxyHost";
+    private static final String PROXY_PORT_PROPERTY = "http.proxyPort";
+
+    private final MockImrResponses responses;
+    private final long latencyMillis;
+    private final double errorRate;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong transferredBytes = new AtomicLong();
+
+
+    /**
+     * Constructor that starts the server on a free local port.
+     *
+     * @param responses the served response bodies
+     * @param latencyMillis the number of milliseconds by which each response is delayed
+     * @param errorRate the fraction of requests that fail with a server error, between 0 and 1
+     * @param threadCount the number of requests that are served concurrently
+     *
+     * @throws IOException if the server could not be started
+     */
+    public MockImrServer(final MockImrResponses responses, final long latencyMillis, final double errorRate, final int threadCount) throws IOException
+    {
+        this.responses = responses;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.executor = Executors.newFixedThreadPool(threadCount, new NamedDaemonThreadFactory(getClass().getSimpleName()));
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(ROOT_CONTEXT, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+
+    /**
+     * Routes all HTTP requests of this JVM through this server.
+     */
+    public void useAsProxy()
+    {
+        System.setProperty(PROXY_HOST_PROPERTY, server.getAddress().getHostString());
+        System.setProperty(PROXY_PORT_PROPERTY, String.valueOf(server.getAddress().getPort()));
+    }
+
+
+    /**
+     * Resets the request statistics.
+     */
+    public void resetStatistics()
+    {
+        requestCount.set(0);
+        errorCount.set(0);
+        transferredBytes.set(0);
+    }
+
+
+    /**
+     * Returns the number of requests since the last reset.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+
+    /**
+     * Returns the number of failed requests since the last reset,
+     * including injected server errors and unknown URLs.
+     *
+     * @return the number of failed requests
+     */
+    public long getErrorCount()
+    {
+        return errorCount.get();
+    }
+
+
+    /**
+     * Returns the number of response body bytes that were sent since the last reset.
+     *
+     * @return the number of transferred bytes
+     */
+    public long getTransferredBytes()
+    {
+        return transferredBytes.get();
+    }
+
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Serves a single request after the configured latency.
+     *
+     * @param exchange the request and response
+     *
+     * @throws IOException if the response could not be sent
+     */
+    private void handle(final HttpExchange exchange) throws IOException
+    {
+        requestCount.incrementAndGet();
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+
+            // inject server errors
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errorCount.incrementAndGet();
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, -1);
+                return;
+            }
+
+            final byte[] body = responses.getResponse(exchange.getRequestURI().toString());
+
+            if (body == null) {
+                errorCount.incrementAndGet();
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+
+            try
+                (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+
+            transferredBytes.addAndGet(body.length);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
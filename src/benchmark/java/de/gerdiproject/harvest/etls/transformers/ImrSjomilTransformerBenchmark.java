@@ -0,0 +1,88 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.gerdiproject.harvest.etls.extractors.ImrSjomilVO;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+
+/**
+ * This class provides JMH benchmarks for the {@linkplain ImrSjomilTransformer},
+ * using the view page of the transformer test.
+ * Run with the GC profiler in order to retrieve the allocations per document.
+ *
+ * @author Robin Weiss
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImrSjomilTransformerBenchmark
+{
+    private static final String VIEW_PAGE_RESOURCE = "/de/gerdiproject/harvest/etls/transformers/ImrSjomilTransformerTest/inputViewPage.html";
+    private static final int VIEW_ID = 0;
+
+    private final ImrSjomilTransformer transformer = new ImrSjomilTransformer();
+    private ImrSjomilVO vo;
+
+
+    /**
+     * Loads the transformed dataset.
+     *
+     * @throws URISyntaxException if the resource path is malformed
+     */
+    @Setup
+    public void setup() throws URISyntaxException
+    {
+        final String resourcePath = new File(getClass().getResource(VIEW_PAGE_RESOURCE).toURI()).getPath();
+        final DiskIO diskReader = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), StandardCharsets.UTF_8);
+        this.vo = new ImrSjomilVO(VIEW_ID, diskReader.getHtml(resourcePath));
+    }
+
+
+    /**
+     * Transforms a dataset to a document.
+     *
+     * @return the transformed document
+     *
+     * @throws TransformerException if the dataset could not be transformed
+     */
+    @Benchmark
+    public DataCiteJson transformDataset() throws TransformerException
+    {
+        return transformer.transformElement(vo);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.gerdiproject.harvest.etls.extractors.ImrStationVO;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.json.GsonUtils;
+import de.gerdiproject.json.datacite.DataCiteJson;
+
+/**
+ * This class provides JMH benchmarks for the {@linkplain ImrStationTransformer}.
+ * The stations of the transformer test are transformed, as well as a synthetic
+ * station with a configurable number of measurement years (default: 90).
+ * Run with the GC profiler in order to retrieve the allocations per document.
+ *
+ * @author Robin Weiss
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImrStationTransformerBenchmark
+{
+    private static final String INPUT_RESOURCE = "/de/gerdiproject/harvest/etls/transformers/ImrStationTransformerTest/input-%s.json";
+    private static final String SYNTHETIC_INPUT = "synthetic";
+    private static final String SYNTHETIC_TEMPLATE_INPUT = "1337";
+    private static final String SYNTHETIC_DATE = "%02d.%02d.%d";
+    private static final int SYNTHETIC_LATEST_YEAR = 2019;
+    private static final int MONTHS_PER_YEAR = 12;
+
+    @Param({"42", "1337", SYNTHETIC_INPUT})
+    private String input;
+
+    @Param({"90"})
+    private int syntheticYears;
+
+    private final ImrStationTransformer transformer = new ImrStationTransformer();
+    private ImrStationVO vo;
+
+
+    /**
+     * Loads the transformed station.
+     *
+     * @throws URISyntaxException if the resource path is malformed
+     */
+    @Setup
+    public void setup() throws URISyntaxException
+    {
+        final boolean isSynthetic = SYNTHETIC_INPUT.equals(input);
+        final String resourcePath = String.format(INPUT_RESOURCE, isSynthetic ? SYNTHETIC_TEMPLATE_INPUT : input);
+        final File resource = new File(getClass().getResource(resourcePath).toURI());
+        final ImrStationVO resourceVo = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), StandardCharsets.UTF_8)
+        .getObject(resource, ImrStationVO.class);
+
+        this.vo = isSynthetic
+                  ? createSyntheticStation(resourceVo, syntheticYears)
+                  : resourceVo;
+    }
+
+
+    /**
+     * Transforms a station to a document.
+     *
+     * @return the transformed document
+     *
+     * @throws TransformerException if the station could not be transformed
+     */
+    @Benchmark
+    public DataCiteJson transformStation() throws TransformerException
+    {
+        return transformer.transformElement(vo);
+    }
+
+
+    /**
+     * Creates a station with measurements of many years, with one
+     * measurement per month.
+     *
+     * @param template a station of which the feature and description are used
+     * @param yearCount the number of measurement years
+     *
+     * @return a station with the specified number of measurement years
+     */
+    private static ImrStationVO createSyntheticStation(final ImrStationVO template, final int yearCount)
+    {
+        final List<Integer> years = new ArrayList<>(yearCount);
+        final List<String> dates = new ArrayList<>(yearCount * MONTHS_PER_YEAR);
+
+        // years and dates are sorted in descending order, like the extracted ones
+        for (int i = 0; i < yearCount; i++) {
+            final int year = SYNTHETIC_LATEST_YEAR - i;
+            years.add(year);
+
+            for (int month = MONTHS_PER_YEAR; month > 0; month--)
+                dates.add(String.format(SYNTHETIC_DATE, month, month, year));
+        }
+
+        return new ImrStationVO(
+                   template.getFeature(),
+                   template.getDescription(),
+                   years,
+                   dates,
+                   template.getMaximumDate());
+    }
+}
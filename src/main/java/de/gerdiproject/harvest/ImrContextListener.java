@@ -18,27 +18,52 @@ package de.gerdiproject.harvest;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.servlet.ServletContextEvent;
 import javax.servlet.annotation.WebListener;
 
 import de.gerdiproject.harvest.application.ContextListener;
 import de.gerdiproject.harvest.etls.AbstractETL;
+import de.gerdiproject.harvest.etls.AbstractImrETL;
 import de.gerdiproject.harvest.etls.ImrSjomilETL;
 import de.gerdiproject.harvest.etls.ImrStationETL;
+import de.gerdiproject.harvest.imr.concurrency.ParallelHarvestCoordinator;
+import de.gerdiproject.harvest.imr.http.ImrConnectionPool;
 
 /**
- * This class initializes the {@linkplain ImrStationETL} and all required classes.
+ * This class initializes the {@linkplain ImrStationETL}, the {@linkplain ImrSjomilETL}
+ * and all required classes. The ETLs are harvested in the listed order, unless
+ * they are harvested in parallel, in which case the harvest of the first ETL
+ * also starts the harvest of the second one. The coordinator of parallel
+ * harvests is shut down when the service is destroyed.
  *
  * @author Arnd Plumhoff
  */
 @WebListener
 public class ImrContextListener extends ContextListener
 {
+    private final ParallelHarvestCoordinator harvestCoordinator = new ParallelHarvestCoordinator();
+
+    @Override
+    public void contextDestroyed(final ServletContextEvent event)
+    {
+        super.contextDestroyed(event);
+        harvestCoordinator.shutdown();
+        ImrConnectionPool.getSharedInstance().shutdown();
+    }
+
+
     @Override
     protected List<? extends AbstractETL<?, ?>> createETLs()
     {
-        return Arrays.asList(
-                   new ImrStationETL(),
-                   new ImrSjomilETL()
-               );
+        final List<AbstractImrETL<?>> etls = Arrays.asList(
+                                                 new ImrStationETL(),
+                                                 new ImrSjomilETL()
+                                             );
+
+        // ETLs are registered in the order in which they are harvested
+        for (final AbstractImrETL<?> etl : etls)
+            etl.setHarvestCoordinator(harvestCoordinator);
+
+        return etls;
     }
 }
\ No newline at end of file
@@ -0,0 +1,435 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.config.parameters.IntegerParameter;
+import de.gerdiproject.harvest.config.parameters.constants.ParameterMappingFunctions;
+import de.gerdiproject.harvest.etls.extractors.AbstractIteratorExtractor;
+import de.gerdiproject.harvest.etls.transformers.AbstractIteratorTransformer;
+import de.gerdiproject.harvest.imr.cache.DocumentHashStore;
+import de.gerdiproject.harvest.imr.cache.HarvestCheckpoint;
+import de.gerdiproject.harvest.imr.cache.HttpResponseCache;
+import de.gerdiproject.harvest.imr.concurrency.AdaptiveConcurrencyLimit;
+import de.gerdiproject.harvest.imr.concurrency.ConnectionLimiter;
+import de.gerdiproject.harvest.imr.concurrency.ParallelHarvestCoordinator;
+import de.gerdiproject.harvest.imr.concurrency.RequestRateLimiter;
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+import de.gerdiproject.harvest.imr.constants.ImrParameterConstants;
+import de.gerdiproject.harvest.imr.http.ImrConnectionPool;
+import de.gerdiproject.harvest.imr.metrics.StageTimings;
+import de.gerdiproject.harvest.imr.metrics.StageTimingsRegistry;
+import de.gerdiproject.harvest.imr.utils.Shard;
+import de.gerdiproject.json.datacite.DataCiteJson;
+
+
+/**
+ * An abstract ETL for harvesting IMR. It offers parameters that
+ * control how many requests are sent to IMR, how responses are cached,
+ * whether unchanged documents are submitted, and whether interrupted
+ * harvests are resumed. Optionally, IMR ETLs are harvested in parallel,
+ * sharing a limit of open connections, and each harvester instance
+ * harvests only a shard of the documents.
+ *
+ * @param <T> the type of the extracted value objects
+ *
+ * @author Robin Weiss
+ */
+public abstract class AbstractImrETL<T> extends StaticIteratorETL<T, DataCiteJson>
+{
+    private IntegerParameter concurrentRequestsParam;
+    private BooleanParameter harvestInParallelParam;
+    private IntegerParameter maxRetriesParam;
+    private IntegerParameter circuitBreakerThresholdParam;
+    private IntegerParameter shardIndexParam;
+    private IntegerParameter shardCountParam;
+    private BooleanParameter shardByRangeParam;
+    private BooleanParameter httpCacheEnabledParam;
+    private IntegerParameter httpCacheSizeParam;
+    private BooleanParameter changedDocumentsOnlyParam;
+    private IntegerParameter checkpointIntervalSecondsParam;
+    private DocumentHashStore documentHashStore;
+    private String documentHashStoreName;
+    private ParallelHarvestCoordinator harvestCoordinator;
+
+
+    /**
+     * Forwarded super Constructor.
+     *
+     * @param extractor the extractor of the ETL
+     * @param transformer the transformer of the ETL
+     */
+    public AbstractImrETL(final AbstractIteratorExtractor<T> extractor, final AbstractIteratorTransformer<T, DataCiteJson> transformer)
+    {
+        super(extractor, transformer);
+    }
+
+
+    /**
+     * Registers this ETL at the coordinator of the IMR ETLs of the harvester service,
+     * which allows it to be harvested in parallel to the ETLs that are registered
+     * after it. ETLs that are not registered are always harvested on their own.
+     *
+     * @param harvestCoordinator the coordinator of the IMR ETLs
+     */
+    public void setHarvestCoordinator(final ParallelHarvestCoordinator harvestCoordinator)
+    {
+        this.harvestCoordinator = harvestCoordinator;
+
+        harvestCoordinator.register(
+            this,
+            () -> isEnabled() && isHarvestingInParallel(),
+            super::harvest);
+    }
+
+
+    /**
+     * Harvests this ETL, either on its own or in parallel to other IMR ETLs.
+     * If parallel harvesting is enabled, the harvest of this ETL also starts the
+     * harvests of all IMR ETLs that are harvested after it, while the harvest of
+     * an ETL that is already running in parallel is awaited.
+     */
+    @Override
+    public void harvest()
+    {
+        if (harvestCoordinator != null && isHarvestingInParallel())
+            harvestCoordinator.harvest(this);
+        else
+            super.harvest();
+    }
+
+
+    @Override
+    protected void registerParameters()
+    {
+        super.registerParameters();
+
+        this.concurrentRequestsParam = Configuration.registerParameter(
+                                           new IntegerParameter(
+                                               ImrParameterConstants.CONCURRENT_REQUESTS_KEY,
+                                               getName(),
+                                               ImrParameterConstants.CONCURRENT_REQUESTS_DEFAULT,
+                                               ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.harvestInParallelParam = Configuration.registerParameter(
+                                          new BooleanParameter(
+                                              ImrParameterConstants.HARVEST_IN_PARALLEL_KEY,
+                                              getName(),
+                                              ImrParameterConstants.HARVEST_IN_PARALLEL_DEFAULT,
+                                              ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+
+        this.maxRetriesParam = Configuration.registerParameter(
+                                   new IntegerParameter(
+                                       ImrParameterConstants.MAX_RETRIES_KEY,
+                                       getName(),
+                                       ImrParameterConstants.MAX_RETRIES_DEFAULT,
+                                       ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.circuitBreakerThresholdParam = Configuration.registerParameter(
+                                                new IntegerParameter(
+                                                    ImrParameterConstants.CIRCUIT_BREAKER_THRESHOLD_KEY,
+                                                    getName(),
+                                                    ImrParameterConstants.CIRCUIT_BREAKER_THRESHOLD_DEFAULT,
+                                                    ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        // the request rate and connection limits are shared by all IMR ETLs
+        ImrSharedParameters.getInstance().register();
+
+        this.shardIndexParam = Configuration.registerParameter(
+                                   new IntegerParameter(
+                                       ImrParameterConstants.SHARD_INDEX_KEY,
+                                       getName(),
+                                       ImrParameterConstants.SHARD_INDEX_DEFAULT,
+                                       ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.shardCountParam = Configuration.registerParameter(
+                                   new IntegerParameter(
+                                       ImrParameterConstants.SHARD_COUNT_KEY,
+                                       getName(),
+                                       ImrParameterConstants.SHARD_COUNT_DEFAULT,
+                                       ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.shardByRangeParam = Configuration.registerParameter(
+                                     new BooleanParameter(
+                                         ImrParameterConstants.SHARD_BY_RANGE_KEY,
+                                         getName(),
+                                         ImrParameterConstants.SHARD_BY_RANGE_DEFAULT,
+                                         ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+
+        this.httpCacheEnabledParam = Configuration.registerParameter(
+                                         new BooleanParameter(
+                                             ImrParameterConstants.HTTP_CACHE_ENABLED_KEY,
+                                             getName(),
+                                             ImrParameterConstants.HTTP_CACHE_ENABLED_DEFAULT,
+                                             ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+
+        this.httpCacheSizeParam = Configuration.registerParameter(
+                                      new IntegerParameter(
+                                          ImrParameterConstants.HTTP_CACHE_SIZE_MB_KEY,
+                                          getName(),
+                                          ImrParameterConstants.HTTP_CACHE_SIZE_MB_DEFAULT,
+                                          ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.changedDocumentsOnlyParam = Configuration.registerParameter(
+                                             new BooleanParameter(
+                                                 ImrParameterConstants.CHANGED_DOCUMENTS_ONLY_KEY,
+                                                 getName(),
+                                                 ImrParameterConstants.CHANGED_DOCUMENTS_ONLY_DEFAULT,
+                                                 ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+
+        this.checkpointIntervalSecondsParam = Configuration.registerParameter(
+                                                  new IntegerParameter(
+                                                      ImrParameterConstants.CHECKPOINT_INTERVAL_SECONDS_KEY,
+                                                      getName(),
+                                                      ImrParameterConstants.CHECKPOINT_INTERVAL_SECONDS_DEFAULT,
+                                                      ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+    }
+
+
+    /**
+     * Returns the maximum number of requests that are sent to IMR at the same time.
+     * If the concurrency is adapted to IMR, as many requests as the maximum
+     * total number of connections are permitted, leaving it to the shared
+     * {@linkplain ConnectionLimiter} to decide how many of them are sent.
+     *
+     * @return the maximum number of concurrent requests
+     */
+    public int getConcurrentRequests()
+    {
+        final int concurrentRequests = Math.max(1, concurrentRequestsParam.getValue());
+        final int maxTotalConnections = ImrSharedParameters.getInstance().getMaxTotalConnections();
+
+        return isAdaptingConcurrency() && maxTotalConnections > 0
+               ? maxTotalConnections
+               : concurrentRequests;
+    }
+
+
+    /**
+     * Returns the limiter of requests per second and host that is shared
+     * by all IMR ETLs, updating its limit to the current parameter value.
+     *
+     * @return the shared request rate limiter
+     */
+    public RequestRateLimiter getRateLimiter()
+    {
+        final RequestRateLimiter rateLimiter = RequestRateLimiter.getSharedInstance();
+        rateLimiter.setMaxRequestsPerSecond(ImrSharedParameters.getInstance().getMaxRequestsPerSecond());
+        return rateLimiter;
+    }
+
+
+    /**
+     * Returns the maximum number of retries of a failed request to IMR.
+     *
+     * @return the maximum number of retries, or 0 if failed requests are not retried
+     */
+    public int getMaxRetries()
+    {
+        return maxRetriesParam.getValue();
+    }
+
+
+    /**
+     * Returns the number of consecutive failed requests to an IMR endpoint,
+     * after which further requests to the endpoint are shed for a while.
+     *
+     * @return the number of consecutive failures that open the circuit of an endpoint,
+     *          or 0 if requests are never shed
+     */
+    public int getCircuitBreakerThreshold()
+    {
+        return circuitBreakerThresholdParam.getValue();
+    }
+
+
+    /**
+     * Returns true if this ETL is harvested in parallel to other IMR ETLs
+     * that are also harvested in parallel.
+     *
+     * @return true if this ETL is harvested in parallel
+     */
+    public boolean isHarvestingInParallel()
+    {
+        return harvestInParallelParam != null && harvestInParallelParam.getValue();
+    }
+
+
+    /**
+     * Returns true if the number of concurrent requests of all IMR ETLs
+     * is adapted to the latency and errors of IMR.
+     *
+     * @return true if the concurrency is adapted to IMR
+     */
+    public boolean isAdaptingConcurrency()
+    {
+        return ImrSharedParameters.getInstance().isAdaptingConcurrency();
+    }
+
+
+    /**
+     * Returns the limiter of open connections that is shared by all IMR ETLs,
+     * updating its limit to the current parameter values. If the concurrency
+     * is adapted to IMR, the maximum total number of connections is the upper
+     * bound of the shared {@linkplain AdaptiveConcurrencyLimit}, or the number
+     * of concurrent requests of this ETL if the total connections are not limited.
+     * The shared {@linkplain ImrConnectionPool} is resized to the current parameter values,
+     * and a warning is logged if it is too small for the limit.
+     *
+     * @return the shared connection limiter
+     */
+    public ConnectionLimiter getConnectionLimiter()
+    {
+        final ConnectionLimiter connectionLimiter = ConnectionLimiter.getSharedInstance();
+        final int maxConnections;
+
+        if (isAdaptingConcurrency()) {
+            final AdaptiveConcurrencyLimit adaptiveLimit = AdaptiveConcurrencyLimit.getSharedInstance();
+            maxConnections = getConcurrentRequests();
+            adaptiveLimit.setMaxLimit(maxConnections);
+            connectionLimiter.setAdaptiveLimit(adaptiveLimit);
+        } else {
+            maxConnections = ImrSharedParameters.getInstance().getMaxTotalConnections();
+            connectionLimiter.setAdaptiveLimit(null);
+            connectionLimiter.setMaxConnections(maxConnections);
+        }
+
+        final ImrSharedParameters sharedParameters = ImrSharedParameters.getInstance();
+        final ImrConnectionPool connectionPool = ImrConnectionPool.getSharedInstance();
+        connectionPool.setPoolSize(sharedParameters.getConnectionPoolSize());
+        connectionPool.setIdleTimeoutSeconds(sharedParameters.getIdleConnectionTimeoutSeconds());
+        connectionPool.checkPoolSize(maxConnections);
+
+        return connectionLimiter;
+    }
+
+
+    /**
+     * Returns the part of the documents that is harvested by this harvester instance.
+     * Each instance is to be configured with the same shard count and partitioning,
+     * but a different shard index.
+     *
+     * @return the shard of this harvester instance
+     *
+     * @throws IllegalArgumentException if the shard index is not below the shard count
+     */
+    public Shard getShard()
+    {
+        return new Shard(
+                   shardIndexParam.getValue(),
+                   Math.max(1, shardCountParam.getValue()),
+                   shardByRangeParam.getValue());
+    }
+
+
+    /**
+     * Creates a cache for HTTP responses of this ETL, if caching is enabled.
+     *
+     * @return a loaded response cache, or null if responses are not to be cached
+     */
+    public HttpResponseCache createResponseCache()
+    {
+        if (!httpCacheEnabledParam.getValue())
+            return null;
+
+        final File cacheFolder = new File(String.format(ImrCacheConstants.HTTP_CACHE_FOLDER, getName()));
+        final long maxBytes = httpCacheSizeParam.getValue() * 1024L * 1024L;
+
+        final HttpResponseCache responseCache = new HttpResponseCache(cacheFolder, maxBytes);
+        responseCache.load();
+        return responseCache;
+    }
+
+
+    /**
+     * Returns the store of document hashes of this ETL, if only
+     * documents that changed since the last complete harvest are to be submitted.
+     * Each shard has its own store, because its documents are compared only
+     * to documents of the same shard.
+     *
+     * @return the document hash store, or null if all documents are to be submitted
+     */
+    public DocumentHashStore getDocumentHashStore()
+    {
+        if (!changedDocumentsOnlyParam.getValue())
+            return null;
+
+        final String storeName = getShard().getUniqueName(getName());
+
+        if (documentHashStore == null || !storeName.equals(documentHashStoreName)) {
+            documentHashStoreName = storeName;
+            documentHashStore = new DocumentHashStore(
+                new File(String.format(ImrCacheConstants.DOCUMENT_HASHES_FILE, storeName)),
+                new File(String.format(ImrCacheConstants.REMOVED_DOCUMENTS_FILE, storeName)));
+        }
+
+        return documentHashStore;
+    }
+
+
+    /**
+     * Returns a file that persists harvesting results of the shard of this
+     * harvester instance between harvests. Each shard has its own file, because
+     * it harvests different documents, and instances that share a cache folder
+     * would otherwise overwrite each others results. The file of a complete shard
+     * is named like the cache itself.
+     *
+     * @param cacheName the name of the cache, which is shared by all shards
+     *
+     * @return the cache file of the shard
+     */
+    public File getShardCacheFile(final String cacheName)
+    {
+        return new File(String.format(ImrCacheConstants.SHARD_CACHE_FILE, getShard().getUniqueName(cacheName)));
+    }
+
+
+    /**
+     * Creates a checkpoint of the progress of a harvest of this ETL. Each shard
+     * has its own checkpoint. If the checkpoint interval is 0, the checkpoint
+     * is neither saved, nor are interrupted harvests resumed.
+     * A resumed harvest only submits the documents that were not loaded before the
+     * interruption. Hence, checkpoints are only to be enabled for loaders that add
+     * documents to what was loaded before, such as search indices, and not for loaders
+     * that replace their output with each harvest, such as the disk loader.
+     *
+     * @return a checkpoint that is yet to be loaded
+     */
+    public HarvestCheckpoint createCheckpoint()
+    {
+        final String checkpointName = getShard().getUniqueName(getName());
+
+        return new HarvestCheckpoint(
+                   new File(String.format(ImrCacheConstants.CHECKPOINT_FILE, checkpointName)),
+                   TimeUnit.SECONDS.toMillis(checkpointIntervalSecondsParam.getValue()));
+    }
+
+
+    /**
+     * Returns the measurements of the times that documents of this ETL
+     * spend in each harvesting stage.
+     *
+     * @return the stage timings of this ETL
+     */
+    public StageTimings getStageTimings()
+    {
+        return StageTimingsRegistry.getInstance().getTimingsOfEtl(getName());
+    }
+}
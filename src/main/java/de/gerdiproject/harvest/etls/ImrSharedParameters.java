@@ -0,0 +1,166 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.etls;
+
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.config.parameters.IntegerParameter;
+import de.gerdiproject.harvest.config.parameters.constants.ParameterMappingFunctions;
+import de.gerdiproject.harvest.imr.constants.ImrParameterConstants;
+
+/**
+ * This class holds the parameters that are shared by all IMR ETLs, because
+ * they limit the load of all IMR ETLs on IMR together, even while the ETLs
+ * are harvested in parallel. Unlike the parameters of a single ETL, they are
+ * not bound to the harvest of any ETL. Changes take effect when the next
+ * harvest of an ETL is prepared.
+ *
+ * @author Robin Weiss
+ */
+public class ImrSharedParameters
+{
+    private static final ImrSharedParameters INSTANCE = new ImrSharedParameters();
+
+    private IntegerParameter maxRequestsPerSecondParam;
+    private IntegerParameter maxTotalConnectionsParam;
+    private BooleanParameter adaptiveConcurrencyParam;
+    private IntegerParameter connectionPoolSizeParam;
+    private IntegerParameter idleConnectionTimeoutParam;
+
+
+    /**
+     * Returns the parameters that are shared by all IMR ETLs.
+     *
+     * @return the parameters that are shared by all IMR ETLs
+     */
+    public static ImrSharedParameters getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Registers the shared parameters in the {@linkplain Configuration}.
+     * Since every IMR ETL registers them, parameters that are already registered
+     * are retrieved from the {@linkplain Configuration} instead.
+     */
+    public synchronized void register()
+    {
+        this.maxRequestsPerSecondParam = Configuration.registerParameter(
+                                             new IntegerParameter(
+                                                 ImrParameterConstants.MAX_REQUESTS_PER_SECOND_KEY,
+                                                 ImrParameterConstants.SHARED_CATEGORY,
+                                                 ImrParameterConstants.MAX_REQUESTS_PER_SECOND_DEFAULT,
+                                                 ParameterMappingFunctions::mapToUnsignedInteger));
+
+        this.maxTotalConnectionsParam = Configuration.registerParameter(
+                                            new IntegerParameter(
+                                                ImrParameterConstants.MAX_TOTAL_CONNECTIONS_KEY,
+                                                ImrParameterConstants.SHARED_CATEGORY,
+                                                ImrParameterConstants.MAX_TOTAL_CONNECTIONS_DEFAULT,
+                                                ParameterMappingFunctions::mapToUnsignedInteger));
+
+        this.adaptiveConcurrencyParam = Configuration.registerParameter(
+                                            new BooleanParameter(
+                                                ImrParameterConstants.ADAPTIVE_CONCURRENCY_KEY,
+                                                ImrParameterConstants.SHARED_CATEGORY,
+                                                ImrParameterConstants.ADAPTIVE_CONCURRENCY_DEFAULT,
+                                                ParameterMappingFunctions::mapToBoolean));
+
+        this.connectionPoolSizeParam = Configuration.registerParameter(
+                                           new IntegerParameter(
+                                               ImrParameterConstants.CONNECTION_POOL_SIZE_KEY,
+                                               ImrParameterConstants.SHARED_CATEGORY,
+                                               ImrParameterConstants.CONNECTION_POOL_SIZE_DEFAULT,
+                                               ParameterMappingFunctions::mapToUnsignedInteger));
+
+        this.idleConnectionTimeoutParam = Configuration.registerParameter(
+                                              new IntegerParameter(
+                                                  ImrParameterConstants.IDLE_CONNECTION_TIMEOUT_SECONDS_KEY,
+                                                  ImrParameterConstants.SHARED_CATEGORY,
+                                                  ImrParameterConstants.IDLE_CONNECTION_TIMEOUT_SECONDS_DEFAULT,
+                                                  ParameterMappingFunctions::mapToUnsignedInteger));
+    }
+
+
+    /**
+     * Returns the maximum number of requests per second that all IMR ETLs
+     * may send to the same host.
+     *
+     * @return the maximum number of requests per second, or 0 if the rate is not limited
+     */
+    public synchronized int getMaxRequestsPerSecond()
+    {
+        return maxRequestsPerSecondParam == null
+               ? ImrParameterConstants.MAX_REQUESTS_PER_SECOND_DEFAULT
+               : maxRequestsPerSecondParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of connections that all IMR ETLs may open at the same time.
+     *
+     * @return the maximum number of open connections, or 0 if the connections are not limited
+     */
+    public synchronized int getMaxTotalConnections()
+    {
+        return maxTotalConnectionsParam == null
+               ? ImrParameterConstants.MAX_TOTAL_CONNECTIONS_DEFAULT
+               : maxTotalConnectionsParam.getValue();
+    }
+
+
+    /**
+     * Returns true if the number of concurrent requests of all IMR ETLs
+     * is adapted to the latency and errors of IMR.
+     *
+     * @return true if the concurrency is adapted to IMR
+     */
+    public synchronized boolean isAdaptingConcurrency()
+    {
+        return adaptiveConcurrencyParam == null
+               ? ImrParameterConstants.ADAPTIVE_CONCURRENCY_DEFAULT
+               : adaptiveConcurrencyParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of connections to IMR that are kept open
+     * by the connection pool of all IMR ETLs.
+     *
+     * @return the maximum number of pooled connections
+     */
+    public synchronized int getConnectionPoolSize()
+    {
+        return connectionPoolSizeParam == null
+               ? ImrParameterConstants.CONNECTION_POOL_SIZE_DEFAULT
+               : connectionPoolSizeParam.getValue();
+    }
+
+
+    /**
+     * Returns the number of seconds after which idle pooled connections are closed.
+     *
+     * @return the number of seconds after which idle connections are closed,
+     *          or 0 if they are only closed when they expire
+     */
+    public synchronized int getIdleConnectionTimeoutSeconds()
+    {
+        return idleConnectionTimeoutParam == null
+               ? ImrParameterConstants.IDLE_CONNECTION_TIMEOUT_SECONDS_DEFAULT
+               : idleConnectionTimeoutParam.getValue();
+    }
+}
@@ -15,10 +15,14 @@
  */
 package de.gerdiproject.harvest.etls;
 
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.config.parameters.IntegerParameter;
+import de.gerdiproject.harvest.config.parameters.constants.ParameterMappingFunctions;
 import de.gerdiproject.harvest.etls.extractors.ImrSjomilExtractor;
 import de.gerdiproject.harvest.etls.extractors.ImrSjomilVO;
 import de.gerdiproject.harvest.etls.transformers.ImrSjomilTransformer;
-import de.gerdiproject.json.datacite.DataCiteJson;
+import de.gerdiproject.harvest.imr.constants.ImrParameterConstants;
 
 
 /**
@@ -27,8 +31,13 @@ import de.gerdiproject.json.datacite.DataCiteJson;
  *
  * @author Robin Weiss
  */
-public class ImrSjomilETL extends StaticIteratorETL<ImrSjomilVO, DataCiteJson>
+public class ImrSjomilETL extends AbstractImrETL<ImrSjomilVO>
 {
+    private IntegerParameter reprobeMissingIdsHoursParam;
+    private IntegerParameter maxConsecutiveMissingIdsParam;
+    private BooleanParameter streamViewPagesParam;
+
+
     /**
      * Default Constructor that initializes the
      * extractor and transformer.
@@ -37,4 +46,69 @@ public class ImrSjomilETL extends StaticIteratorETL<ImrSjomilVO, DataCiteJson>
     {
         super(new ImrSjomilExtractor(), new ImrSjomilTransformer());
     }
+
+
+    @Override
+    protected void registerParameters()
+    {
+        super.registerParameters();
+
+        this.reprobeMissingIdsHoursParam = Configuration.registerParameter(
+                                               new IntegerParameter(
+                                                   ImrParameterConstants.REPROBE_MISSING_IDS_HOURS_KEY,
+                                                   getName(),
+                                                   ImrParameterConstants.REPROBE_MISSING_IDS_HOURS_DEFAULT,
+                                                   ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.maxConsecutiveMissingIdsParam = Configuration.registerParameter(
+                                                 new IntegerParameter(
+                                                     ImrParameterConstants.MAX_CONSECUTIVE_MISSING_IDS_KEY,
+                                                     getName(),
+                                                     ImrParameterConstants.MAX_CONSECUTIVE_MISSING_IDS_DEFAULT,
+                                                     ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.streamViewPagesParam = Configuration.registerParameter(
+                                        new BooleanParameter(
+                                            ImrParameterConstants.STREAM_VIEW_PAGES_KEY,
+                                            getName(),
+                                            ImrParameterConstants.STREAM_VIEW_PAGES_DEFAULT,
+                                            ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+    }
+
+
+    /**
+     * Returns the number of hours after which dataset IDs that were
+     * missing during a previous harvest are requested again.
+     *
+     * @return the number of hours between checks of missing dataset IDs
+     */
+    public int getReprobeMissingIdsHours()
+    {
+        return reprobeMissingIdsHoursParam.getValue();
+    }
+
+
+    /**
+     * Returns the number of consecutive missing dataset IDs after which
+     * the highest dataset ID is assumed to be found.
+     *
+     * @return the number of consecutive missing IDs past the highest existing ID
+     */
+    public int getMaxConsecutiveMissingIds()
+    {
+        return Math.max(1, maxConsecutiveMissingIdsParam.getValue());
+    }
+
+
+    /**
+     * Returns true if the fields of dataset view pages are extracted while
+     * the pages are received, without parsing the whole pages.
+     * Mocked responses are never streamed.
+     *
+     * @return true if the view pages are streamed
+     */
+    public boolean isStreamingViewPages()
+    {
+        return streamViewPagesParam.getValue();
+    }
 }
@@ -15,10 +15,14 @@
  */
 package de.gerdiproject.harvest.etls;
 
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.config.parameters.IntegerParameter;
+import de.gerdiproject.harvest.config.parameters.constants.ParameterMappingFunctions;
 import de.gerdiproject.harvest.etls.extractors.ImrStationExtractor;
 import de.gerdiproject.harvest.etls.extractors.ImrStationVO;
 import de.gerdiproject.harvest.etls.transformers.ImrStationTransformer;
-import de.gerdiproject.json.datacite.DataCiteJson;
+import de.gerdiproject.harvest.imr.constants.ImrParameterConstants;
 
 
 /**
@@ -27,8 +31,12 @@ import de.gerdiproject.json.datacite.DataCiteJson;
  *
  * @author Robin Weiss
  */
-public class ImrStationETL extends StaticIteratorETL<ImrStationVO, DataCiteJson>
+public class ImrStationETL extends AbstractImrETL<ImrStationVO>
 {
+    private IntegerParameter stationLookaheadParam;
+    private BooleanParameter streamStationPositionsParam;
+
+
     /**
      * Default Constructor that initializes the
      * extractor and transformer.
@@ -37,4 +45,50 @@ public class ImrStationETL extends StaticIteratorETL<ImrStationVO, DataCiteJson>
     {
         super(new ImrStationExtractor(), new ImrStationTransformer());
     }
+
+
+    @Override
+    protected void registerParameters()
+    {
+        super.registerParameters();
+
+        this.stationLookaheadParam = Configuration.registerParameter(
+                                         new IntegerParameter(
+                                             ImrParameterConstants.STATION_LOOKAHEAD_KEY,
+                                             getName(),
+                                             ImrParameterConstants.STATION_LOOKAHEAD_DEFAULT,
+                                             ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this)));
+
+        this.streamStationPositionsParam = Configuration.registerParameter(
+                                               new BooleanParameter(
+                                                   ImrParameterConstants.STREAM_STATION_POSITIONS_KEY,
+                                                   getName(),
+                                                   ImrParameterConstants.STREAM_STATION_POSITIONS_DEFAULT,
+                                                   ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this)));
+    }
+
+
+    /**
+     * Returns the number of stations that are retrieved ahead of the
+     * station that is currently being transformed.
+     *
+     * @return the number of prefetched stations, or 0 if stations are retrieved one by one
+     */
+    public int getStationLookahead()
+    {
+        return stationLookaheadParam.getValue();
+    }
+
+
+    /**
+     * Checks if the station positions are to be parsed one at a time while they are
+     * received, instead of parsing all positions before the harvest begins.
+     * Mocked responses are never streamed.
+     *
+     * @return true if the station positions are to be streamed
+     */
+    public boolean isStreamingStationPositions()
+    {
+        return streamStationPositionsParam.getValue();
+    }
 }
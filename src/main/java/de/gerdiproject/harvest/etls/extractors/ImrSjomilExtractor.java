@@ -16,23 +16,84 @@
  */
 package de.gerdiproject.harvest.etls.extractors;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.gerdiproject.harvest.etls.AbstractETL;
+import de.gerdiproject.harvest.etls.ImrSjomilETL;
+import de.gerdiproject.harvest.imr.cache.DocumentHashStore;
+import de.gerdiproject.harvest.imr.cache.HarvestCheckpoint;
+import de.gerdiproject.harvest.imr.cache.ImrSjomilIdIndex;
+import de.gerdiproject.harvest.imr.cache.ImrSjomilIdIterator;
+import de.gerdiproject.harvest.imr.concurrency.ConnectionLimiter;
+import de.gerdiproject.harvest.imr.concurrency.NamedDaemonThreadFactory;
+import de.gerdiproject.harvest.imr.concurrency.PrefetchingIterator;
+import de.gerdiproject.harvest.imr.concurrency.RequestRateLimiter;
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
 import de.gerdiproject.harvest.imr.constants.ImrSjomilConstants;
-import de.gerdiproject.harvest.utils.data.HttpRequester;
+import de.gerdiproject.harvest.imr.http.HttpStatusException;
+import de.gerdiproject.harvest.imr.http.ImrHttpRequester;
+import de.gerdiproject.harvest.imr.http.RequestResilience;
+import de.gerdiproject.harvest.imr.metrics.DocumentTimings;
+import de.gerdiproject.harvest.imr.metrics.HarvestStage;
+import de.gerdiproject.harvest.imr.metrics.RequestMetricsRegistry;
+import de.gerdiproject.harvest.imr.metrics.StageTimings;
+import de.gerdiproject.harvest.imr.utils.HashUtils;
+import de.gerdiproject.harvest.imr.utils.Shard;
 
 /**
  * This {@linkplain AbstractIteratorExtractor} implementation iterates through IMR
  * Sea and Environment (SJØMIL) datasets, and returns them as {@linkplain ImrSjomilVO}s.
+ * The dataset pages are requested concurrently ahead of the iteration.
+ * IDs of existing and missing datasets are remembered between harvests,
+ * in order to request missing datasets only occasionally. IDs past the highest
+ * known ID are requested consecutively at the end of each harvest, until a number
+ * of consecutive IDs are missing, and the highest existing ID is remembered for
+ * the next harvest. If the harvest is sharded, only the IDs of the shard of this
+ * harvester instance are requested.
+ * An interrupted harvest can be resumed after the ID of the last loaded document.
  *
  * @author Robin Weiss
  */
 public class ImrSjomilExtractor extends AbstractIteratorExtractor<ImrSjomilVO>
 {
-    protected final HttpRequester httpRequester = new HttpRequester();
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImrSjomilExtractor.class);
+
+    protected final ImrHttpRequester httpRequester = new ImrHttpRequester();
+    protected ImrSjomilIdIndex idIndex;
+    private final RequestResilience resilience = RequestResilience.getInstance();
+    private final AtomicInteger skippedDatasetCount = new AtomicInteger();
+
+    private ExecutorService requestExecutor;
+    private RequestRateLimiter rateLimiter;
+    private ConnectionLimiter connectionLimiter;
+    private PrefetchingIterator<Integer, ImrSjomilVO> datasetIterator;
+    private int concurrentRequests;
+    private int maxConsecutiveMissingIds;
+    private int[] idSchedule;
+    private int idScheduleBound;
+    private int highestId;
+    private Shard shard;
+    private boolean isStreamingViewPages;
+    private DocumentHashStore documentHashes;
+    private StageTimings stageTimings;
+    private HarvestCheckpoint checkpoint;
+    private boolean isResumed;
 
 
     @Override
@@ -40,75 +101,389 @@ public class ImrSjomilExtractor extends AbstractIteratorExtractor<ImrSjomilVO>
     {
         super.init(etl);
 
+        final ImrSjomilETL sjomilEtl = (ImrSjomilETL) etl;
         httpRequester.setCharset(etl.getCharset());
+        httpRequester.setResponseCache(sjomilEtl.createResponseCache());
+
+        // measure requests per endpoint
+        final RequestMetricsRegistry metrics = RequestMetricsRegistry.getInstance();
+        metrics.registerEndpoint(ImrMetricsConstants.SJOMIL_INDEX_ENDPOINT, ImrSjomilConstants.DATASET_BROWSER_URL);
+        metrics.registerEndpoint(ImrMetricsConstants.SJOMIL_VIEW_ENDPOINT, ImrSjomilConstants.VIEW_URL);
+
+        // retry failed requests, and shed requests to endpoints that keep failing
+        resilience.configureEndpoint(ImrMetricsConstants.SJOMIL_INDEX_ENDPOINT, sjomilEtl.getMaxRetries(), sjomilEtl.getCircuitBreakerThreshold());
+        resilience.configureEndpoint(ImrMetricsConstants.SJOMIL_VIEW_ENDPOINT, sjomilEtl.getMaxRetries(), sjomilEtl.getCircuitBreakerThreshold());
+        skippedDatasetCount.set(0);
+
+        this.concurrentRequests = sjomilEtl.getConcurrentRequests();
+        this.rateLimiter = sjomilEtl.getRateLimiter();
+        this.connectionLimiter = sjomilEtl.getConnectionLimiter();
+        this.maxConsecutiveMissingIds = sjomilEtl.getMaxConsecutiveMissingIds();
+
+        // mocked responses can only be read from or written to disk as a whole
+        this.isStreamingViewPages = sjomilEtl.isStreamingViewPages() && !httpRequester.isMockingRequests();
+
+        this.shard = sjomilEtl.getShard();
+        this.checkpoint = sjomilEtl.createCheckpoint();
+        this.stageTimings = sjomilEtl.getStageTimings();
+
+        // each shard knows only the IDs of its own shard
+        if (idIndex != null)
+            idIndex.save();
+
+        this.idIndex = new ImrSjomilIdIndex(sjomilEtl.getShardCacheFile(ImrCacheConstants.SJOMIL_ID_INDEX_NAME));
+        idIndex.load();
+
+        // IDs past the highest known ID are discovered during the harvest,
+        // assuming the empirical range if nothing is known yet
+        this.highestId = idIndex.isEmpty()
+                         ? ImrSjomilConstants.INITIAL_ID_BOUND - 1
+                         : idIndex.getHighestExistingId();
+
+        // decide which IDs of the shard are to be requested
+        this.idScheduleBound = highestId + maxConsecutiveMissingIds + 1;
+        this.idSchedule = Arrays.stream(idIndex.createSchedule(
+                                            idScheduleBound,
+                                            TimeUnit.HOURS.toMillis(sjomilEtl.getReprobeMissingIdsHours()),
+                                            System.currentTimeMillis()))
+                          .filter(this::isInShard)
+                          .toArray();
+
+        cancelRequests();
+        this.requestExecutor = Executors.newFixedThreadPool(
+                                   concurrentRequests,
+                                   new NamedDaemonThreadFactory(getClass().getSimpleName()));
+
+        this.documentHashes = sjomilEtl.getDocumentHashStore();
+
+        if (documentHashes != null)
+            documentHashes.load();
     }
 
 
+    /**
+     * Calculates a hash of the SJØMIL index page and the highest existing dataset ID,
+     * which changes whenever datasets are added.
+     */
     @Override
     public String getUniqueVersionString()
     {
-        // there is no shared version string that represents the state of IMR Sjomil datasets
-        return null;
+        final Document indexPage = resilience.send(
+                                       ImrSjomilConstants.DATASET_BROWSER_URL,
+                                       () -> httpRequester.getHtmlFromUrl(ImrSjomilConstants.DATASET_BROWSER_URL));
+
+        // without the index page, the state of the datasets is unknown
+        if (indexPage == null)
+            return null;
+
+        return HashUtils.sha256(indexPage.outerHtml() + highestId);
     }
 
 
+    /**
+     * Returns the number of dataset IDs that are requested during the harvest.
+     * If no missing IDs are due to be checked again, this is the number of
+     * existing datasets. If new datasets are found at the upper end of the
+     * ID range, more IDs are requested.
+     */
     @Override
     public int size()
     {
-        return ImrSjomilConstants.SEA_AND_ENVIRONMENT_DOC_COUNT;
+        return idSchedule.length;
     }
 
 
+    /**
+     * Iterates through {@linkplain ImrSjomilVO}s of all scheduled IDs, beginning
+     * with IDs that are known to exist. Up to {@linkplain #concurrentRequests} IDs
+     * are requested ahead of the iteration, but the VOs are returned in schedule order.
+     * The loading time of each document ends when the next VO is retrieved.
+     * If a checkpoint of an interrupted harvest exists, the iteration continues
+     * after the ID of the last loaded document.
+     */
     @Override
     protected Iterator<ImrSjomilVO> extractAll() throws ExtractorException
     {
-        return new ImrIterator();
+        final ImrSjomilIdIterator idIterator = new ImrSjomilIdIterator(
+            idIndex,
+            idSchedule,
+            idScheduleBound,
+            maxConsecutiveMissingIds,
+            this::isInShard);
+        this.isResumed = resume(idIterator);
+
+        // the ID iterator only ends after all pending requests are finished
+        this.datasetIterator = new PrefetchingIterator<>(
+            checkpoint.trackRequests(idIterator, (final Integer id) -> id.toString()),
+            (final Integer id) -> requestDataset(id).whenComplete((final ImrSjomilVO vo, final Throwable error) -> idIterator.markFinished()),
+            concurrentRequests);
+
+        // the hashes of changed documents are only remembered after the documents were loaded
+        final Iterator<ImrSjomilVO> trackedIterator = checkpoint.trackLoading(datasetIterator);
+
+        return stageTimings.measureLoading(documentHashes == null
+                                           ? trackedIterator
+                                           : documentHashes.trackLoading(trackedIterator));
     }
 
 
     /**
-     * This class represents an {@linkplain Iterator} that iterates through
-     * {@linkplain ImrSjomilVO}s used for harvesting IMR SJØMIL datasets by
-     * trying out all IDs in a range of 0000 to 9999.
+     * Loads the checkpoint of an interrupted harvest, if there is one, and skips
+     * all IDs up to the ID of the last loaded document.
      *
-     * @author Robin Weiss
+     * @param idIterator the iterator of all IDs that are to be harvested
+     *
+     * @return true if an interrupted harvest is resumed
      */
-    private class ImrIterator implements Iterator<ImrSjomilVO>
+    private boolean resume(final ImrSjomilIdIterator idIterator)
     {
-        int id = 0; // NOPMD the ID starts explicitly with 0
+        checkpoint.load();
+
+        if (checkpoint.isEmpty())
+            return false;
+
+        final String lastLoadedId = checkpoint.getLastLoadedKey();
 
-        @Override
-        public boolean hasNext()
-        {
-            return id < size();
+        if (!idIterator.skipPast(Integer.parseInt(lastLoadedId))) {
+            LOGGER.warn(String.format(ImrCacheConstants.CHECKPOINT_MISMATCH_ERROR, ImrSjomilETL.class.getSimpleName(), lastLoadedId));
+            checkpoint.reset();
+            return false;
         }
 
+        LOGGER.warn(String.format(ImrCacheConstants.RESUMING_HARVEST, ImrSjomilETL.class.getSimpleName(), checkpoint.getLoadedCount(), lastLoadedId));
+        return true;
+    }
+
+
+    /**
+     * Checks if a dataset ID belongs to the shard of this harvester instance.
+     *
+     * @param id the identifier of a dataset
+     *
+     * @return true if the dataset is to be harvested by this harvester instance
+     */
+    private boolean isInShard(final int id)
+    {
+        return shard.contains(id, ImrSjomilConstants.SHARDED_ID_RANGE);
+    }
 
-        @Override
-        public ImrSjomilVO next()
-        {
-            final String url = String.format(ImrSjomilConstants.VIEW_URL, id);
 
-            // check if a dataset page exists for the url
-            final Document viewPage = httpRequester.getHtmlFromUrl(url);
+    /**
+     * Asynchronously retrieves the view page of a dataset, measuring
+     * the fetching and parsing times of existing datasets.
+     *
+     * @param id the identifier of the dataset
+     *
+     * @return a future VO of the dataset, which is completed with null if the dataset does not exist
+     */
+    private CompletableFuture<ImrSjomilVO> requestDataset(final int id)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            final DocumentTimings timings = new DocumentTimings(String.valueOf(id));
+            final ImrSjomilVO vo = getDataset(id, timings);
 
-            // assemble VO or return null if the dataset does not exist
-            final ImrSjomilVO vo =
-                viewPage == null
-                ? null
-                : new ImrSjomilVO(id, viewPage);
+            if (vo != null)
+                stageTimings.addPending(timings);
 
-            // increment id for the next request
-            id++;
             return vo;
+        }, requestExecutor);
+    }
+
+
+    /**
+     * Retrieves the view page of a dataset and remembers if it exists.
+     * Empty page templates are treated as missing datasets. Pages that could
+     * not be retrieved are skipped without changing what is known about the dataset.
+     *
+     * @param id the identifier of the dataset
+     * @param timings the stage timings of the dataset, or null if they are not measured
+     *
+     * @return a VO of the dataset, or null if the dataset does not exist or could not be retrieved
+     */
+    private ImrSjomilVO getDataset(final int id, final DocumentTimings timings)
+    {
+        final String url = String.format(ImrSjomilConstants.VIEW_URL, id);
+        final Map<ImrSjomilField, String> fields = resilience.send(url, () -> requestFields(url, timings));
+
+        // a failed request says nothing about the existence of the dataset
+        if (fields == null) {
+            if (!Thread.currentThread().isInterrupted())
+                skippedDatasetCount.incrementAndGet();
+
+            return null;
         }
+
+        final boolean isExisting = !ImrSjomilFieldExtractor.isEmptyPage(fields);
+
+        if (isExisting)
+            idIndex.markExisting(id, System.currentTimeMillis());
+        else
+            idIndex.markMissing(id, System.currentTimeMillis());
+
+        // assemble VO or return null if the dataset does not exist
+        return isExisting
+               ? new ImrSjomilVO(id, fields)
+               : null;
     }
 
 
+    /**
+     * Sends a request of the view page of a dataset once, respecting the rate limit
+     * of IMR and the limit of open connections that is shared by all IMR ETLs.
+     * The latency of the request is reported to the connection limiter.
+     *
+     * @param url the URL of the view page
+     * @param timings the stage timings of the dataset, or null if they are not measured
+     *
+     * @return a map of field values, or null if the page could not be retrieved or the harvest was aborted
+     */
+    private Map<ImrSjomilField, String> requestFields(final String url, final DocumentTimings timings)
+    {
+        // do not send the request if the harvest was aborted while waiting
+        if (!rateLimiter.acquire(url) || !connectionLimiter.acquire())
+            return null;
+
+        final long startNanos = System.nanoTime();
+        Map<ImrSjomilField, String> fields = null;
+
+        try {
+            fields = isStreamingViewPages
+                     ? streamFields(url, timings)
+                     : parseFields(url, timings);
+            return fields;
+        } finally {
+            connectionLimiter.release(url, System.nanoTime() - startNanos, fields != null);
+        }
+    }
+
+
+    /**
+     * Retrieves and parses the view page of a dataset, and extracts its fields.
+     * Pages that do not exist or are rejected for good yield no fields.
+     *
+     * @param url the URL of the view page
+     * @param timings the stage timings of the dataset, or null if they are not measured
+     *
+     * @return a map of field values, or null if the page could not be retrieved
+     */
+    private Map<ImrSjomilField, String> parseFields(final String url, final DocumentTimings timings)
+    {
+        final long fetchStartWallNanos = System.nanoTime();
+        final long fetchStartCpuNanos = StageTimings.getCurrentCpuNanos();
+        final Document viewPage;
+
+        try {
+            viewPage = httpRequester.getHtmlFromUrlIfExists(url);
+        } catch (final HttpStatusException e) {
+            LOGGER.warn(e.getMessage());
+            return null;
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrHttpConstants.REQUEST_FAILED_ERROR, url, e.getMessage()));
+            return null;
+        } finally {
+            StageTimings.endStage(timings, HarvestStage.FETCH, fetchStartWallNanos, fetchStartCpuNanos);
+        }
+
+        if (viewPage == null)
+            return Collections.emptyMap();
+
+        final long parseStartWallNanos = System.nanoTime();
+        final long parseStartCpuNanos = StageTimings.getCurrentCpuNanos();
+        final Map<ImrSjomilField, String> fields = ImrSjomilFieldExtractor.extract(viewPage);
+        StageTimings.endStage(timings, HarvestStage.PARSE, parseStartWallNanos, parseStartCpuNanos);
+
+        return fields;
+    }
+
+
+    /**
+     * Extracts the fields of a dataset while its view page is received.
+     * The connection is closed as soon as all fields were found, or as soon
+     * as the page turns out to be empty, skipping the remainder of the page.
+     * Since the page is parsed while it is received, the parsing time is
+     * measured as part of the fetching time. Pages that do not exist or are
+     * rejected for good yield no fields.
+     *
+     * @param url the URL of the view page
+     * @param timings the stage timings of the dataset, or null if they are not measured
+     *
+     * @return a map of field values, or null if the page could not be retrieved
+     */
+    private Map<ImrSjomilField, String> streamFields(final String url, final DocumentTimings timings)
+    {
+        final long startWallNanos = System.nanoTime();
+        final long startCpuNanos = StageTimings.getCurrentCpuNanos();
+
+        try
+            (Reader reader = httpRequester.getReaderFromUrl(url)) {
+            return ImrSjomilPageTokenizer.extract(reader);
+        } catch (final HttpStatusException e) {
+            if (e.isPermanent())
+                return Collections.emptyMap();
+
+            LOGGER.warn(e.getMessage());
+            return null;
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrHttpConstants.REQUEST_FAILED_ERROR, url, e.getMessage()));
+            return null;
+        } finally {
+            StageTimings.endStage(timings, HarvestStage.FETCH, startWallNanos, startCpuNanos);
+        }
+    }
+
+
+    /**
+     * Cancels all pending requests and stops the request threads.
+     */
+    private void cancelRequests()
+    {
+        if (datasetIterator != null) {
+            datasetIterator.cancel();
+            datasetIterator = null;
+        }
+
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+            requestExecutor = null;
+        }
+    }
+
+
+    /**
+     * Saves the checkpoint of an incomplete harvest, or deletes it if the harvest is complete.
+     * The document hashes of resumed harvests are not saved, because they lack the
+     * documents that were harvested before the interruption, and neither are those
+     * of harvests that skipped datasets due to failed requests.
+     */
     @Override
     public void clear()
     {
-        // nothing to clean up
+        final boolean isComplete = datasetIterator != null && datasetIterator.isExhausted();
+        final int skippedDatasets = skippedDatasetCount.getAndSet(0);
+
+        if (skippedDatasets > 0)
+            LOGGER.warn(String.format(ImrHttpConstants.SKIPPED_DOCUMENTS_ERROR, ImrSjomilETL.class.getSimpleName(), skippedDatasets));
+
+        if (documentHashes != null) {
+            documentHashes.save(isComplete && !isResumed && skippedDatasets == 0);
+            documentHashes = null;
+        }
+
+        if (checkpoint != null) {
+            if (isComplete)
+                checkpoint.delete();
+            else
+                checkpoint.save();
+
+            checkpoint = null;
+        }
+
+        cancelRequests();
+
+        if (idIndex != null)
+            idIndex.save();
 
+        if (stageTimings != null)
+            stageTimings.clearPending();
     }
 }
@@ -0,0 +1,77 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import de.gerdiproject.harvest.imr.constants.ImrSjomilConstants;
+
+/**
+ * This enumeration represents the fields of an IMR SJØMIL dataset view page
+ * that are needed for the transformation.
+ *
+ * @author Robin Weiss
+ */
+public enum ImrSjomilField
+{
+    DATASET_NAME(ImrSjomilConstants.DATASET_NAME_LABEL),
+    PARENT_NAME(ImrSjomilConstants.PARENT_NAME_LABEL),
+    SHORT_DESCRIPTION(ImrSjomilConstants.SHORT_DESCRIPTION_LABEL),
+    AREA(ImrSjomilConstants.AREA_LABEL),
+    REFERENCES(ImrSjomilConstants.REFERENCES_LABEL),
+    LONG_DESCRIPTION_URL(ImrSjomilConstants.LONG_DESCRIPTION_LABEL),
+    RESPONSIBLE_SCIENTIST(ImrSjomilConstants.RESPONSIBLE_SCIENTIST_LABEL),
+    EARLIEST_DATE(null),
+    LATEST_DATE(null);
+
+    private static final Map<String, ImrSjomilField> FIELDS_BY_LABEL = new HashMap<>();
+
+    static {
+        for (final ImrSjomilField field : values()) {
+            if (field.label != null)
+                FIELDS_BY_LABEL.put(field.label, field);
+        }
+    }
+
+    private final String label;
+
+
+    /**
+     * Constructor that sets the label which introduces the field on the view page.
+     *
+     * @param label the lower case label, or null if the field has no label
+     */
+    ImrSjomilField(final String label)
+    {
+        this.label = label;
+    }
+
+
+    /**
+     * Retrieves the field that is introduced by a label of the view page.
+     *
+     * @param label the label text, which is compared case-insensitively
+     *
+     * @return the field of the label, or null if the label introduces no relevant field
+     */
+    public static ImrSjomilField forLabel(final String label)
+    {
+        return FIELDS_BY_LABEL.get(label.trim().toLowerCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+import de.gerdiproject.harvest.imr.constants.ImrSjomilConstants;
+import de.gerdiproject.harvest.utils.HtmlUtils;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class extracts all {@linkplain ImrSjomilField}s of an IMR SJØMIL dataset view page.
+ * The selector of all label and date elements is compiled once, and the page
+ * is traversed a single time in order to map the labels to their values.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ImrSjomilFieldExtractor
+{
+    private static final Evaluator FIELD_ELEMENTS = QueryParser.parse(ImrSjomilConstants.SELECT_FIELD_ELEMENTS);
+
+
+    /**
+     * Extracts all fields of a dataset view page. If a label occurs
+     * more than once, only the first occurrence is used.
+     *
+     * @param viewPage the parsed view page, or an element that contains all fields
+     *
+     * @return a map of field values
+     */
+    public static Map<ImrSjomilField, String> extract(final Element viewPage)
+    {
+        final Map<ImrSjomilField, String> fields = new EnumMap<>(ImrSjomilField.class);
+
+        for (final Element fieldElement : Collector.collect(FIELD_ELEMENTS, viewPage)) {
+            if (fieldElement.hasClass(ImrSjomilConstants.LABEL_CLASS))
+                extractLabeledField(fieldElement, fields);
+            else
+                extractDates(fieldElement, fields);
+        }
+
+        return fields;
+    }
+
+
+    /**
+     * Checks if extracted fields stem from a page that does not describe a dataset,
+     * such as the empty page template that is returned for non-existing dataset IDs.
+     *
+     * @param fields a map of extracted field values
+     *
+     * @return true if the fields contain neither a dataset name nor a description
+     */
+    public static boolean isEmptyPage(final Map<ImrSjomilField, String> fields)
+    {
+        final String datasetName = fields.get(ImrSjomilField.DATASET_NAME);
+        final String shortDescription = fields.get(ImrSjomilField.SHORT_DESCRIPTION);
+
+        return (datasetName == null || datasetName.isEmpty())
+               && (shortDescription == null || shortDescription.isEmpty());
+    }
+
+
+    /**
+     * Extracts the value of a field from the element that succeeds its label.
+     *
+     * @param labelElement the element that contains the label of the field
+     * @param fields the map to which the field value is added
+     */
+    private static void extractLabeledField(final Element labelElement, final Map<ImrSjomilField, String> fields)
+    {
+        final ImrSjomilField field = ImrSjomilField.forLabel(labelElement.ownText());
+        final Element valueElement = labelElement.nextElementSibling();
+
+        if (field == null
+            || fields.containsKey(field)
+            || valueElement == null
+            || !valueElement.hasClass(ImrSjomilConstants.VALUE_CLASS))
+            return;
+
+        if (field == ImrSjomilField.LONG_DESCRIPTION_URL) {
+            final Element linkElement = valueElement.getElementsByTag(ImrSjomilConstants.LINK_TAG).first();
+
+            if (linkElement != null)
+                fields.put(field, HtmlUtils.getAttribute(linkElement, ImrSjomilConstants.LINK_URL_ATTRIBUTE));
+        } else
+            fields.put(field, valueElement.text());
+    }
+
+
+    /**
+     * Extracts the earliest and latest date from the options of the date selection.
+     *
+     * @param dateSelectElement the date selection element
+     * @param fields the map to which the dates are added
+     */
+    private static void extractDates(final Element dateSelectElement, final Map<ImrSjomilField, String> fields)
+    {
+        if (fields.containsKey(ImrSjomilField.EARLIEST_DATE))
+            return;
+
+        final Elements dateOptions = dateSelectElement.getElementsByTag(ImrSjomilConstants.DATE_OPTION_TAG);
+
+        if (!dateOptions.isEmpty()) {
+            fields.put(ImrSjomilField.EARLIEST_DATE, dateOptions.first().text());
+            fields.put(ImrSjomilField.LATEST_DATE, dateOptions.last().text());
+        }
+    }
+}
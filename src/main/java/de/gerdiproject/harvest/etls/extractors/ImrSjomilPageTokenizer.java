@@ -0,0 +1,505 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.jsoup.parser.Parser;
+
+import de.gerdiproject.harvest.imr.constants.ImrSjomilConstants;
+
+/**
+ * This class extracts all {@linkplain ImrSjomilField}s of an IMR SJØMIL dataset view page
+ * by scanning the HTML while it is read, without building a DOM. Only the texts
+ * of labels, their values, and the date options are kept. Reading stops as soon
+ * as all fields were found, when the date selection ends, which follows
+ * the labeled fields on the view page, or when the dataset name and description
+ * turn out to be empty, which means that the dataset does not exist.
+ *
+ * @author Robin Weiss
+ */
+public class ImrSjomilPageTokenizer
+{
+    private static final int BUFFER_SIZE = 4096;
+    private static final String DIV_TAG = "div";
+    private static final String SELECT_TAG = "select";
+    private static final String BREAK_TAG = "br";
+    private static final String COMMENT_START = "!--";
+    private static final String COMMENT_END = "-->";
+    private static final String CLASS_ATTRIBUTE = "class";
+    private static final String ID_ATTRIBUTE = "id";
+    private static final String DATE_SELECT_ID = "date1";
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final Map<ImrSjomilField, String> fields = new EnumMap<>(ImrSjomilField.class);
+    private final StringBuilder text = new StringBuilder();
+    private int bufferPosition;
+    private int bufferLength;
+
+    private boolean isCapturingText;
+    private int capturedDivDepth;
+    private ImrSjomilField pendingField;
+    private ImrSjomilField capturedField;
+    private boolean isInDateSelect;
+    private boolean isDateSelectDone;
+    private String lastDate;
+
+
+    /**
+     * Constructor that sets the reader of the HTML.
+     *
+     * @param reader a reader of the HTML of a view page
+     */
+    private ImrSjomilPageTokenizer(final Reader reader)
+    {
+        this.reader = reader;
+    }
+
+
+    /**
+     * Extracts all fields of a dataset view page from its HTML.
+     * The reader is not closed.
+     *
+     * @param reader a reader of the HTML of a view page
+     *
+     * @return a map of field values
+     *
+     * @throws IOException if the HTML could not be read
+     */
+    public static Map<ImrSjomilField, String> extract(final Reader reader) throws IOException
+    {
+        final ImrSjomilPageTokenizer tokenizer = new ImrSjomilPageTokenizer(reader);
+        tokenizer.tokenize();
+        return tokenizer.fields;
+    }
+
+
+    /**
+     * Reads the HTML until all fields were found, the date selection has ended,
+     * or the end of the HTML was reached.
+     *
+     * @throws IOException if the HTML could not be read
+     */
+    private void tokenize() throws IOException
+    {
+        int c;
+
+        while (!isDone() && (c = read()) != -1) {
+            if (c == '<')
+                readTag();
+            else if (isCapturingText)
+                text.append((char) c);
+        }
+    }
+
+
+    /**
+     * Checks if there is nothing left to extract.
+     *
+     * @return true if the HTML does not need to be read any further
+     */
+    private boolean isDone()
+    {
+        return isDateSelectDone
+               || fields.size() == ImrSjomilField.values().length
+               || isEmptyPage();
+    }
+
+
+    /**
+     * Checks if both the dataset name and the description were found,
+     * and are empty.
+     *
+     * @return true if the page does not describe a dataset
+     */
+    private boolean isEmptyPage()
+    {
+        return fields.containsKey(ImrSjomilField.DATASET_NAME)
+               && fields.containsKey(ImrSjomilField.SHORT_DESCRIPTION)
+               && ImrSjomilFieldExtractor.isEmptyPage(fields);
+    }
+
+
+    /**
+     * Reads a tag, a comment, or a declaration after its opening bracket
+     * and processes it.
+     *
+     * @throws IOException if the HTML could not be read
+     */
+    private void readTag() throws IOException
+    {
+        final StringBuilder tag = new StringBuilder();
+        char quote = 0;
+        int c;
+
+        while ((c = read()) != -1) {
+            if (quote != 0) {
+                if (c == quote)
+                    quote = 0;
+            } else if (c == '"' || c == '\'')
+                quote = (char) c;
+            else if (c == '>')
+                break;
+
+            tag.append((char) c);
+
+            // skip comments entirely, since they may contain brackets
+            if (tag.length() == COMMENT_START.length() && COMMENT_START.contentEquals(tag)) {
+                skipComment();
+                return;
+            }
+        }
+
+        if (tag.length() == 0)
+            return;
+
+        if (tag.charAt(0) == '/')
+            onEndTag(getTagName(tag, 1));
+
+        else if (Character.isLetter(tag.charAt(0)))
+            onStartTag(getTagName(tag, 0), tag);
+    }
+
+
+    /**
+     * Processes a start tag.
+     *
+     * @param tagName the lower case name of the tag
+     * @param tag the content of the tag, including its attributes
+     */
+    private void onStartTag(final String tagName, final CharSequence tag)
+    {
+        if (isCapturingText) {
+            if (DIV_TAG.equals(tagName))
+                capturedDivDepth++;
+
+            else if (BREAK_TAG.equals(tagName))
+                text.append(' ');
+
+            else if (ImrSjomilConstants.LINK_TAG.equals(tagName)
+                     && capturedField == ImrSjomilField.LONG_DESCRIPTION_URL)
+                putField(capturedField, getAttribute(tag, ImrSjomilConstants.LINK_URL_ATTRIBUTE));
+
+            // an option is implicitly closed by the next option
+            else if (ImrSjomilConstants.DATE_OPTION_TAG.equals(tagName) && isInDateSelect) {
+                onDateOptionEnd();
+                startCapturing(null);
+            }
+
+            return;
+        }
+
+        // a value must be the element that directly succeeds its label
+        final ImrSjomilField labeledField = pendingField;
+        pendingField = null;
+
+        if (DIV_TAG.equals(tagName)) {
+            final String classNames = getAttribute(tag, CLASS_ATTRIBUTE);
+
+            if (hasClass(classNames, ImrSjomilConstants.LABEL_CLASS))
+                startCapturing(null);
+
+            else if (labeledField != null && hasClass(classNames, ImrSjomilConstants.VALUE_CLASS))
+                startCapturing(labeledField);
+
+        } else if (SELECT_TAG.equals(tagName) && DATE_SELECT_ID.equals(getAttribute(tag, ID_ATTRIBUTE)))
+            isInDateSelect = true;
+
+        else if (ImrSjomilConstants.DATE_OPTION_TAG.equals(tagName) && isInDateSelect)
+            startCapturing(null);
+    }
+
+
+    /**
+     * Processes an end tag.
+     *
+     * @param tagName the lower case name of the tag
+     */
+    private void onEndTag(final String tagName)
+    {
+        if (isInDateSelect) {
+            if (ImrSjomilConstants.DATE_OPTION_TAG.equals(tagName) && isCapturingText)
+                onDateOptionEnd();
+
+            else if (SELECT_TAG.equals(tagName)) {
+                if (isCapturingText)
+                    onDateOptionEnd();
+
+                if (lastDate != null)
+                    putField(ImrSjomilField.LATEST_DATE, lastDate);
+
+                isInDateSelect = false;
+                isDateSelectDone = fields.containsKey(ImrSjomilField.EARLIEST_DATE);
+            }
+        } else if (isCapturingText && DIV_TAG.equals(tagName) && --capturedDivDepth == 0)
+            onCapturedDivEnd();
+    }
+
+
+    /**
+     * Processes the end of a label or value element.
+     */
+    private void onCapturedDivEnd()
+    {
+        final String capturedText = stopCapturing();
+
+        if (capturedField == null)
+            pendingField = ImrSjomilField.forLabel(capturedText);
+
+        else if (capturedField != ImrSjomilField.LONG_DESCRIPTION_URL)
+            putField(capturedField, capturedText);
+
+        capturedField = null;
+    }
+
+
+    /**
+     * Processes the end of a date option, remembering the first and the last date.
+     */
+    private void onDateOptionEnd()
+    {
+        final String date = stopCapturing();
+
+        if (lastDate == null)
+            putField(ImrSjomilField.EARLIEST_DATE, date);
+
+        lastDate = date;
+    }
+
+
+    /**
+     * Starts collecting the text of an element.
+     *
+     * @param field the field of which the value is collected, or null if a label or date is collected
+     */
+    private void startCapturing(final ImrSjomilField field)
+    {
+        text.setLength(0);
+        isCapturingText = true;
+        capturedDivDepth = 1;
+        capturedField = field;
+    }
+
+
+    /**
+     * Stops collecting the text of an element.
+     *
+     * @return the decoded text with normalized whitespace
+     */
+    private String stopCapturing()
+    {
+        isCapturingText = false;
+        return normalizeText(Parser.unescapeEntities(text.toString(), false));
+    }
+
+
+    /**
+     * Adds a field value, unless the field was found before.
+     *
+     * @param field the field
+     * @param value the value of the field
+     */
+    private void putField(final ImrSjomilField field, final String value)
+    {
+        if (!fields.containsKey(field))
+            fields.put(field, value);
+    }
+
+
+    /**
+     * Skips the remainder of a comment.
+     *
+     * @throws IOException if the HTML could not be read
+     */
+    private void skipComment() throws IOException
+    {
+        int matchedLength = 0;
+        int c;
+
+        while (matchedLength < COMMENT_END.length() && (c = read()) != -1) {
+            if (c == COMMENT_END.charAt(matchedLength))
+                matchedLength++;
+            else
+                matchedLength = c == COMMENT_END.charAt(0) ? 1 : 0;
+        }
+    }
+
+
+    /**
+     * Reads the next character from the buffer, refilling the buffer if needed.
+     *
+     * @return the next character, or -1 if the end of the HTML was reached
+     *
+     * @throws IOException if the HTML could not be read
+     */
+    private int read() throws IOException
+    {
+        if (bufferPosition == bufferLength) {
+            bufferLength = reader.read(buffer, 0, buffer.length);
+            bufferPosition = 0;
+
+            if (bufferLength <= 0) {
+                bufferLength = 0;
+                return -1;
+            }
+        }
+
+        return buffer[bufferPosition++];
+    }
+
+
+    /**
+     * Retrieves the name of a tag.
+     *
+     * @param tag the content of the tag
+     * @param offset the index at which the name begins
+     *
+     * @return the lower case name of the tag
+     */
+    private static String getTagName(final CharSequence tag, final int offset)
+    {
+        int end = offset;
+
+        while (end < tag.length() && Character.isLetterOrDigit(tag.charAt(end)))
+            end++;
+
+        return tag.subSequence(offset, end).toString().toLowerCase(Locale.ENGLISH);
+    }
+
+
+    /**
+     * Retrieves the value of an attribute of a tag.
+     *
+     * @param tag the content of the tag
+     * @param attributeName the lower case name of the attribute
+     *
+     * @return the decoded value of the attribute, or null if the tag has no such attribute
+     */
+    private static String getAttribute(final CharSequence tag, final String attributeName)
+    {
+        final String lowerCaseTag = tag.toString().toLowerCase(Locale.ENGLISH);
+        int nameIndex = lowerCaseTag.indexOf(attributeName);
+
+        while (nameIndex != -1) {
+            final int nameEnd = nameIndex + attributeName.length();
+            final boolean isNameStart = nameIndex > 0 && Character.isWhitespace(lowerCaseTag.charAt(nameIndex - 1));
+            int valueStart = nameEnd;
+
+            while (valueStart < tag.length() && Character.isWhitespace(tag.charAt(valueStart)))
+                valueStart++;
+
+            if (isNameStart && valueStart < tag.length() && tag.charAt(valueStart) == '=')
+                return getAttributeValue(tag, valueStart + 1);
+
+            nameIndex = lowerCaseTag.indexOf(attributeName, nameEnd);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Retrieves a quoted or unquoted attribute value.
+     *
+     * @param tag the content of the tag
+     * @param offset the index after the equals sign of the attribute
+     *
+     * @return the decoded value of the attribute
+     */
+    private static String getAttributeValue(final CharSequence tag, final int offset)
+    {
+        int start = offset;
+
+        while (start < tag.length() && Character.isWhitespace(tag.charAt(start)))
+            start++;
+
+        if (start == tag.length())
+            return "";
+
+        final char quote = tag.charAt(start);
+        final boolean isQuoted = quote == '"' || quote == '\'';
+        int end = isQuoted ? ++start : start;
+
+        while (end < tag.length()
+               && (isQuoted ? tag.charAt(end) != quote : !Character.isWhitespace(tag.charAt(end)) && tag.charAt(end) != '/'))
+            end++;
+
+        return Parser.unescapeEntities(tag.subSequence(start, end).toString(), true);
+    }
+
+
+    /**
+     * Checks if a class attribute value contains a class name.
+     *
+     * @param classNames the value of a class attribute, or null
+     * @param className the class name
+     *
+     * @return true if the class name is one of the class names
+     */
+    private static boolean hasClass(final String classNames, final String className)
+    {
+        if (classNames == null)
+            return false;
+
+        for (final String name : classNames.trim().split("\\s+")) {
+            if (name.equals(className))
+                return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Collapses all whitespace of a text to single spaces and trims it.
+     *
+     * @param rawText the text that is to be normalized
+     *
+     * @return the normalized text
+     */
+    private static String normalizeText(final String rawText)
+    {
+        final StringBuilder normalized = new StringBuilder(rawText.length());
+        boolean isPrecededBySpace = true;
+
+        for (int i = 0; i < rawText.length(); i++) {
+            final char c = rawText.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                if (!isPrecededBySpace)
+                    normalized.append(' ');
+
+                isPrecededBySpace = true;
+            } else {
+                normalized.append(c);
+                isPrecededBySpace = false;
+            }
+        }
+
+        final int length = normalized.length();
+
+        if (length > 0 && normalized.charAt(length - 1) == ' ')
+            normalized.setLength(length - 1);
+
+        return normalized.toString();
+    }
+}
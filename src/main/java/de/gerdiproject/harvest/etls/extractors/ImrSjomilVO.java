@@ -16,13 +16,17 @@
  */
 package de.gerdiproject.harvest.etls.extractors;
 
+import java.util.Map;
+
 import org.jsoup.nodes.Document;
 
 import lombok.Value;
 
 /**
  * This value object contains extracted (meta-)data of an IMR
- * sea and environment dataset.
+ * sea and environment dataset. Only the texts that are needed for
+ * the transformation are kept, so the parsed view page can be
+ * discarded right after the extraction.
  *
  * @author Robin Weiss
  */
@@ -30,54 +34,46 @@ import lombok.Value;
 public class ImrSjomilVO
 {
     private int id;
-    private Document viewPage;
+    private String datasetName;
+    private String parentName;
+    private String shortDescription;
+    private String area;
+    private String references;
+    private String longDescriptionUrl;
+    private String responsibleScientist;
+    private String earliestDate;
+    private String latestDate;
 
 
     /**
-     * The original {@linkplain Document#equals(Object)} function does not
-     * compare the actual content of the HTML objects. In order to compare
-     * the {@linkplain ImrSjomilVO#viewPage}, the {@linkplain Document#hasSameValue(Object)}
-     * function must be used instead.
+     * Constructor that extracts all relevant texts of a dataset view page.
      *
-     * @param obj the object that is to be compared to the VO
-     * @return true if the object is equal to this VO
+     * @param id the dataset ID
+     * @param viewPage the parsed view page of the dataset
      */
-    @Override
-    public boolean equals(final Object obj)
+    public ImrSjomilVO(final int id, final Document viewPage)
     {
-        if (this == obj)
-            return true;
-
-        if (obj == null)
-            return false;
-
-        if (getClass() != obj.getClass())
-            return false;
-
-        final ImrSjomilVO other = (ImrSjomilVO) obj;
-
-        if (id != other.id)
-            return false;
-
-        if (viewPage == null) {
-            if (other.viewPage != null)
-                return false;
-        } else if (!viewPage.hasSameValue(other.viewPage))
-            return false;
-
-        return true;
+        this(id, ImrSjomilFieldExtractor.extract(viewPage));
     }
 
 
-    @Override
-    public int hashCode()
+    /**
+     * Constructor that assigns extracted fields of a dataset view page.
+     *
+     * @param id the dataset ID
+     * @param fields a map of extracted field values
+     */
+    public ImrSjomilVO(final int id, final Map<ImrSjomilField, String> fields)
     {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + id;
-        result = prime * result + ((viewPage == null) ? 0 : viewPage.hashCode());
-        return result;
+        this.id = id;
+        this.datasetName = fields.get(ImrSjomilField.DATASET_NAME);
+        this.parentName = fields.get(ImrSjomilField.PARENT_NAME);
+        this.shortDescription = fields.get(ImrSjomilField.SHORT_DESCRIPTION);
+        this.area = fields.get(ImrSjomilField.AREA);
+        this.references = fields.get(ImrSjomilField.REFERENCES);
+        this.longDescriptionUrl = fields.get(ImrSjomilField.LONG_DESCRIPTION_URL);
+        this.responsibleScientist = fields.get(ImrSjomilField.RESPONSIBLE_SCIENTIST);
+        this.earliestDate = fields.get(ImrSjomilField.EARLIEST_DATE);
+        this.latestDate = fields.get(ImrSjomilField.LATEST_DATE);
     }
-
-
 }
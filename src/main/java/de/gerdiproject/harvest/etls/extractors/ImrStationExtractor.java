@@ -16,22 +16,63 @@
  */
 package de.gerdiproject.harvest.etls.extractors;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 import com.vividsolutions.jts.geom.Point;
 
 import de.gerdiproject.harvest.etls.AbstractETL;
+import de.gerdiproject.harvest.etls.ETLPreconditionException;
+import de.gerdiproject.harvest.etls.ImrStationETL;
+import de.gerdiproject.harvest.imr.cache.DocumentHashStore;
+import de.gerdiproject.harvest.imr.cache.HarvestCheckpoint;
+import de.gerdiproject.harvest.imr.cache.HttpResponseCache;
+import de.gerdiproject.harvest.imr.cache.ImrStationDateCache;
+import de.gerdiproject.harvest.imr.concurrency.ConnectionLimiter;
+import de.gerdiproject.harvest.imr.concurrency.NamedDaemonThreadFactory;
+import de.gerdiproject.harvest.imr.concurrency.PrefetchingIterator;
+import de.gerdiproject.harvest.imr.concurrency.RequestRateLimiter;
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
 import de.gerdiproject.harvest.imr.constants.ImrStationConstants;
+import de.gerdiproject.harvest.imr.http.ImrHttpRequester;
+import de.gerdiproject.harvest.imr.http.PermanentRequestFailureException;
+import de.gerdiproject.harvest.imr.http.RequestResilience;
+import de.gerdiproject.harvest.imr.json.JsonArrayIterator;
 import de.gerdiproject.harvest.imr.json.StationProperties;
-import de.gerdiproject.harvest.utils.data.HttpRequester;
+import de.gerdiproject.harvest.imr.metrics.DocumentTimings;
+import de.gerdiproject.harvest.imr.metrics.HarvestStage;
+import de.gerdiproject.harvest.imr.metrics.RequestMetricsRegistry;
+import de.gerdiproject.harvest.imr.metrics.StageTimings;
+import de.gerdiproject.harvest.imr.utils.HashUtils;
+import de.gerdiproject.harvest.imr.utils.Shard;
 import de.gerdiproject.json.GsonUtils;
 import de.gerdiproject.json.geo.Feature;
 import de.gerdiproject.json.geo.FeatureCollection;
@@ -39,18 +80,53 @@ import de.gerdiproject.json.geo.FeatureCollection;
 /**
  * This {@linkplain AbstractIteratorExtractor} implementation iterates through IMR station
  * positions, enriches their positional data and returns it as {@linkplain ImrStationVO}s.
+ * The data of a single station is retrieved via concurrent requests, and
+ * a configurable number of stations is retrieved ahead of the iteration.
+ * Optionally, the station positions are parsed while they are received.
+ * If the harvest is sharded, only the stations of the shard of this harvester
+ * instance are retrieved, which are distributed by the hashes of their identifiers,
+ * so that stations keep their shard when other stations are added or removed.
+ * An interrupted harvest can be resumed after the station of the last loaded document.
  *
  * @author Robin Weiss
  */
 public class ImrStationExtractor extends AbstractIteratorExtractor<ImrStationVO>
 {
-    protected final HttpRequester httpRequester = createHttpRequester();
-    protected final HttpRequester descriptionHttpRequester = new HttpRequester(new Gson(), StandardCharsets.ISO_8859_1);
-
-    protected Iterator<Feature<StationProperties>> featureIterator;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImrStationExtractor.class);
+    private static final Type INT_LIST_TYPE = new TypeToken<List<Integer>>() {} .getType();
+    private static final Type STRING_LIST_TYPE = new TypeToken<List<String>>() {} .getType();
+    private static final Type FEATURE_TYPE = new TypeToken<Feature<StationProperties>>() {} .getType();
+    private static final Type FEATURE_COLLECTION_TYPE = new TypeToken<FeatureCollection<StationProperties>>() {} .getType();
+    private static final String FEATURES_FIELD = "features";
+    private static final Gson GEO_JSON_GSON = createGeoJsonGson();
+
+    protected final ImrHttpRequester httpRequester = new ImrHttpRequester(GEO_JSON_GSON, StandardCharsets.UTF_8);
+    protected final ImrHttpRequester descriptionHttpRequester = new ImrHttpRequester(new Gson(), StandardCharsets.ISO_8859_1);
+    private final Map<String, CompletableFuture<List<Integer>>> prefetchedYears = new ConcurrentHashMap<>();
+    private final RequestResilience resilience = RequestResilience.getInstance();
+    private final AtomicInteger skippedStationCount = new AtomicInteger();
+
+    protected ImrStationDateCache dateCache;
+    protected List<Feature<StationProperties>> features;
     protected String today;
+    protected int currentYear;
 
     private int featureCount = -1;
+    private List<String> shardStationIds;
+    private byte[] shardFeatureHash;
+    private boolean isStreamingPositions;
+    private Shard shard;
+    private JsonArrayIterator<?> featureStream;
+    private ExecutorService requestExecutor;
+    private RequestRateLimiter rateLimiter;
+    private ConnectionLimiter connectionLimiter;
+    private PrefetchingIterator<Feature<StationProperties>, ImrStationVO> stationIterator;
+    private int stationLookahead;
+    private String versionString;
+    private DocumentHashStore documentHashes;
+    private StageTimings stageTimings;
+    private HarvestCheckpoint checkpoint;
+    private boolean isResumed;
 
 
     @Override
@@ -58,23 +134,131 @@ public class ImrStationExtractor extends AbstractIteratorExtractor<ImrStationVO>
     {
         super.init(etl);
 
+        final ImrStationETL stationEtl = (ImrStationETL) etl;
+        final HttpResponseCache responseCache = stationEtl.createResponseCache();
+
         httpRequester.setCharset(etl.getCharset());
+        httpRequester.setResponseCache(responseCache);
+        descriptionHttpRequester.setResponseCache(responseCache);
+
+        // measure requests per endpoint
+        final RequestMetricsRegistry metrics = RequestMetricsRegistry.getInstance();
+        metrics.registerEndpoint(ImrMetricsConstants.STATION_POSITIONS_ENDPOINT, ImrStationConstants.POSITIONS_URL);
+        metrics.registerEndpoint(ImrMetricsConstants.STATION_YEARS_ENDPOINT, ImrStationConstants.YEARS_URL);
+        metrics.registerEndpoint(ImrMetricsConstants.STATION_DATES_ENDPOINT, ImrStationConstants.DATES_IN_YEAR_URL);
+        metrics.registerEndpoint(ImrMetricsConstants.STATION_DESCRIPTION_ENDPOINT, ImrStationConstants.DESCRIPTION_URL);
+
+        // retry failed requests, and shed requests to endpoints that keep failing
+        final int maxRetries = stationEtl.getMaxRetries();
+        final int circuitBreakerThreshold = stationEtl.getCircuitBreakerThreshold();
+        resilience.configureEndpoint(ImrMetricsConstants.STATION_POSITIONS_ENDPOINT, maxRetries, circuitBreakerThreshold);
+        resilience.configureEndpoint(ImrMetricsConstants.STATION_YEARS_ENDPOINT, maxRetries, circuitBreakerThreshold);
+        resilience.configureEndpoint(ImrMetricsConstants.STATION_DATES_ENDPOINT, maxRetries, circuitBreakerThreshold);
+        resilience.configureEndpoint(ImrMetricsConstants.STATION_DESCRIPTION_ENDPOINT, maxRetries, circuitBreakerThreshold);
+
+        this.shard = stationEtl.getShard();
+
+        // either parse all stations now, or scan the stations of the shard and parse them again during the harvest,
+        // unless mocked responses are read from or written to disk, which can only be done as a whole
+        this.isStreamingPositions = stationEtl.isStreamingStationPositions() && !httpRequester.isMockingRequests();
+
+        if (isStreamingPositions) {
+            this.features = null;
+            scanStreamedFeatures();
+        } else {
+            final FeatureCollection<StationProperties> stationsResponse = resilience.send(
+                                                                              ImrStationConstants.POSITIONS_URL,
+                                                                              () -> httpRequester.getObjectFromUrl(ImrStationConstants.POSITIONS_URL, FEATURE_COLLECTION_TYPE));
+
+            // without the station positions, there is nothing to harvest
+            if (stationsResponse == null || stationsResponse.getFeatures() == null)
+                throw new ETLPreconditionException(String.format(
+                                                       ImrHttpConstants.NO_RESPONSE_ERROR,
+                                                       ImrStationETL.class.getSimpleName(),
+                                                       ImrStationConstants.POSITIONS_URL));
+
+            this.features = stationsResponse.getFeatures();
+            scanShardFeatures(features.iterator());
+        }
 
-        final Type responseType = new TypeToken<FeatureCollection<StationProperties>>() {} .getType();
-        final FeatureCollection<StationProperties> stationsResponse = httpRequester.getObjectFromUrl(
-                                                                          ImrStationConstants.POSITIONS_URL,
-                                                                          responseType);
-        this.featureCount = stationsResponse.getFeatures().size();
-        this.featureIterator = stationsResponse.getFeatures().iterator();
         this.today = new SimpleDateFormat("dd.MM.yyyy", Locale.ENGLISH).format(new java.util.Date());
+        this.currentYear = Year.now().getValue();
+
+        this.rateLimiter = stationEtl.getRateLimiter();
+        this.connectionLimiter = stationEtl.getConnectionLimiter();
+        this.stationLookahead = stationEtl.getStationLookahead();
+        this.stageTimings = stationEtl.getStageTimings();
+
+        clear();
+        this.dateCache = new ImrStationDateCache(stationEtl.getShardCacheFile(ImrCacheConstants.STATION_DATES_NAME));
+        dateCache.load();
+
+        this.documentHashes = stationEtl.getDocumentHashStore();
+        this.checkpoint = stationEtl.createCheckpoint();
+
+        if (documentHashes != null)
+            documentHashes.load();
+
+        this.requestExecutor = Executors.newFixedThreadPool(
+                                   stationEtl.getConcurrentRequests(),
+                                   new NamedDaemonThreadFactory(getClass().getSimpleName()));
     }
 
 
+    /**
+     * Calculates a hash of all station features of the shard and their measurement years.
+     * The features are hashed while they are scanned during the initialization,
+     * so the station positions are not requested again. The requested years are
+     * kept for the subsequent extraction, so they are not requested twice.
+     */
     @Override
     public String getUniqueVersionString()
     {
-        // there is no shared version string that represents the state of IMR stations
-        return null;
+        if (versionString != null || shardStationIds == null)
+            return versionString;
+
+        final MessageDigest digest = HashUtils.createDigest();
+        digest.update(shardFeatureHash);
+
+        final List<CompletableFuture<List<Integer>>> yearsFutures = new ArrayList<>(shardStationIds.size());
+
+        for (final String stationId : shardStationIds) {
+            final CompletableFuture<List<Integer>> yearsFuture = requestMeasurementYears(stationId, null);
+            prefetchedYears.put(stationId, yearsFuture);
+            yearsFutures.add(yearsFuture);
+        }
+
+        try {
+            for (final CompletableFuture<List<Integer>> yearsFuture : yearsFutures) {
+                final List<Integer> years = yearsFuture.join();
+
+                // without the years of all stations, the state of the stations is unknown
+                if (years == null) {
+                    discardFailedYears();
+                    return null;
+                }
+
+                digest.update(years.toString().getBytes(StandardCharsets.UTF_8));
+            }
+
+        } catch (final CompletionException | CancellationException e) {
+            discardFailedYears();
+            return null;
+        }
+
+        this.versionString = HashUtils.toHex(digest.digest());
+        return versionString;
+    }
+
+
+    /**
+     * Forgets all prefetched measurement years that could not be retrieved,
+     * or are still pending, so that they are requested again during the extraction.
+     */
+    private void discardFailedYears()
+    {
+        prefetchedYears.values().removeIf((final CompletableFuture<List<Integer>> yearsFuture) ->
+                                          yearsFuture.isCompletedExceptionally() || yearsFuture.getNow(null) == null);
     }
 
 
@@ -85,135 +269,488 @@ public class ImrStationExtractor extends AbstractIteratorExtractor<ImrStationVO>
     }
 
 
+    /**
+     * Iterates through the stations in the order of their features. Up to
+     * {@linkplain #stationLookahead} stations are retrieved in addition to the
+     * station that is currently being transformed. The loading time of each
+     * document ends when the next VO is retrieved. If a checkpoint of an
+     * interrupted harvest exists, the iteration continues after the station
+     * of the last loaded document.
+     */
     @Override
     protected Iterator<ImrStationVO> extractAll() throws ExtractorException
     {
-        return new ImrIterator();
+        Iterator<Feature<StationProperties>> shardFeatureIter = createShardFeatureIterator();
+
+        checkpoint.load();
+        this.isResumed = false;
+
+        if (!checkpoint.isEmpty()) {
+            final String lastLoadedId = checkpoint.getLastLoadedKey();
+            this.isResumed = skipPast(shardFeatureIter, lastLoadedId);
+
+            if (isResumed)
+                LOGGER.warn(String.format(ImrCacheConstants.RESUMING_HARVEST, ImrStationETL.class.getSimpleName(), checkpoint.getLoadedCount(), lastLoadedId));
+            else {
+                LOGGER.warn(String.format(ImrCacheConstants.CHECKPOINT_MISMATCH_ERROR, ImrStationETL.class.getSimpleName(), lastLoadedId));
+                checkpoint.reset();
+                shardFeatureIter = createShardFeatureIterator();
+            }
+        }
+
+        this.stationIterator = new PrefetchingIterator<>(
+            checkpoint.trackRequests(shardFeatureIter, ImrStationExtractor::getStationId),
+            this::requestStation,
+            stationLookahead + 1);
+
+        // the hashes of changed documents are only remembered after the documents were loaded
+        final Iterator<ImrStationVO> trackedIterator = checkpoint.trackLoading(stationIterator);
+
+        return stageTimings.measureLoading(documentHashes == null
+                                           ? trackedIterator
+                                           : documentHashes.trackLoading(trackedIterator));
     }
 
 
+    /**
+     * Saves the checkpoint of an incomplete harvest, or deletes it if the harvest is complete.
+     * The document hashes of resumed harvests are not saved, because they lack the
+     * documents that were harvested before the interruption, and neither are those
+     * of harvests that skipped stations due to failed requests. Stations of which
+     * some data does not exist are not skipped.
+     */
     @Override
     public void clear()
     {
-        // nothing to clean up
+        final boolean isComplete = stationIterator != null && stationIterator.isExhausted();
+        final int skippedStations = skippedStationCount.getAndSet(0);
+
+        if (skippedStations > 0)
+            LOGGER.warn(String.format(ImrHttpConstants.SKIPPED_DOCUMENTS_ERROR, ImrStationETL.class.getSimpleName(), skippedStations));
+
+        if (documentHashes != null) {
+            documentHashes.save(isComplete && !isResumed && skippedStations == 0);
+            documentHashes = null;
+        }
+
+        if (checkpoint != null) {
+            if (isComplete)
+                checkpoint.delete();
+            else
+                checkpoint.save();
+
+            checkpoint = null;
+        }
+
+        if (stationIterator != null) {
+            stationIterator.cancel();
+            stationIterator = null;
+        }
+
+        if (featureStream != null) {
+            featureStream.close();
+            featureStream = null;
+        }
+
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+            requestExecutor = null;
+        }
+
+        if (stageTimings != null)
+            stageTimings.clearPending();
+
+        prefetchedYears.clear();
+        versionString = null;
+
+        if (dateCache != null)
+            dateCache.save();
     }
 
 
     /**
-     * Creates a {@linkplain HttpRequester} that is able to parse
-     * null-coordinates in {@linkplain Point}s.
+     * Creates an {@linkplain Iterator} of all station features. If the station
+     * positions are streamed, they are requested and parsed one by one while
+     * iterating. Otherwise, the features that were parsed during initialization are used.
      *
-     * @return a {@linkplain HttpRequester}
+     * @return an iterator of all station features
+     *
+     * @throws IOException if the station positions could not be requested
      */
-    private HttpRequester createHttpRequester()
+    private Iterator<Feature<StationProperties>> createFeatureIterator() throws IOException
     {
-        final Gson gson =
-            GsonUtils.createGeoJsonGsonBuilder()
-            .registerTypeAdapter(Point.class, new FailsafePointAdapter())
-            .create();
-        return new HttpRequester(gson, StandardCharsets.UTF_8);
+        if (!isStreamingPositions)
+            return features.iterator();
+
+        return new JsonArrayIterator<>(
+                   httpRequester.getReaderFromUrl(ImrStationConstants.POSITIONS_URL),
+                   FEATURES_FIELD,
+                   GEO_JSON_GSON,
+                   FEATURE_TYPE);
     }
 
 
     /**
-     * This class represents an {@linkplain Iterator} that iterates through
-     * {@linkplain ImrStationVO}s used for harvesting.
+     * Creates an {@linkplain Iterator} of the station features of the shard of this
+     * harvester instance. If the station positions are streamed, the previous
+     * stream is closed.
+     *
+     * @return an iterator of the station features of the shard
      *
-     * @author Robin Weiss
+     * @throws ExtractorException if the station positions could not be requested
      */
-    private class ImrIterator implements Iterator<ImrStationVO>
+    private Iterator<Feature<StationProperties>> createShardFeatureIterator() throws ExtractorException
     {
-        @Override
-        public boolean hasNext()
-        {
-            return featureIterator.hasNext();
+        final Iterator<Feature<StationProperties>> featureIter;
+
+        try {
+            featureIter = createFeatureIterator();
+        } catch (final IOException e) {
+            throw new ExtractorException(String.format(ImrHttpConstants.REQUEST_FAILED_ERROR, ImrStationConstants.POSITIONS_URL, e.getMessage()));
         }
 
+        if (featureStream != null)
+            featureStream.close();
+
+        this.featureStream = featureIter instanceof JsonArrayIterator
+                             ? (JsonArrayIterator<?>) featureIter
+                             : null;
+
+        return shard.filter(featureIter, ImrStationExtractor::getStationId);
+    }
+
+
+    /**
+     * Retrieves the identifier of the station of a feature.
+     *
+     * @param feature a station feature
+     *
+     * @return the identifier of the station
+     */
+    private static String getStationId(final Feature<StationProperties> feature)
+    {
+        return feature.getProperties().getId();
+    }
 
-        @Override
-        public ImrStationVO next()
-        {
-            // get feature
-            final Feature<StationProperties> feature = featureIterator.next();
-            final String stationId = feature.getProperties().getId();
 
-            // get measurement years
-            final List<Integer> measurementYears = getMeasurementYears(stationId);
+    /**
+     * Scans the station features of the shard of this harvester instance, remembering
+     * their number, the identifiers of their stations, and a hash of the features.
+     *
+     * @param featureIter an iterator of all station features
+     */
+    private void scanShardFeatures(final Iterator<Feature<StationProperties>> featureIter)
+    {
+        final Iterator<Feature<StationProperties>> shardFeatureIter = shard.filter(featureIter, ImrStationExtractor::getStationId);
+        final MessageDigest digest = HashUtils.createDigest();
+        final List<String> stationIds = new ArrayList<>();
+
+        while (shardFeatureIter.hasNext()) {
+            final Feature<StationProperties> feature = shardFeatureIter.next();
+            stationIds.add(getStationId(feature));
+            digest.update(GEO_JSON_GSON.toJson(feature).getBytes(StandardCharsets.UTF_8));
+        }
 
-            // get measurement dates
-            final List<String> measurementDates = getMeasurementDates(stationId, measurementYears);
+        this.shardStationIds = stationIds;
+        this.shardFeatureHash = digest.digest();
+        this.featureCount = stationIds.size();
+    }
 
-            // get description
-            final String description = getDescription(stationId);
 
-            // assemble value object
-            return new ImrStationVO(
-                       feature,
-                       description,
-                       measurementYears,
-                       measurementDates,
-                       today);
+    /**
+     * Skips all station features up to and including the feature of a specified
+     * station, in order to resume an interrupted harvest.
+     *
+     * @param featureIter an iterator of station features
+     * @param stationId the identifier of the station of the last loaded document
+     *
+     * @return true if the station was found, or false if all features were skipped
+     */
+    private static boolean skipPast(final Iterator<Feature<StationProperties>> featureIter, final String stationId)
+    {
+        while (featureIter.hasNext()) {
+            if (stationId.equals(featureIter.next().getProperties().getId()))
+                return true;
         }
 
+        return false;
+    }
 
-        /**
-         * Retrieves a list of all years in which measurements were taken by the station.
-         *
-         * @param stationId the identifier of the station
-         *
-         * @return a list of all years in which measurements were taken
-         */
-        private List<Integer> getMeasurementYears(final String stationId)
-        {
-            final Type intListType = new TypeToken<List<Integer>>() {} .getType();
-            final String yearsUrl = String.format(ImrStationConstants.YEARS_URL, stationId);
 
-            return httpRequester.getObjectFromUrl(yearsUrl, intListType);
+    /**
+     * Scans the station features of the shard of this harvester instance while they
+     * are received. If the station positions could not be retrieved, the number of
+     * features is -1.
+     */
+    private void scanStreamedFeatures()
+    {
+        try
+            (Reader reader = httpRequester.getReaderFromUrl(ImrStationConstants.POSITIONS_URL)) {
+            scanShardFeatures(new JsonArrayIterator<>(reader, FEATURES_FIELD, GEO_JSON_GSON, FEATURE_TYPE));
+        } catch (final IOException | JsonParseException e) {
+            LOGGER.warn(String.format(ImrHttpConstants.REQUEST_FAILED_ERROR, ImrStationConstants.POSITIONS_URL, e.getMessage()));
+            this.shardStationIds = null;
+            this.shardFeatureHash = null;
+            this.featureCount = -1;
         }
+    }
+
 
+    /**
+     * Creates a {@linkplain Gson} instance that is able to parse
+     * null-coordinates in {@linkplain Point}s.
+     *
+     * @return a GeoJson capable {@linkplain Gson} instance
+     */
+    private static Gson createGeoJsonGson()
+    {
+        return GsonUtils.createGeoJsonGsonBuilder()
+               .registerTypeAdapter(Point.class, new FailsafePointAdapter())
+               .create();
+    }
+
+
+    /**
+     * Asynchronously retrieves all data of a station. The measurement years
+     * and the description are requested at the same time, and as soon as the
+     * years are known, the measurement dates of all years are requested at once.
+     * The fetching time of the station lasts until all responses are received,
+     * while the CPU time of the fetching is the sum of that of all requests.
+     * Data that does not exist, because its request was rejected for good, is
+     * harvested as empty data. If any of the requests failed otherwise, the station
+     * is skipped rather than harvested with incomplete data.
+     *
+     * @param feature the GeoJson feature of the station
+     *
+     * @return a future VO of the station, which is completed with null if the station is skipped
+     */
+    private CompletableFuture<ImrStationVO> requestStation(final Feature<StationProperties> feature)
+    {
+        final String stationId = feature.getProperties().getId();
+        final DocumentTimings timings = new DocumentTimings(stationId);
+        final long fetchStartWallNanos = System.nanoTime();
+
+        // request measurement years and description in parallel, unless the years were requested already
+        final CompletableFuture<List<Integer>> prefetchedYearsFuture = prefetchedYears.remove(stationId);
+        final CompletableFuture<List<Integer>> yearsFuture = prefetchedYearsFuture != null
+                                                             ? prefetchedYearsFuture
+                                                             : requestMeasurementYears(stationId, timings);
+        final CompletableFuture<String> descriptionFuture = requestDescription(stationId, timings);
+
+        // request measurement dates as soon as the years are known
+        final CompletableFuture<List<String>> datesFuture =
+            yearsFuture.thenCompose((final List<Integer> years) -> requestMeasurementDates(stationId, years, timings));
+
+        // assemble value object
+        return CompletableFuture
+               .allOf(yearsFuture, datesFuture, descriptionFuture)
+               .thenApply((final Void v) -> {
+                   timings.add(HarvestStage.FETCH, System.nanoTime() - fetchStartWallNanos, 0L);
+
+                   if (yearsFuture.join() == null || datesFuture.join() == null || descriptionFuture.join() == null) {
+                       skippedStationCount.incrementAndGet();
+                       return null;
+                   }
+
+                   final long parseStartWallNanos = System.nanoTime();
+                   final long parseStartCpuNanos = StageTimings.getCurrentCpuNanos();
+                   final ImrStationVO vo = new ImrStationVO(
+                       feature,
+                       descriptionFuture.join(),
+                       yearsFuture.join(),
+                       datesFuture.join(),
+                       today);
+                   StageTimings.endStage(timings, HarvestStage.PARSE, parseStartWallNanos, parseStartCpuNanos);
+
+                   stageTimings.addPending(timings);
+                   return vo;
+               });
+    }
+
+
+    /**
+     * Asynchronously retrieves a list of all years in which measurements were taken by the station.
+     *
+     * @param stationId the identifier of the station
+     * @param timings the stage timings of the station, or null if they are not measured
+     *
+     * @return a future list of all years in which measurements were taken, which is
+     *          empty if the years do not exist, or null if they could not be retrieved
+     */
+    private CompletableFuture<List<Integer>> requestMeasurementYears(final String stationId, final DocumentTimings timings)
+    {
+        final String yearsUrl = String.format(ImrStationConstants.YEARS_URL, stationId);
+
+        return requestAsync(
+                   yearsUrl,
+                   (final String url) -> httpRequester.getObjectFromUrl(url, INT_LIST_TYPE),
+                   Collections.emptyList(),
+                   timings);
+    }
+
+
+    /**
+     * Asynchronously retrieves the description text of a hydrographic station.
+     *
+     * @param stationId the identifier of the station
+     * @param timings the stage timings of the station
+     *
+     * @return a future Norwegian description String of the station, which is
+     *          empty if the description does not exist, or null if it could not be retrieved
+     */
+    private CompletableFuture<String> requestDescription(final String stationId, final DocumentTimings timings)
+    {
+        final String descriptionUrl = String.format(ImrStationConstants.DESCRIPTION_URL, stationId);
 
-        /**
-         * Retrieves description text of a hydrographic station.
-         *
-         * @param stationId the identifier of the station
-         *
-         * @return a Norwegian description String of the station
-         */
-        private String getDescription(final String stationId)
-        {
-            final String descriptionUrl = String.format(ImrStationConstants.DESCRIPTION_URL, stationId);
-            return descriptionHttpRequester.getHtmlFromUrl(descriptionUrl).text();
+        return requestAsync(descriptionUrl, (final String url) -> {
+            final Document descriptionPage = descriptionHttpRequester.getHtmlFromUrl(url);
+            return descriptionPage == null ? null : descriptionPage.text();
+        }, "", timings);
+    }
+
+
+    /**
+     * Asynchronously retrieves all measurement dates of a hydrographic station
+     * by requesting the dates of all years in parallel. The dates of past years
+     * are taken from the {@linkplain #dateCache}, if possible.
+     *
+     * @param stationId the identifier of the station
+     * @param measurementYears the years during which measurements were taken
+     * @param timings the stage timings of the station
+     *
+     * @return a future list of all measurement dates as dd.mm.yyyy strings,
+     *          ordered like the measurement years, which is completed with null
+     *          if the years or the dates of any year could not be retrieved
+     */
+    private CompletableFuture<List<String>> requestMeasurementDates(final String stationId, final List<Integer> measurementYears, final DocumentTimings timings)
+    {
+        if (measurementYears == null)
+            return CompletableFuture.completedFuture(null);
+
+        // request the measurement dates of all years at once
+        final List<CompletableFuture<List<String>>> datesOfYearFutures = new ArrayList<>(measurementYears.size());
+
+        for (final int year : measurementYears) {
+            final List<String> cachedDates = dateCache.getDates(stationId, year);
+
+            if (cachedDates != null)
+                datesOfYearFutures.add(CompletableFuture.completedFuture(cachedDates));
+            else
+                datesOfYearFutures.add(requestMeasurementDatesOfYear(stationId, year, timings));
         }
 
+        // concatenate the dates in the order of the years
+        return CompletableFuture
+               .allOf(datesOfYearFutures.toArray(new CompletableFuture<?>[0]))
+               .thenApply((final Void v) -> {
+                   final List<String> measurementDates = new ArrayList<>();
 
-        /**
-         * Retrieves the all measurement dates of a hydrographic station.
-         *
-         * @param stationId the identifier of the station
-         * @param measurementYears the years during which measurements were taken
-         *
-         * @return all measurement dates as dd.mm.yyyy strings
-         */
-        private List<String> getMeasurementDates(final String stationId, final List<Integer> measurementYears)
-        {
-            final List<String> measurementDates = new LinkedList<>();
+                   for (final CompletableFuture<List<String>> datesOfYearFuture : datesOfYearFutures) {
+                       final List<String> datesOfYear = datesOfYearFuture.join();
 
-            // for each year, add all measurement dates to a list
-            if (measurementYears != null) {
-                final Type stringListType = new TypeToken<List<String>>() {} .getType();
+                       // a station with missing years would look like it had no measurements in them
+                       if (datesOfYear == null)
+                           return null;
 
-                for (final int year : measurementYears) {
+                       measurementDates.addAll(datesOfYear);
+                   }
 
-                    // get measurement dates of the specified year
-                    final String datesUrl = String.format(ImrStationConstants.DATES_IN_YEAR_URL, stationId, year);
-                    final List<String> datesOfYear = httpRequester.getObjectFromUrl(datesUrl, stringListType);
+                   return measurementDates;
+               });
+    }
 
-                    if (datesOfYear != null)
-                        measurementDates.addAll(datesOfYear);
-                }
-            }
 
-            return measurementDates;
+    /**
+     * Asynchronously retrieves the measurement dates of a hydrographic station
+     * in a single year. The dates of past years are added to the {@linkplain #dateCache},
+     * because they are final.
+     *
+     * @param stationId the identifier of the station
+     * @param year the year of the measurements
+     * @param timings the stage timings of the station
+     *
+     * @return a future list of measurement dates as dd.mm.yyyy strings, which is
+     *          empty if the dates do not exist, or null if they could not be retrieved
+     */
+    private CompletableFuture<List<String>> requestMeasurementDatesOfYear(final String stationId, final int year, final DocumentTimings timings)
+    {
+        final String datesUrl = String.format(ImrStationConstants.DATES_IN_YEAR_URL, stationId, year);
+
+        return requestAsync(datesUrl, (final String url) -> {
+            final List<String> datesOfYear = httpRequester.getObjectFromUrl(url, STRING_LIST_TYPE);
+
+            if (datesOfYear != null && year < currentYear)
+                dateCache.putDates(stationId, year, datesOfYear);
+
+            return datesOfYear;
+        }, Collections.emptyList(), timings);
+    }
+
+
+    /**
+     * Asynchronously sends a request via the {@linkplain RequestResilience} of its endpoint,
+     * which retries the request if it fails, and sheds it while the endpoint keeps failing.
+     * A request that is shed is not sent, even if it was queued before the endpoint failed.
+     *
+     * @param url the URL that is to be requested
+     * @param request a function that sends the request and processes the response
+     * @param rejectedResponse the response if the request is rejected for good,
+     *                         because the requested data does not exist
+     * @param timings the stage timings of the station, or null if they are not measured
+     * @param <T> the type of the processed response
+     *
+     * @return a future processed response, which is completed with the rejected response
+     *          if the request was rejected, or with null if the request failed or was shed,
+     *          or if the harvest was aborted
+     */
+    private <T> CompletableFuture<T> requestAsync(final String url, final Function<String, T> request, final T rejectedResponse, final DocumentTimings timings)
+    {
+        return CompletableFuture.supplyAsync(
+                   () -> resilience.send(url, () -> sendRequest(url, request, timings), rejectedResponse),
+                   requestExecutor);
+    }
+
+
+    /**
+     * Sends a request once, respecting the rate limit of IMR
+     * and the limit of open connections that is shared by all IMR ETLs.
+     * The latency of the request is reported to the connection limiter,
+     * which counts requests without a processed response as failed, unless they
+     * were rejected for good. The CPU time of sending the request and processing
+     * the response is added to the fetching time of a station.
+     *
+     * @param url the URL that is to be requested
+     * @param request a function that sends the request and processes the response
+     * @param timings the stage timings of the station, or null if they are not measured
+     * @param <T> the type of the processed response
+     *
+     * @return the processed response, or null if the request failed or the harvest was aborted
+     *
+     * @throws PermanentRequestFailureException if the request was rejected for good
+     */
+    private <T> T sendRequest(final String url, final Function<String, T> request, final DocumentTimings timings)
+    {
+        if (!rateLimiter.acquire(url) || !connectionLimiter.acquire())
+            return null;
+
+        final long startWallNanos = System.nanoTime();
+        final long startCpuNanos = StageTimings.getCurrentCpuNanos();
+        boolean isAnswered = false;
+
+        try {
+            final T response = request.apply(url);
+            isAnswered = response != null;
+            return response;
+        } catch (final PermanentRequestFailureException e) {
+            // a rejected request was answered nonetheless
+            isAnswered = true;
+            throw e;
+        } finally {
+            connectionLimiter.release(url, System.nanoTime() - startWallNanos, isAnswered);
+
+            if (timings != null)
+                timings.addCpu(HarvestStage.FETCH, StageTimings.getCurrentCpuNanos() - startCpuNanos);
         }
     }
+
 }
@@ -19,14 +19,19 @@ package de.gerdiproject.harvest.etls.transformers;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import com.google.gson.Gson;
 
 import de.gerdiproject.harvest.etls.AbstractETL;
+import de.gerdiproject.harvest.etls.AbstractImrETL;
 import de.gerdiproject.harvest.etls.extractors.ImrSjomilVO;
+import de.gerdiproject.harvest.imr.cache.DocumentHashStore;
 import de.gerdiproject.harvest.imr.constants.ImrDataCiteConstants;
 import de.gerdiproject.harvest.imr.constants.ImrSjomilConstants;
-import de.gerdiproject.harvest.utils.HtmlUtils;
+import de.gerdiproject.harvest.imr.metrics.DocumentTimings;
+import de.gerdiproject.harvest.imr.metrics.HarvestStage;
+import de.gerdiproject.harvest.imr.metrics.StageTimings;
+import de.gerdiproject.harvest.imr.utils.HashUtils;
+import de.gerdiproject.json.GsonUtils;
 import de.gerdiproject.json.datacite.Contributor;
 import de.gerdiproject.json.datacite.DataCiteJson;
 import de.gerdiproject.json.datacite.Date;
@@ -53,17 +58,61 @@ import de.gerdiproject.json.datacite.nested.PersonName;
  */
 public class ImrSjomilTransformer extends AbstractIteratorTransformer<ImrSjomilVO, DataCiteJson>
 {
+    private static final Gson DOCUMENT_GSON = GsonUtils.createGerdiDocumentGsonBuilder().create();
+
+    private DocumentHashStore documentHashes;
+    private StageTimings stageTimings;
+
+
     @Override
     public void init(final AbstractETL<?, ?> etl)
     {
-        // nothing to retrieve from the ETL
+        this.documentHashes = ((AbstractImrETL<?>) etl).getDocumentHashStore();
+        this.stageTimings = ((AbstractImrETL<?>) etl).getStageTimings();
     }
 
 
+    /**
+     * Transforms a value object while measuring the transformation time
+     * of the document. Unchanged documents are finished right away, while
+     * changed documents continue to be measured until they are loaded.
+     */
     @Override
     protected DataCiteJson transformElement(final ImrSjomilVO vo) throws TransformerException
     {
-        final DataCiteJson document = new DataCiteJson(String.format(ImrDataCiteConstants.SJOMIL_ID, vo.getId()));
+        // stage timings are only measured if the transformer was initialized by an ETL
+        if (stageTimings == null)
+            return createDocument(vo);
+
+        final DocumentTimings timings = stageTimings.takeDocument(String.valueOf(vo.getId()));
+        final long startWallNanos = System.nanoTime();
+        final long startCpuNanos = StageTimings.getCurrentCpuNanos();
+
+        final DataCiteJson document = createDocument(vo);
+        StageTimings.endStage(timings, HarvestStage.TRANSFORM, startWallNanos, startCpuNanos);
+
+        if (document == null)
+            stageTimings.finishDocument(timings);
+        else
+            stageTimings.beginLoad(timings);
+
+        return document;
+    }
+
+
+    /**
+     * Creates a {@linkplain DataCiteJson} document of a value object.
+     *
+     * @param vo the value object that is to be transformed
+     *
+     * @return the document, or null if it did not change since the last complete harvest
+     *
+     * @throws TransformerException if the value object could not be transformed
+     */
+    private DataCiteJson createDocument(final ImrSjomilVO vo) throws TransformerException
+    {
+        final String documentId = String.format(ImrDataCiteConstants.SJOMIL_ID, vo.getId());
+        final DataCiteJson document = new DataCiteJson(documentId);
 
         document.setPublisher(ImrDataCiteConstants.PROVIDER);
         document.setRepositoryIdentifier(ImrDataCiteConstants.REPOSITORY_ID);
@@ -82,6 +131,11 @@ public class ImrSjomilTransformer extends AbstractIteratorTransformer<ImrSjomilV
         document.addDates(getDates(vo));
         document.addGeoLocations(getGeoLocations(vo));
 
+        // skip documents that did not change since the last complete harvest
+        if (documentHashes != null
+            && !documentHashes.update(documentId, HashUtils.sha256(DOCUMENT_GSON.toJson(document))))
+            return null;
+
         return document;
     }
 
@@ -99,12 +153,8 @@ public class ImrSjomilTransformer extends AbstractIteratorTransformer<ImrSjomilV
         final List<Contributor> contributorList = new LinkedList<>();
 
         // retrieve the responsible scientist
-        final Element scientistElem = vo
-                                      .getViewPage()
-                                      .selectFirst(ImrSjomilConstants.SELECT_RESPONSIBLE_SCIENTIST_ELEMENT);
-
-        if (scientistElem != null) {
-            final PersonName scientistName = new PersonName(scientistElem.text(), NameType.Personal);
+        if (vo.getResponsibleScientist() != null) {
+            final PersonName scientistName = new PersonName(vo.getResponsibleScientist(), NameType.Personal);
             final Contributor scientist = new Contributor(scientistName, ContributorType.Researcher);
             contributorList.add(scientist);
         }
@@ -126,31 +176,26 @@ public class ImrSjomilTransformer extends AbstractIteratorTransformer<ImrSjomilV
         final List<Title> titleList = new LinkedList<>();
 
         // short description can be used as a readable English title
-        final Element shortDescriptionElem = vo
-                                             .getViewPage()
-                                             .selectFirst(ImrSjomilConstants.SELECT_SHORT_DESCRIPTION_ELEMENT);
-
-        titleList.add(new Title(
-                          shortDescriptionElem.text(),
-                          null,
-                          ImrDataCiteConstants.LANGUAGE_ENGLISH));
-
-        // dataset names can be combined to form another title
-        final Element datasetNameElem = vo
-                                        .getViewPage()
-                                        .selectFirst(ImrSjomilConstants.SELECT_DATASET_NAME_ELEMENT);
-
-        final Element parentNameElem = vo
-                                       .getViewPage()
-                                       .selectFirst(ImrSjomilConstants.SELECT_PARENT_NAME_ELEMENT);
-
-        titleList.add(new Title(
-                          String.format(
-                              ImrDataCiteConstants.SEA_AND_ENVIRONMENT_TITLE,
-                              parentNameElem.text(),
-                              datasetNameElem.text()),
-                          TitleType.Other,
-                          ImrDataCiteConstants.LANGUAGE_ENGLISH));
+        if (!isBlank(vo.getShortDescription()))
+            titleList.add(new Title(
+                              vo.getShortDescription(),
+                              null,
+                              ImrDataCiteConstants.LANGUAGE_ENGLISH));
+
+        // dataset names can be combined to form another title, unless there is no parent
+        if (!isBlank(vo.getDatasetName())) {
+            final String datasetTitle = isBlank(vo.getParentName())
+                                        ? vo.getDatasetName()
+                                        : String.format(
+                                            ImrDataCiteConstants.SEA_AND_ENVIRONMENT_TITLE,
+                                            vo.getParentName(),
+                                            vo.getDatasetName());
+
+            titleList.add(new Title(
+                              datasetTitle,
+                              TitleType.Other,
+                              ImrDataCiteConstants.LANGUAGE_ENGLISH));
+        }
 
         return titleList;
     }
@@ -168,13 +213,9 @@ public class ImrSjomilTransformer extends AbstractIteratorTransformer<ImrSjomilV
     {
         final List<GeoLocation> geoLocations = new LinkedList<>();
 
-        // get the area name element
-        final Element areaElem = vo
-                                 .getViewPage()
-                                 .selectFirst(ImrSjomilConstants.SELECT_AREA_ELEMENT);
-
-        if (areaElem != null)
-            geoLocations.add(new GeoLocation(areaElem.text()));
+        // get the area name
+        if (vo.getArea() != null)
+            geoLocations.add(new GeoLocation(vo.getArea()));
 
         return geoLocations;
     }
@@ -192,13 +233,10 @@ public class ImrSjomilTransformer extends AbstractIteratorTransformer<ImrSjomilV
     {
         final List<AbstractDate> dates = new LinkedList<>();
 
-        // retrieve the measurement date selector
-        final Elements dateElements = vo.getViewPage().select(ImrSjomilConstants.SELECT_DATE_ELEMENT);
-
         // verify that there are dates
-        if (!dateElements.isEmpty()) {
-            final String earliestDate = dateElements.first().text();
-            final String latestDate = dateElements.last().text();
+        if (vo.getEarliestDate() != null) {
+            final String earliestDate = vo.getEarliestDate();
+            final String latestDate = vo.getLatestDate();
 
             // check if it is a single date, or a date range
             if (earliestDate.equals(latestDate))
@@ -223,23 +261,15 @@ public class ImrSjomilTransformer extends AbstractIteratorTransformer<ImrSjomilV
         final List<RelatedIdentifier> relatedList = new LinkedList<>();
 
         // get the long description PDF link
-        final Element longDescriptionElem = vo
-                                            .getViewPage()
-                                            .selectFirst(ImrSjomilConstants.SELECT_LONG_DESCRIPTION_ELEMENT);
-
-        if (longDescriptionElem != null) {
-            final String url = HtmlUtils.getAttribute(longDescriptionElem, "href");
+        if (vo.getLongDescriptionUrl() != null) {
+            final String url = vo.getLongDescriptionUrl();
             final RelatedIdentifier ref = new RelatedIdentifier(url, RelatedIdentifierType.URL, RelationType.IsDescribedBy);
             relatedList.add(ref);
         }
 
         // get the references text
-        final Element referencesElem = vo
-                                       .getViewPage()
-                                       .selectFirst(ImrSjomilConstants.SELECT_REFERENCES_ELEMENT);
-
-        if (referencesElem != null) {
-            final String refText = referencesElem.text();
+        if (vo.getReferences() != null) {
+            final String refText = vo.getReferences();
             final RelatedIdentifierType refType = refText.startsWith("http")
                                                   ? RelatedIdentifierType.URL
                                                   : RelatedIdentifierType.Handle;
@@ -280,6 +310,20 @@ public class ImrSjomilTransformer extends AbstractIteratorTransformer<ImrSjomilV
     }
 
 
+    /**
+     * Checks if an extracted text is missing or empty, which is the
+     * case for fields of empty view page templates.
+     *
+     * @param text an extracted text, or null
+     *
+     * @return true if the text is null or empty
+     */
+    private static boolean isBlank(final String text)
+    {
+        return text == null || text.isEmpty();
+    }
+
+
     @Override
     public void clear()
     {
@@ -16,16 +16,26 @@
  */
 package de.gerdiproject.harvest.etls.transformers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
+import com.google.gson.Gson;
 import com.vividsolutions.jts.geom.Point;
 
 import de.gerdiproject.harvest.etls.AbstractETL;
+import de.gerdiproject.harvest.etls.AbstractImrETL;
 import de.gerdiproject.harvest.etls.extractors.ImrStationVO;
+import de.gerdiproject.harvest.imr.cache.DocumentHashStore;
 import de.gerdiproject.harvest.imr.constants.ImrDataCiteConstants;
 import de.gerdiproject.harvest.imr.constants.ImrStationConstants;
+import de.gerdiproject.harvest.imr.metrics.DocumentTimings;
+import de.gerdiproject.harvest.imr.metrics.HarvestStage;
+import de.gerdiproject.harvest.imr.metrics.StageTimings;
+import de.gerdiproject.harvest.imr.utils.FormatTemplate;
+import de.gerdiproject.harvest.imr.utils.HashUtils;
+import de.gerdiproject.json.GsonUtils;
 import de.gerdiproject.json.datacite.DataCiteJson;
 import de.gerdiproject.json.datacite.Date;
 import de.gerdiproject.json.datacite.DateRange;
@@ -48,17 +58,72 @@ import de.gerdiproject.json.datacite.extension.generic.enums.WebLinkType;
  */
 public class ImrStationTransformer extends AbstractIteratorTransformer<ImrStationVO, DataCiteJson>
 {
+    private static final Gson DOCUMENT_GSON = GsonUtils.createGerdiDocumentGsonBuilder().create();
+
+    // the templates of yearly research data are only parsed once
+    private static final int RESEARCH_DATA_PER_YEAR = 4;
+    private static final FormatTemplate SALINITY_OF_YEAR_URL = new FormatTemplate(ImrStationConstants.SALINITY_OF_YEAR_URL);
+    private static final FormatTemplate MEAN_SALINITY_OF_YEAR_URL = new FormatTemplate(ImrStationConstants.MEAN_SALINITY_OF_YEAR_URL);
+    private static final FormatTemplate TEMPERATURE_OF_YEAR_URL = new FormatTemplate(ImrStationConstants.TEMPERATURE_OF_YEAR_URL);
+    private static final FormatTemplate MEAN_TEMPERATURE_OF_YEAR_URL = new FormatTemplate(ImrStationConstants.MEAN_TEMPERATURE_OF_YEAR_URL);
+    private static final FormatTemplate SALINITY_OF_YEAR_TITLE = new FormatTemplate(ImrDataCiteConstants.STATION_SALINITY_OF_YEAR_TITLE);
+    private static final FormatTemplate MEAN_SALINITY_OF_YEAR_TITLE = new FormatTemplate(ImrDataCiteConstants.STATION_MEAN_SALINITY_OF_YEAR_TITLE);
+    private static final FormatTemplate TEMPERATURE_OF_YEAR_TITLE = new FormatTemplate(ImrDataCiteConstants.STATION_TEMPERATURE_OF_YEAR_TITLE);
+    private static final FormatTemplate MEAN_TEMPERATURE_OF_YEAR_TITLE = new FormatTemplate(ImrDataCiteConstants.STATION_MEAN_TEMPERATURE_OF_YEAR_TITLE);
+
+    private DocumentHashStore documentHashes;
+    private StageTimings stageTimings;
+
+
     @Override
     public void init(final AbstractETL<?, ?> etl)
     {
-        // nothing to retrieve from the ETL
+        this.documentHashes = ((AbstractImrETL<?>) etl).getDocumentHashStore();
+        this.stageTimings = ((AbstractImrETL<?>) etl).getStageTimings();
     }
 
 
+    /**
+     * Transforms a value object while measuring the transformation time
+     * of the document. Unchanged documents are finished right away, while
+     * changed documents continue to be measured until they are loaded.
+     */
     @Override
     protected DataCiteJson transformElement(final ImrStationVO vo) throws TransformerException
     {
-        final DataCiteJson document = new DataCiteJson(vo.getFeature().getProperties().getId());
+        // stage timings are only measured if the transformer was initialized by an ETL
+        if (stageTimings == null)
+            return createDocument(vo);
+
+        final DocumentTimings timings = stageTimings.takeDocument(vo.getFeature().getProperties().getId());
+        final long startWallNanos = System.nanoTime();
+        final long startCpuNanos = StageTimings.getCurrentCpuNanos();
+
+        final DataCiteJson document = createDocument(vo);
+        StageTimings.endStage(timings, HarvestStage.TRANSFORM, startWallNanos, startCpuNanos);
+
+        if (document == null)
+            stageTimings.finishDocument(timings);
+        else
+            stageTimings.beginLoad(timings);
+
+        return document;
+    }
+
+
+    /**
+     * Creates a {@linkplain DataCiteJson} document of a value object.
+     *
+     * @param vo the value object that is to be transformed
+     *
+     * @return the document, or null if it did not change since the last complete harvest
+     *
+     * @throws TransformerException if the value object could not be transformed
+     */
+    private DataCiteJson createDocument(final ImrStationVO vo) throws TransformerException
+    {
+        final String documentId = vo.getFeature().getProperties().getId();
+        final DataCiteJson document = new DataCiteJson(documentId);
 
         document.setPublisher(ImrDataCiteConstants.PROVIDER);
         document.setRepositoryIdentifier(ImrDataCiteConstants.REPOSITORY_ID);
@@ -78,10 +143,36 @@ public class ImrStationTransformer extends AbstractIteratorTransformer<ImrStatio
         document.addGeoLocations(getGeoLocations(vo));
         document.addResearchData(getResearchData(vo));
 
+        // skip documents that did not change since the last complete harvest
+        if (documentHashes != null && !documentHashes.update(documentId, getDocumentHash(document, vo)))
+            return null;
+
         return document;
     }
 
 
+    /**
+     * Calculates a hash of the document of a station. The harvest date is not
+     * part of the hash, because the download link that contains it covers the
+     * same measurements on every day.
+     *
+     * @param document the document of the station
+     * @param vo the value object of which the document was created
+     *
+     * @return a hash of the document, in which the download link lacks the harvest date
+     */
+    private static String getDocumentHash(final DataCiteJson document, final ImrStationVO vo)
+    {
+        final String stationId = vo.getFeature().getProperties().getId();
+        final String datedDownloadUrl = DOCUMENT_GSON.toJson(
+                                            String.format(ImrStationConstants.DOWNLOAD_MEASUREMENTS_URL, stationId, vo.getMaximumDate()));
+        final String undatedDownloadUrl = DOCUMENT_GSON.toJson(
+                                              String.format(ImrStationConstants.DOWNLOAD_MEASUREMENTS_URL, stationId, ""));
+
+        return HashUtils.sha256(DOCUMENT_GSON.toJson(document).replace(datedDownloadUrl, undatedDownloadUrl));
+    }
+
+
     /**
      * Retrieves a {@linkplain List} of {@linkplain Title}s that are related to the
      * station.
@@ -121,7 +212,8 @@ public class ImrStationTransformer extends AbstractIteratorTransformer<ImrStatio
     private List<ResearchData> getResearchData(final ImrStationVO vo)
     {
         final String stationId = vo.getFeature().getProperties().getId();
-        final List<ResearchData> researchDataList = new LinkedList<>();
+        final List<Integer> measurementYears = vo.getMeasurementYears();
+        final List<ResearchData> researchDataList = new ArrayList<>(1 + RESEARCH_DATA_PER_YEAR * measurementYears.size());
 
         // add a link to all measured data
         researchDataList.add(new ResearchData(
@@ -130,29 +222,29 @@ public class ImrStationTransformer extends AbstractIteratorTransformer<ImrStatio
                                  ImrDataCiteConstants.TXT_FORMAT));
 
         // add measurements of years
-        for (final int measurementYear : vo.getMeasurementYears()) {
+        for (final int measurementYear : measurementYears) {
             // add salinity measurement
             researchDataList.add(new ResearchData(
-                                     String.format(ImrStationConstants.SALINITY_OF_YEAR_URL, stationId, measurementYear),
-                                     String.format(ImrDataCiteConstants.STATION_SALINITY_OF_YEAR_TITLE, measurementYear),
+                                     SALINITY_OF_YEAR_URL.format(stationId, measurementYear),
+                                     SALINITY_OF_YEAR_TITLE.format(measurementYear),
                                      ImrDataCiteConstants.JSON_FORMAT));
 
             // add mean salinity measurement
             researchDataList.add(new ResearchData(
-                                     String.format(ImrStationConstants.MEAN_SALINITY_OF_YEAR_URL, stationId, measurementYear),
-                                     String.format(ImrDataCiteConstants.STATION_MEAN_SALINITY_OF_YEAR_TITLE, measurementYear),
+                                     MEAN_SALINITY_OF_YEAR_URL.format(stationId, measurementYear),
+                                     MEAN_SALINITY_OF_YEAR_TITLE.format(measurementYear),
                                      ImrDataCiteConstants.JSON_FORMAT));
 
             // add temperature measurement
             researchDataList.add(new ResearchData(
-                                     String.format(ImrStationConstants.TEMPERATURE_OF_YEAR_URL, stationId, measurementYear),
-                                     String.format(ImrDataCiteConstants.STATION_TEMPERATURE_OF_YEAR_TITLE, measurementYear),
+                                     TEMPERATURE_OF_YEAR_URL.format(stationId, measurementYear),
+                                     TEMPERATURE_OF_YEAR_TITLE.format(measurementYear),
                                      ImrDataCiteConstants.JSON_FORMAT));
 
             // add mean temperature measurement
             researchDataList.add(new ResearchData(
-                                     String.format(ImrStationConstants.MEAN_TEMPERATURE_OF_YEAR_URL, stationId, measurementYear),
-                                     String.format(ImrDataCiteConstants.STATION_MEAN_TEMPERATURE_OF_YEAR_TITLE, measurementYear),
+                                     MEAN_TEMPERATURE_OF_YEAR_URL.format(stationId, measurementYear),
+                                     MEAN_TEMPERATURE_OF_YEAR_TITLE.format(measurementYear),
                                      ImrDataCiteConstants.JSON_FORMAT));
         }
 
@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class offers static methods for reading and writing binary cache files.
+ * Files are written atomically, so a crash during a write never leaves
+ * a corrupted cache file behind.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CacheFileUtils
+{
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+
+    /**
+     * Writes a file by writing a temporary file first and moving
+     * it to the target path afterwards.
+     *
+     * @param file the file that is to be written
+     * @param writer a function that writes the file content
+     *
+     * @throws IOException if the file could not be written
+     */
+    public static void writeAtomically(final File file, final DataWriter writer) throws IOException
+    {
+        final Path targetPath = file.toPath().toAbsolutePath();
+        Files.createDirectories(targetPath.getParent());
+
+        final Path tempPath = targetPath.resolveSibling(targetPath.getFileName() + TEMP_FILE_SUFFIX);
+
+        try
+            (OutputStream fileStream = Files.newOutputStream(tempPath);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+            writer.write(out);
+        }
+
+        try {
+            Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     * Reads a file if it exists.
+     *
+     * @param file the file that is to be read
+     * @param reader a function that reads the file content
+     * @param <T> the type of the read object
+     *
+     * @return the read object, or null if the file does not exist
+     *
+     * @throws IOException if the file exists, but could not be read
+     */
+    public static <T> T read(final File file, final DataReader<T> reader) throws IOException
+    {
+        if (!file.isFile())
+            return null;
+
+        try
+            (InputStream fileStream = Files.newInputStream(file.toPath());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fileStream))) {
+            return reader.read(in);
+        }
+    }
+
+
+    /**
+     * A function that writes binary data.
+     */
+    @FunctionalInterface
+    public interface DataWriter
+    {
+        /**
+         * Writes binary data to a stream.
+         *
+         * @param out the stream to which the data is written
+         *
+         * @throws IOException if the data could not be written
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+
+    /**
+     * A function that reads binary data.
+     *
+     * @param <T> the type of the read object
+     */
+    @FunctionalInterface
+    public interface DataReader<T>
+    {
+        /**
+         * Reads binary data from a stream.
+         *
+         * @param in the stream from which the data is read
+         *
+         * @return the read object
+         *
+         * @throws IOException if the data could not be read
+         */
+        T read(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+
+/**
+ * This class remembers the content hashes of all documents that were submitted
+ * during the last complete harvest, in order to determine which documents
+ * were changed, added, or removed since then. The hashes of changed documents
+ * are only remembered after the documents were loaded, so that documents which
+ * failed to be loaded are not mistaken for unchanged documents later on.
+ *
+ * @author Robin Weiss
+ */
+public class DocumentHashStore
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentHashStore.class);
+    private static final int FILE_VERSION = 1;
+
+    private final File hashFile;
+    private final File removedIdsFile;
+    private final Map<String, String> previousHashes;
+    private final Map<String, String> currentHashes;
+    private final Map<String, String> pendingHashes;
+
+
+    /**
+     * Constructor that creates an empty store.
+     *
+     * @param hashFile the file to which the document hashes are saved
+     * @param removedIdsFile the file to which the identifiers of removed documents are written
+     */
+    public DocumentHashStore(final File hashFile, final File removedIdsFile)
+    {
+        this.hashFile = hashFile;
+        this.removedIdsFile = removedIdsFile;
+        this.previousHashes = new HashMap<>();
+        this.currentHashes = new HashMap<>();
+        this.pendingHashes = new HashMap<>();
+    }
+
+
+    /**
+     * Registers the content hash of a document of the current harvest.
+     * The hash of an added or changed document is pending until the
+     * document is marked as loaded.
+     *
+     * @param documentId the identifier of the document
+     * @param contentHash the content hash of the document
+     *
+     * @return true if the document was added or changed since the last complete harvest
+     */
+    public synchronized boolean update(final String documentId, final String contentHash)
+    {
+        if (contentHash.equals(previousHashes.get(documentId))) {
+            currentHashes.put(documentId, contentHash);
+            return false;
+        }
+
+        pendingHashes.put(documentId, contentHash);
+        return true;
+    }
+
+
+    /**
+     * Marks all added or changed documents that were registered so far as loaded,
+     * registering their hashes as part of the current harvest.
+     */
+    public synchronized void markLoaded()
+    {
+        currentHashes.putAll(pendingHashes);
+        pendingHashes.clear();
+    }
+
+
+    /**
+     * Wraps the {@linkplain Iterator} of extracted source elements, in order to mark
+     * the documents that were transformed so far as loaded whenever the loader
+     * requests the next document. Since the transformation of a source element
+     * is requested by the loader, all previously transformed documents were
+     * passed to the loader by then.
+     *
+     * @param sourceElements the extracted source elements
+     * @param <T> the type of the source elements
+     *
+     * @return an iterator that marks transformed documents as loaded
+     */
+    public <T> Iterator<T> trackLoading(final Iterator<T> sourceElements)
+    {
+        return new Iterator<T>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                markLoaded();
+                return sourceElements.hasNext();
+            }
+
+
+            @Override
+            public T next()
+            {
+                markLoaded();
+                return sourceElements.next();
+            }
+        };
+    }
+
+
+    /**
+     * Retrieves the identifiers of all documents of the last complete harvest
+     * that were not registered during the current harvest. Documents that
+     * were registered, but not loaded, are not removed.
+     *
+     * @return a sorted list of document identifiers
+     */
+    public synchronized List<String> getRemovedIds()
+    {
+        final List<String> removedIds = new ArrayList<>();
+
+        for (final String documentId : previousHashes.keySet()) {
+            if (!currentHashes.containsKey(documentId) && !pendingHashes.containsKey(documentId))
+                removedIds.add(documentId);
+        }
+
+        Collections.sort(removedIds);
+        return removedIds;
+    }
+
+
+    /**
+     * Loads the hashes of the last complete harvest from the file,
+     * and forgets all hashes of the current harvest.
+     * If the file does not exist or cannot be read, all documents are considered new.
+     */
+    public synchronized void load()
+    {
+        previousHashes.clear();
+        currentHashes.clear();
+        pendingHashes.clear();
+
+        try {
+            CacheFileUtils.read(hashFile, this::readFrom);
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.LOAD_FAILED_ERROR, hashFile, e.getMessage()));
+            previousHashes.clear();
+        }
+    }
+
+
+    /**
+     * Finishes the current harvest. If it was complete, the identifiers of removed
+     * documents are written to a file and the hashes of the current harvest are saved,
+     * except for those of documents that were not loaded, which are considered added
+     * by the next harvest. Otherwise, nothing is saved, because the documents
+     * that were not harvested would be considered removed.
+     *
+     * @param isComplete true if all documents of the current harvest were registered
+     */
+    public synchronized void save(final boolean isComplete)
+    {
+        if (!isComplete) {
+            currentHashes.clear();
+            pendingHashes.clear();
+            return;
+        }
+
+        final List<String> removedIds = getRemovedIds();
+        pendingHashes.clear();
+
+        try {
+            CacheFileUtils.writeAtomically(hashFile, this::writeTo);
+            Files.write(removedIdsFile.toPath(), removedIds, StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.SAVE_FAILED_ERROR, hashFile, e.getMessage()));
+            return;
+        }
+
+        if (!removedIds.isEmpty())
+            LOGGER.info(String.format(ImrCacheConstants.REMOVED_DOCUMENTS_INFO, removedIds.size(), removedIdsFile));
+
+        previousHashes.clear();
+        previousHashes.putAll(currentHashes);
+        currentHashes.clear();
+    }
+
+
+    /**
+     * Reads the hashes of the last complete harvest from a binary stream.
+     *
+     * @param in the stream from which the hashes are read
+     *
+     * @return this store
+     *
+     * @throws IOException if the stream could not be read or has an unexpected version
+     */
+    private DocumentHashStore readFrom(final DataInputStream in) throws IOException
+    {
+        final int version = in.readInt();
+
+        if (version != FILE_VERSION)
+            throw new IOException(String.format(ImrCacheConstants.UNSUPPORTED_VERSION_ERROR, version));
+
+        final int documentCount = in.readInt();
+
+        for (int i = 0; i < documentCount; i++)
+            previousHashes.put(in.readUTF(), in.readUTF());
+
+        return this;
+    }
+
+
+    /**
+     * Writes the hashes of the current harvest to a binary stream.
+     *
+     * @param out the stream to which the hashes are written
+     *
+     * @throws IOException if the stream could not be written
+     */
+    private void writeTo(final DataOutputStream out) throws IOException
+    {
+        out.writeInt(FILE_VERSION);
+        out.writeInt(currentHashes.size());
+
+        for (final Map.Entry<String, String> entry : currentHashes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+
+/**
+ * This class periodically saves how far a harvest has progressed, in order to
+ * resume an interrupted harvest after a crash or a redeployment. The progress
+ * consists of the number of loaded documents, and the key of the source element
+ * of the last loaded document. Since documents are requested ahead of the loader,
+ * the keys of requested source elements are queued until their documents
+ * are loaded. A checkpoint with an interval of 0 is neither saved nor loaded.
+ *
+ * @author Robin Weiss
+ */
+public class HarvestCheckpoint
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(HarvestCheckpoint.class);
+    private static final int FILE_VERSION = 1;
+
+    private final File checkpointFile;
+    private final long intervalMillis;
+    private final Queue<String> requestedKeys;
+    private int loadedCount;
+    private String lastLoadedKey;
+    private boolean isLoading;
+    private long lastSaveMillis;
+
+
+    /**
+     * Constructor that creates an empty checkpoint.
+     *
+     * @param checkpointFile the file to which the checkpoint is saved
+     * @param intervalMillis the minimum number of milliseconds between two saves,
+     *                       or 0 if the checkpoint is not to be saved at all
+     */
+    public HarvestCheckpoint(final File checkpointFile, final long intervalMillis)
+    {
+        this.checkpointFile = checkpointFile;
+        this.intervalMillis = intervalMillis;
+        this.requestedKeys = new ArrayDeque<>();
+    }
+
+
+    /**
+     * Returns true if the checkpoint is saved periodically.
+     *
+     * @return true if the checkpoint is saved
+     */
+    public boolean isEnabled()
+    {
+        return intervalMillis > 0;
+    }
+
+
+    /**
+     * Returns the number of documents that were loaded.
+     *
+     * @return the number of loaded documents
+     */
+    public synchronized int getLoadedCount()
+    {
+        return loadedCount;
+    }
+
+
+    /**
+     * Returns the key of the source element of the last loaded document.
+     *
+     * @return the key of the last loaded source element, or null if no document was loaded
+     */
+    public synchronized String getLastLoadedKey()
+    {
+        return lastLoadedKey;
+    }
+
+
+    /**
+     * Returns true if no document was loaded, which is the case if
+     * there is nothing to resume.
+     *
+     * @return true if no document was loaded
+     */
+    public synchronized boolean isEmpty()
+    {
+        return lastLoadedKey == null;
+    }
+
+
+    /**
+     * Wraps the {@linkplain Iterator} of source elements of a harvest, in order to
+     * remember the keys of source elements in the order in which they are requested.
+     *
+     * @param sourceElements the source elements of which documents are extracted
+     * @param keyFunction retrieves the key of a source element
+     * @param <S> the type of the source elements
+     *
+     * @return an iterator that remembers the keys of requested source elements
+     */
+    public <S> Iterator<S> trackRequests(final Iterator<S> sourceElements, final Function<S, String> keyFunction)
+    {
+        return new Iterator<S>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return sourceElements.hasNext();
+            }
+
+
+            @Override
+            public S next()
+            {
+                final S element = sourceElements.next();
+
+                synchronized (HarvestCheckpoint.this) {
+                    requestedKeys.add(keyFunction.apply(element));
+                }
+
+                return element;
+            }
+        };
+    }
+
+
+    /**
+     * Wraps the {@linkplain Iterator} of extracted documents, which returns one
+     * document per requested source element, in order to mark the previous document
+     * as loaded whenever the loader requests the next document.
+     *
+     * @param extractedDocuments the extracted documents
+     * @param <T> the type of the extracted documents
+     *
+     * @return an iterator that marks documents as loaded
+     */
+    public <T> Iterator<T> trackLoading(final Iterator<T> extractedDocuments)
+    {
+        return new Iterator<T>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                markLoaded();
+                return extractedDocuments.hasNext();
+            }
+
+
+            @Override
+            public T next()
+            {
+                markLoaded();
+
+                final T document = extractedDocuments.next();
+
+                synchronized (HarvestCheckpoint.this) {
+                    isLoading = true;
+                }
+
+                return document;
+            }
+        };
+    }
+
+
+    /**
+     * Marks the document that was returned last as loaded, and saves
+     * the checkpoint if the interval has passed since the last save.
+     */
+    private synchronized void markLoaded()
+    {
+        if (!isLoading)
+            return;
+
+        isLoading = false;
+        loadedCount++;
+        lastLoadedKey = requestedKeys.poll();
+
+        if (isEnabled() && System.currentTimeMillis() - lastSaveMillis >= intervalMillis)
+            save();
+    }
+
+
+    /**
+     * Forgets the progress, in order to harvest from the beginning.
+     */
+    public synchronized void reset()
+    {
+        requestedKeys.clear();
+        loadedCount = 0;
+        lastLoadedKey = null;
+        isLoading = false;
+    }
+
+
+    /**
+     * Loads the progress of an interrupted harvest from the file, if the checkpoint is enabled.
+     * If the file does not exist or cannot be read, the harvest starts from the beginning.
+     */
+    public synchronized void load()
+    {
+        reset();
+
+        if (!isEnabled())
+            return;
+
+        try {
+            CacheFileUtils.read(checkpointFile, this::readFrom);
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.LOAD_FAILED_ERROR, checkpointFile, e.getMessage()));
+            reset();
+        }
+    }
+
+
+    /**
+     * Saves the progress atomically to the file, if the checkpoint is enabled
+     * and at least one document was loaded.
+     */
+    public synchronized void save()
+    {
+        if (!isEnabled() || lastLoadedKey == null)
+            return;
+
+        try {
+            CacheFileUtils.writeAtomically(checkpointFile, this::writeTo);
+            lastSaveMillis = System.currentTimeMillis();
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.SAVE_FAILED_ERROR, checkpointFile, e.getMessage()));
+        }
+    }
+
+
+    /**
+     * Deletes the file of the checkpoint, because the harvest is complete.
+     */
+    public synchronized void delete()
+    {
+        reset();
+
+        if (checkpointFile.exists() && !checkpointFile.delete())
+            LOGGER.warn(String.format(ImrCacheConstants.DELETE_FAILED_ERROR, checkpointFile));
+    }
+
+
+    /**
+     * Reads the progress from a binary stream.
+     *
+     * @param in the stream from which the progress is read
+     *
+     * @return this checkpoint
+     *
+     * @throws IOException if the stream could not be read or has an unexpected version
+     */
+    private HarvestCheckpoint readFrom(final DataInputStream in) throws IOException
+    {
+        final int version = in.readInt();
+
+        if (version != FILE_VERSION)
+            throw new IOException(String.format(ImrCacheConstants.UNSUPPORTED_VERSION_ERROR, version));
+
+        loadedCount = in.readInt();
+        lastLoadedKey = in.readUTF();
+        return this;
+    }
+
+
+    /**
+     * Writes the progress to a binary stream.
+     *
+     * @param out the stream to which the progress is written
+     *
+     * @throws IOException if the stream could not be written
+     */
+    private void writeTo(final DataOutputStream out) throws IOException
+    {
+        out.writeInt(FILE_VERSION);
+        out.writeInt(loadedCount);
+        out.writeUTF(lastLoadedKey);
+    }
+}
@@ -0,0 +1,276 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+import de.gerdiproject.harvest.imr.utils.HashUtils;
+
+/**
+ * This class persists HTTP responses on disk, in order to serve them when
+ * IMR confirms that they have not changed. The cache size is limited, and
+ * responses that were least recently used are evicted first.
+ *
+ * @author Robin Weiss
+ */
+public class HttpResponseCache
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpResponseCache.class);
+    private static final int FILE_VERSION = 1;
+    private static final String NO_HEADER = "";
+
+    private final File cacheFolder;
+    private final long maxBytes;
+    private final Map<String, Long> entrySizes;
+    private long totalBytes;
+    private boolean isLoaded;
+
+
+    /**
+     * Constructor that sets the location and size limit of the cache.
+     *
+     * @param cacheFolder the folder in which cached responses are stored
+     * @param maxBytes the maximum number of bytes of all stored cache files
+     */
+    public HttpResponseCache(final File cacheFolder, final long maxBytes)
+    {
+        this.cacheFolder = cacheFolder;
+        this.maxBytes = maxBytes;
+        this.entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+
+    /**
+     * Registers all cache files that were stored previously, ordered from
+     * least recently to most recently used. Does nothing if the cache
+     * was loaded already.
+     */
+    public synchronized void load()
+    {
+        if (isLoaded)
+            return;
+
+        final File[] cacheFiles = cacheFolder.listFiles((final File dir, final String name) -> name.endsWith(ImrCacheConstants.HTTP_CACHE_FILE_EXTENSION));
+
+        if (cacheFiles != null) {
+            Arrays.sort(cacheFiles, Comparator.comparingLong(File::lastModified));
+
+            for (final File cacheFile : cacheFiles) {
+                final String key = cacheFile.getName().substring(0, cacheFile.getName().length() - ImrCacheConstants.HTTP_CACHE_FILE_EXTENSION.length());
+                entrySizes.put(key, cacheFile.length());
+                totalBytes += cacheFile.length();
+            }
+        }
+
+        isLoaded = true;
+        evict();
+    }
+
+
+    /**
+     * Retrieves a cached response of a URL.
+     *
+     * @param url the requested URL
+     *
+     * @return the cached response, or null if no valid response is cached
+     */
+    public CachedHttpResponse get(final String url)
+    {
+        final String key = HashUtils.sha256(url);
+        final File cacheFile = getCacheFile(key);
+
+        synchronized (this) {
+            if (entrySizes.get(key) == null)
+                return null;
+        }
+
+        CachedHttpResponse response;
+
+        try {
+            response = CacheFileUtils.read(cacheFile, this::readResponse);
+        } catch (final IOException e) {
+            response = null;
+        }
+
+        // discard responses of hash collisions and corrupted files
+        if (response == null
+            || !url.equals(response.getUrl())
+            || !HashUtils.sha256(response.getBody()).equals(response.getContentHash())) {
+            remove(key);
+            return null;
+        }
+
+        // mark the file as recently used, in case the cache is reloaded
+        if (!cacheFile.setLastModified(System.currentTimeMillis()))
+            LOGGER.debug(String.format(ImrCacheConstants.TOUCH_FAILED_ERROR, cacheFile));
+
+        return response;
+    }
+
+
+    /**
+     * Stores a response, evicting the least recently used responses
+     * if the cache size limit is exceeded.
+     *
+     * @param response the response that is to be stored
+     */
+    public void put(final CachedHttpResponse response)
+    {
+        final String key = HashUtils.sha256(response.getUrl());
+        final File cacheFile = getCacheFile(key);
+
+        try {
+            CacheFileUtils.writeAtomically(cacheFile, (final DataOutputStream out) -> writeResponse(response, out));
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.SAVE_FAILED_ERROR, cacheFile, e.getMessage()));
+            return;
+        }
+
+        synchronized (this) {
+            final Long oldSize = entrySizes.put(key, cacheFile.length());
+
+            if (oldSize != null)
+                totalBytes -= oldSize;
+
+            totalBytes += cacheFile.length();
+            evict();
+        }
+    }
+
+
+    /**
+     * Removes the least recently used responses until the cache size
+     * is within its limit.
+     */
+    private synchronized void evict()
+    {
+        final Iterator<Map.Entry<String, Long>> entryIter = entrySizes.entrySet().iterator();
+
+        while (totalBytes > maxBytes && entryIter.hasNext()) {
+            final Map.Entry<String, Long> eldestEntry = entryIter.next();
+            entryIter.remove();
+            totalBytes -= eldestEntry.getValue();
+            deleteCacheFile(eldestEntry.getKey());
+        }
+    }
+
+
+    /**
+     * Removes a single response from the cache.
+     *
+     * @param key the hashed URL of the response
+     */
+    private synchronized void remove(final String key)
+    {
+        final Long size = entrySizes.remove(key);
+
+        if (size != null) {
+            totalBytes -= size;
+            deleteCacheFile(key);
+        }
+    }
+
+
+    /**
+     * Deletes the file of a cached response.
+     *
+     * @param key the hashed URL of the response
+     */
+    private void deleteCacheFile(final String key)
+    {
+        final File cacheFile = getCacheFile(key);
+
+        if (cacheFile.exists() && !cacheFile.delete())
+            LOGGER.warn(String.format(ImrCacheConstants.DELETE_FAILED_ERROR, cacheFile));
+    }
+
+
+    /**
+     * Returns the file of a cached response.
+     *
+     * @param key the hashed URL of the response
+     *
+     * @return the file of the cached response
+     */
+    private File getCacheFile(final String key)
+    {
+        return new File(cacheFolder, key + ImrCacheConstants.HTTP_CACHE_FILE_EXTENSION);
+    }
+
+
+    /**
+     * Reads a cached response from a binary stream.
+     *
+     * @param in the stream from which the response is read
+     *
+     * @return the read response
+     *
+     * @throws IOException if the stream could not be read or has an unexpected version
+     */
+    private CachedHttpResponse readResponse(final DataInputStream in) throws IOException
+    {
+        final int version = in.readInt();
+
+        if (version != FILE_VERSION)
+            throw new IOException(String.format(ImrCacheConstants.UNSUPPORTED_VERSION_ERROR, version));
+
+        final String url = in.readUTF();
+        final String eTag = in.readUTF();
+        final String lastModified = in.readUTF();
+        final String contentHash = in.readUTF();
+        final byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+
+        return new CachedHttpResponse(
+                   url,
+                   eTag.isEmpty() ? null : eTag,
+                   lastModified.isEmpty() ? null : lastModified,
+                   contentHash,
+                   body);
+    }
+
+
+    /**
+     * Writes a cached response to a binary stream.
+     *
+     * @param response the response that is to be written
+     * @param out the stream to which the response is written
+     *
+     * @throws IOException if the stream could not be written
+     */
+    private void writeResponse(final CachedHttpResponse response, final DataOutputStream out) throws IOException
+    {
+        out.writeInt(FILE_VERSION);
+        out.writeUTF(response.getUrl());
+        out.writeUTF(response.getETag() == null ? NO_HEADER : response.getETag());
+        out.writeUTF(response.getLastModified() == null ? NO_HEADER : response.getLastModified());
+        out.writeUTF(response.getContentHash());
+        out.writeInt(response.getBody().length);
+        out.write(response.getBody());
+    }
+}
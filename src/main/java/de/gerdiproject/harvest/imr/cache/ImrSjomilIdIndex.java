@@ -0,0 +1,317 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+
+/**
+ * This class keeps track of which IMR SJØMIL dataset IDs exist, which are missing,
+ * and when each ID was checked last. It is persisted as a compact binary file,
+ * in order to prevent subsequent harvests from probing the whole ID range again.
+ *
+ * @author Robin Weiss
+ */
+public class ImrSjomilIdIndex
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImrSjomilIdIndex.class);
+    private static final int FILE_VERSION = 1;
+    private static final int NEVER_CHECKED = 0;
+
+    private final File indexFile;
+    private final BitSet existingIds;
+    private int[] lastCheckMinutes;
+    private boolean hasChanges;
+
+
+    /**
+     * Constructor that creates an empty index.
+     *
+     * @param indexFile the file to which the index is saved
+     */
+    public ImrSjomilIdIndex(final File indexFile)
+    {
+        this.indexFile = indexFile;
+        this.existingIds = new BitSet();
+        this.lastCheckMinutes = new int[0];
+    }
+
+
+    /**
+     * Marks a dataset ID as existing.
+     *
+     * @param id the dataset ID
+     * @param timestamp the time of the check in milliseconds since the epoch
+     */
+    public synchronized void markExisting(final int id, final long timestamp)
+    {
+        existingIds.set(id);
+        setLastCheck(id, timestamp);
+    }
+
+
+    /**
+     * Marks a dataset ID as missing.
+     *
+     * @param id the dataset ID
+     * @param timestamp the time of the check in milliseconds since the epoch
+     */
+    public synchronized void markMissing(final int id, final long timestamp)
+    {
+        existingIds.clear(id);
+        setLastCheck(id, timestamp);
+    }
+
+
+    /**
+     * Checks if a dataset ID is known to exist.
+     *
+     * @param id the dataset ID
+     *
+     * @return true if the ID existed when it was checked last
+     */
+    public synchronized boolean isExisting(final int id)
+    {
+        return existingIds.get(id);
+    }
+
+
+    /**
+     * Checks if a dataset ID is known to be missing.
+     *
+     * @param id the dataset ID
+     *
+     * @return true if the ID was checked and did not exist
+     */
+    public synchronized boolean isMissing(final int id)
+    {
+        return !existingIds.get(id) && getLastCheckMinutes(id) != NEVER_CHECKED;
+    }
+
+
+    /**
+     * Checks if no dataset ID was checked yet.
+     *
+     * @return true if the index contains no entries
+     */
+    public synchronized boolean isEmpty()
+    {
+        return lastCheckMinutes.length == 0;
+    }
+
+
+    /**
+     * Returns the number of dataset IDs that are known to exist.
+     *
+     * @return the number of existing datasets
+     */
+    public synchronized int getExistingCount()
+    {
+        return existingIds.cardinality();
+    }
+
+
+    /**
+     * Returns the highest dataset ID that is known to exist.
+     *
+     * @return the highest existing ID, or -1 if no ID is known to exist
+     */
+    public synchronized int getHighestExistingId()
+    {
+        return existingIds.length() - 1;
+    }
+
+
+    /**
+     * Assembles all dataset IDs within a range that are to be requested during
+     * a harvest. IDs that are known to exist come first, followed by IDs that
+     * were never checked or that were missing when they were checked last,
+     * provided that the last check is older than a specified interval.
+     *
+     * @param idBound the exclusive upper bound of the ID range
+     * @param reprobeIntervalMillis the time in milliseconds after which missing IDs are checked again
+     * @param now the current time in milliseconds since the epoch
+     *
+     * @return an array of dataset IDs
+     */
+    public synchronized int[] createSchedule(final int idBound, final long reprobeIntervalMillis, final long now)
+    {
+        final int reprobeBefore = toMinutes(now - reprobeIntervalMillis);
+        final int[] schedule = new int[idBound];
+        int scheduleSize = 0;
+
+        // request existing IDs first
+        for (int id = existingIds.nextSetBit(0); id >= 0 && id < idBound; id = existingIds.nextSetBit(id + 1))
+            schedule[scheduleSize++] = id;
+
+        // check unknown IDs and missing IDs that were not checked recently
+        for (int id = existingIds.nextClearBit(0); id < idBound; id = existingIds.nextClearBit(id + 1)) {
+            final int lastCheck = getLastCheckMinutes(id);
+
+            if (lastCheck == NEVER_CHECKED || lastCheck <= reprobeBefore)
+                schedule[scheduleSize++] = id;
+        }
+
+        return Arrays.copyOf(schedule, scheduleSize);
+    }
+
+
+    /**
+     * Loads the index from its file, replacing all entries.
+     * If the file does not exist or cannot be read, the index is cleared.
+     */
+    public synchronized void load()
+    {
+        existingIds.clear();
+        lastCheckMinutes = new int[0];
+        hasChanges = false;
+
+        try {
+            CacheFileUtils.read(indexFile, this::readFrom);
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.LOAD_FAILED_ERROR, indexFile, e.getMessage()));
+            existingIds.clear();
+            lastCheckMinutes = new int[0];
+        }
+    }
+
+
+    /**
+     * Saves the index to its file, if it was changed since it was loaded or saved last.
+     */
+    public synchronized void save()
+    {
+        if (!hasChanges)
+            return;
+
+        try {
+            CacheFileUtils.writeAtomically(indexFile, this::writeTo);
+            hasChanges = false;
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.SAVE_FAILED_ERROR, indexFile, e.getMessage()));
+        }
+    }
+
+
+    /**
+     * Reads the index from a binary stream.
+     *
+     * @param in the stream from which the index is read
+     *
+     * @return this index
+     *
+     * @throws IOException if the stream could not be read or has an unexpected version
+     */
+    private ImrSjomilIdIndex readFrom(final DataInputStream in) throws IOException
+    {
+        final int version = in.readInt();
+
+        if (version != FILE_VERSION)
+            throw new IOException(String.format(ImrCacheConstants.UNSUPPORTED_VERSION_ERROR, version));
+
+        final long[] existingWords = new long[in.readInt()];
+
+        for (int i = 0; i < existingWords.length; i++)
+            existingWords[i] = in.readLong();
+
+        final int[] lastChecks = new int[in.readInt()];
+
+        for (int i = 0; i < lastChecks.length; i++)
+            lastChecks[i] = in.readInt();
+
+        existingIds.or(BitSet.valueOf(existingWords));
+        lastCheckMinutes = lastChecks;
+        return this;
+    }
+
+
+    /**
+     * Writes the index to a binary stream.
+     *
+     * @param out the stream to which the index is written
+     *
+     * @throws IOException if the stream could not be written
+     */
+    private void writeTo(final DataOutputStream out) throws IOException
+    {
+        out.writeInt(FILE_VERSION);
+
+        final long[] existingWords = existingIds.toLongArray();
+        out.writeInt(existingWords.length);
+
+        for (final long word : existingWords)
+            out.writeLong(word);
+
+        out.writeInt(lastCheckMinutes.length);
+
+        for (final int lastCheck : lastCheckMinutes)
+            out.writeInt(lastCheck);
+    }
+
+
+    /**
+     * Sets the time of the last check of a dataset ID.
+     *
+     * @param id the dataset ID
+     * @param timestamp the time of the check in milliseconds since the epoch
+     */
+    private void setLastCheck(final int id, final long timestamp)
+    {
+        if (id >= lastCheckMinutes.length)
+            lastCheckMinutes = Arrays.copyOf(lastCheckMinutes, Math.max(id + 1, lastCheckMinutes.length * 2));
+
+        lastCheckMinutes[id] = toMinutes(timestamp);
+        hasChanges = true;
+    }
+
+
+    /**
+     * Returns the time of the last check of a dataset ID.
+     *
+     * @param id the dataset ID
+     *
+     * @return the minutes since the epoch, or {@linkplain #NEVER_CHECKED}
+     */
+    private int getLastCheckMinutes(final int id)
+    {
+        return id < lastCheckMinutes.length
+               ? lastCheckMinutes[id]
+               : NEVER_CHECKED;
+    }
+
+
+    /**
+     * Converts a timestamp to minutes since the epoch.
+     *
+     * @param timestamp the time in milliseconds since the epoch
+     *
+     * @return the minutes since the epoch
+     */
+    private static int toMinutes(final long timestamp)
+    {
+        return (int) TimeUnit.MILLISECONDS.toMinutes(timestamp);
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+
+/**
+ * This class represents an {@linkplain Iterator} that iterates through all
+ * scheduled SJØMIL dataset IDs. Afterwards, it continues with IDs past the schedule
+ * until a number of consecutive IDs past the highest existing ID were requested,
+ * skipping IDs of other shards. Since the schedule is created by an
+ * {@linkplain ImrSjomilIdIndex}, IDs that are known to exist come first.
+ * The requests of returned IDs are to be marked as finished, because the end
+ * of the iteration is only decided when no requests are pending.
+ *
+ * @author Robin Weiss
+ */
+public class ImrSjomilIdIterator implements Iterator<Integer>
+{
+    private static final String INTERRUPTED_ERROR = "Interrupted while waiting for pending dataset requests!";
+
+    private final ImrSjomilIdIndex idIndex;
+    private final int[] idSchedule;
+    private final int maxConsecutiveMissingIds;
+    private final IntPredicate shardFilter;
+    private int scheduleIndex; // NOPMD the index starts explicitly with 0
+    private int nextUnscheduledId;
+    private int pendingIdCount;
+
+
+    /**
+     * Constructor that sets the schedule and the bounds of the iteration.
+     *
+     * @param idIndex the index that was used to create the schedule, and in which
+     *                 the requested IDs are marked as existing or missing
+     * @param idSchedule the IDs that are to be requested first
+     * @param idScheduleBound the exclusive upper bound of the scheduled IDs
+     * @param maxConsecutiveMissingIds the number of IDs past the highest
+     *                                 existing ID that are requested
+     * @param shardFilter tests if an ID belongs to the shard of this harvester instance
+     */
+    public ImrSjomilIdIterator(final ImrSjomilIdIndex idIndex, final int[] idSchedule, final int idScheduleBound, final int maxConsecutiveMissingIds, final IntPredicate shardFilter)
+    {
+        this.idIndex = idIndex;
+        this.idSchedule = idSchedule;
+        this.nextUnscheduledId = idScheduleBound;
+        this.maxConsecutiveMissingIds = maxConsecutiveMissingIds;
+        this.shardFilter = shardFilter;
+    }
+
+
+    /**
+     * Skips all IDs up to and including a specified ID, in order to
+     * resume an interrupted harvest. A missing ID that was requested
+     * by the interrupted harvest is not scheduled again, if it was checked recently.
+     * Since missing IDs are requested after all existing IDs, the iteration
+     * then continues with the next ID that is not known to exist.
+     *
+     * @param id the ID of the last loaded document
+     *
+     * @return true if the iteration can continue after the ID
+     */
+    public synchronized boolean skipPast(final int id)
+    {
+        if (!shardFilter.test(id))
+            return false;
+
+        for (int i = 0; i < idSchedule.length; i++) {
+            if (idSchedule[i] == id) {
+                scheduleIndex = i + 1;
+                return true;
+            }
+        }
+
+        // the ID may have been requested after the schedule
+        if (id >= nextUnscheduledId) {
+            scheduleIndex = idSchedule.length;
+            nextUnscheduledId = id + 1;
+            return true;
+        }
+
+        // an existing ID within the schedule bound is always scheduled
+        if (idIndex.isExisting(id))
+            return false;
+
+        scheduleIndex = idSchedule.length;
+
+        for (int i = 0; i < idSchedule.length; i++) {
+            if (idSchedule[i] > id && !idIndex.isExisting(idSchedule[i])) {
+                scheduleIndex = i;
+                break;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Marks the request of a returned ID as finished, after the ID was marked
+     * as existing or missing in the index.
+     */
+    public synchronized void markFinished()
+    {
+        pendingIdCount--;
+        notifyAll();
+    }
+
+
+    /**
+     * Checks if there are more IDs to request. After the schedule, the IDs past
+     * the highest existing ID depend on the results of the pending requests,
+     * which is why this method waits for them before ending the iteration.
+     *
+     * @throws IllegalStateException if the thread was interrupted while waiting
+     */
+    @Override
+    public synchronized boolean hasNext()
+    {
+        if (scheduleIndex < idSchedule.length)
+            return true;
+
+        while (true) {
+            final int idBound = idIndex.getHighestExistingId() + maxConsecutiveMissingIds;
+
+            while (nextUnscheduledId <= idBound && !shardFilter.test(nextUnscheduledId))
+                nextUnscheduledId++;
+
+            if (nextUnscheduledId <= idBound)
+                return true;
+
+            if (pendingIdCount <= 0)
+                return false;
+
+            try {
+                wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(INTERRUPTED_ERROR, e);
+            }
+        }
+    }
+
+
+    @Override
+    public synchronized Integer next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        pendingIdCount++;
+
+        return scheduleIndex < idSchedule.length
+               ? idSchedule[scheduleIndex++]
+               : nextUnscheduledId++;
+    }
+}
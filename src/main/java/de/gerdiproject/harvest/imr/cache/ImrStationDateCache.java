@@ -0,0 +1,233 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+
+/**
+ * This class stores the measurement dates of IMR stations per year. It is meant
+ * for years that have passed, because their dates never change. Each date is stored
+ * as a day of the year, and the cache is persisted as a compact binary file,
+ * in order to prevent subsequent harvests from requesting the dates again.
+ *
+ * @author Robin Weiss
+ */
+public class ImrStationDateCache
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImrStationDateCache.class);
+    private static final int FILE_VERSION = 1;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy", Locale.ENGLISH);
+
+    private final File cacheFile;
+    private final Map<String, Map<Integer, short[]>> daysOfYearPerStation;
+    private boolean hasChanges;
+
+
+    /**
+     * Constructor that creates an empty cache.
+     *
+     * @param cacheFile the file to which the cache is saved
+     */
+    public ImrStationDateCache(final File cacheFile)
+    {
+        this.cacheFile = cacheFile;
+        this.daysOfYearPerStation = new HashMap<>();
+    }
+
+
+    /**
+     * Retrieves the cached measurement dates of a station in a specified year.
+     *
+     * @param stationId the identifier of the station
+     * @param year the year of the measurements
+     *
+     * @return a list of dd.mm.yyyy dates in their original order,
+     *          or null if the dates of the year are not cached
+     */
+    public List<String> getDates(final String stationId, final int year)
+    {
+        final short[] daysOfYear;
+
+        synchronized (this) {
+            final Map<Integer, short[]> daysOfYearPerYear = daysOfYearPerStation.get(stationId);
+            daysOfYear = daysOfYearPerYear == null ? null : daysOfYearPerYear.get(year);
+        }
+
+        if (daysOfYear == null)
+            return null;
+
+        final List<String> dates = new ArrayList<>(daysOfYear.length);
+
+        for (final short dayOfYear : daysOfYear)
+            dates.add(LocalDate.ofYearDay(year, dayOfYear).format(DATE_FORMAT));
+
+        return dates;
+    }
+
+
+    /**
+     * Caches the measurement dates of a station in a specified year.
+     * If any date cannot be parsed or does not belong to the year,
+     * nothing is cached.
+     *
+     * @param stationId the identifier of the station
+     * @param year the year of the measurements
+     * @param dates a list of dd.mm.yyyy dates
+     */
+    public void putDates(final String stationId, final int year, final List<String> dates)
+    {
+        final short[] daysOfYear = new short[dates.size()];
+
+        try {
+            for (int i = 0; i < daysOfYear.length; i++) {
+                final LocalDate date = LocalDate.parse(dates.get(i), DATE_FORMAT);
+
+                if (date.getYear() != year) {
+                    LOGGER.debug(String.format(ImrCacheConstants.UNCACHEABLE_DATES_ERROR, stationId, year, dates.get(i)));
+                    return;
+                }
+
+                daysOfYear[i] = (short) date.getDayOfYear();
+            }
+        } catch (final DateTimeException e) {
+            LOGGER.debug(String.format(ImrCacheConstants.UNCACHEABLE_DATES_ERROR, stationId, year, e.getMessage()));
+            return;
+        }
+
+        synchronized (this) {
+            daysOfYearPerStation.computeIfAbsent(stationId, (final String id) -> new HashMap<>()).put(year, daysOfYear);
+            hasChanges = true;
+        }
+    }
+
+
+    /**
+     * Loads the cache from its file, replacing all entries.
+     * If the file does not exist or cannot be read, the cache is cleared.
+     */
+    public synchronized void load()
+    {
+        daysOfYearPerStation.clear();
+        hasChanges = false;
+
+        try {
+            CacheFileUtils.read(cacheFile, this::readFrom);
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.LOAD_FAILED_ERROR, cacheFile, e.getMessage()));
+            daysOfYearPerStation.clear();
+        }
+    }
+
+
+    /**
+     * Saves the cache to its file, if it was changed since it was loaded or saved last.
+     */
+    public synchronized void save()
+    {
+        if (!hasChanges)
+            return;
+
+        try {
+            CacheFileUtils.writeAtomically(cacheFile, this::writeTo);
+            hasChanges = false;
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrCacheConstants.SAVE_FAILED_ERROR, cacheFile, e.getMessage()));
+        }
+    }
+
+
+    /**
+     * Reads the cache from a binary stream.
+     *
+     * @param in the stream from which the cache is read
+     *
+     * @return this cache
+     *
+     * @throws IOException if the stream could not be read or has an unexpected version
+     */
+    private ImrStationDateCache readFrom(final DataInputStream in) throws IOException
+    {
+        final int version = in.readInt();
+
+        if (version != FILE_VERSION)
+            throw new IOException(String.format(ImrCacheConstants.UNSUPPORTED_VERSION_ERROR, version));
+
+        final int stationCount = in.readInt();
+
+        for (int i = 0; i < stationCount; i++) {
+            final String stationId = in.readUTF();
+            final int yearCount = in.readInt();
+            final Map<Integer, short[]> daysOfYearPerYear = new HashMap<>(yearCount * 2);
+
+            for (int j = 0; j < yearCount; j++) {
+                final int year = in.readInt();
+                final short[] daysOfYear = new short[in.readInt()];
+
+                for (int k = 0; k < daysOfYear.length; k++)
+                    daysOfYear[k] = in.readShort();
+
+                daysOfYearPerYear.put(year, daysOfYear);
+            }
+
+            daysOfYearPerStation.put(stationId, daysOfYearPerYear);
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Writes the cache to a binary stream.
+     *
+     * @param out the stream to which the cache is written
+     *
+     * @throws IOException if the stream could not be written
+     */
+    private void writeTo(final DataOutputStream out) throws IOException
+    {
+        out.writeInt(FILE_VERSION);
+        out.writeInt(daysOfYearPerStation.size());
+
+        for (final Map.Entry<String, Map<Integer, short[]>> stationEntry : daysOfYearPerStation.entrySet()) {
+            out.writeUTF(stationEntry.getKey());
+            out.writeInt(stationEntry.getValue().size());
+
+            for (final Map.Entry<Integer, short[]> yearEntry : stationEntry.getValue().entrySet()) {
+                out.writeInt(yearEntry.getKey());
+                out.writeInt(yearEntry.getValue().length);
+
+                for (final short dayOfYear : yearEntry.getValue())
+                    out.writeShort(dayOfYear);
+            }
+        }
+    }
+}
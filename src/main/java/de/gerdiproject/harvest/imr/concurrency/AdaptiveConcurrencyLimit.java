@@ -0,0 +1,299 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+import de.gerdiproject.harvest.imr.metrics.ConcurrencyLimitChange;
+import de.gerdiproject.harvest.imr.metrics.ConcurrencyLimitSnapshot;
+import de.gerdiproject.harvest.imr.metrics.LimitChangeReason;
+
+/**
+ * This class adapts the maximum number of concurrent requests to the latency
+ * and errors of IMR, using additive increase and multiplicative decrease.
+ * The latency of each request is compared to the baseline latency of its
+ * endpoint, which is the lowest latency that was measured recently. While the
+ * smoothed ratio of latencies to their baselines stays flat and the limit is
+ * used, the limit is raised by one per window of requests. If a request fails,
+ * the limit is halved, and if the latency ratio rises above the tolerance,
+ * the limit is lowered proportionally to the rise. Since requests that were
+ * sent before a decrease still suffer from the previous load, the limit is not
+ * lowered again until a window of requests was completed after the decrease.
+ *
+ * @author Robin Weiss
+ */
+public class AdaptiveConcurrencyLimit implements AdaptiveConcurrencyLimitMXBean
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveConcurrencyLimit.class);
+    private static final AdaptiveConcurrencyLimit SHARED_INSTANCE = createSharedInstance();
+
+    private final Map<String, Double> baselineLatencyNanos = new HashMap<>();
+    private final Deque<ConcurrencyLimitChange> history = new ArrayDeque<>();
+
+    private int maxLimit;
+    private double limit;
+    private double smoothedLatencyRatio = 1.0;
+    private long sampleCount;
+    private long nextDecreasableSample;
+    private long increaseCount;
+    private long decreaseCount;
+
+
+    /**
+     * Constructor that sets the upper bound of the limit.
+     * The limit starts at a few concurrent requests.
+     *
+     * @param maxLimit the highest value that the limit can be raised to
+     */
+    public AdaptiveConcurrencyLimit(final int maxLimit)
+    {
+        this.maxLimit = Math.max(ImrHttpConstants.ADAPTIVE_MIN_LIMIT, maxLimit);
+        this.limit = Math.min(ImrHttpConstants.ADAPTIVE_INITIAL_LIMIT, this.maxLimit);
+    }
+
+
+    /**
+     * Returns the limit that is shared by all IMR ETLs.
+     *
+     * @return the limit that is shared by all IMR ETLs
+     */
+    public static AdaptiveConcurrencyLimit getSharedInstance()
+    {
+        return SHARED_INSTANCE;
+    }
+
+
+    /**
+     * Changes the highest value that the limit can be raised to,
+     * lowering the limit if it exceeds the new bound.
+     *
+     * @param maxLimit the highest value that the limit can be raised to
+     */
+    public synchronized void setMaxLimit(final int maxLimit)
+    {
+        this.maxLimit = Math.max(ImrHttpConstants.ADAPTIVE_MIN_LIMIT, maxLimit);
+
+        if (limit > this.maxLimit) {
+            limit = this.maxLimit;
+            addHistory(LimitChangeReason.CONFIGURATION);
+        }
+    }
+
+
+    /**
+     * Adapts the limit to a completed request.
+     *
+     * @param endpoint the name of the endpoint of the request
+     * @param latencyNanos the latency of the request in nanoseconds
+     * @param isSuccessful false if the request failed or timed out
+     * @param inFlight the number of requests that were in flight when the request completed,
+     *                 including the request itself
+     *
+     * @return the adapted limit
+     */
+    public synchronized int update(final String endpoint, final long latencyNanos, final boolean isSuccessful, final int inFlight)
+    {
+        sampleCount++;
+
+        if (!isSuccessful) {
+            decrease(ImrHttpConstants.ADAPTIVE_BACKOFF_RATIO, LimitChangeReason.FAILURE);
+            return getLimit();
+        }
+
+        final double latency = Math.max(1L, latencyNanos);
+        final Double previousBaseline = baselineLatencyNanos.get(endpoint);
+
+        // the baseline follows lower latencies instantly, and higher latencies slowly
+        final double baseline = previousBaseline == null || latency < previousBaseline
+                                ? latency
+                                : previousBaseline + (latency - previousBaseline) * ImrHttpConstants.ADAPTIVE_BASELINE_DRIFT;
+        baselineLatencyNanos.put(endpoint, baseline);
+
+        smoothedLatencyRatio += (latency / baseline - smoothedLatencyRatio) * ImrHttpConstants.ADAPTIVE_LATENCY_SMOOTHING;
+
+        if (smoothedLatencyRatio > ImrHttpConstants.ADAPTIVE_LATENCY_TOLERANCE) {
+            final double gradient = ImrHttpConstants.ADAPTIVE_LATENCY_TOLERANCE / smoothedLatencyRatio;
+            decrease(Math.max(ImrHttpConstants.ADAPTIVE_BACKOFF_RATIO, gradient), LimitChangeReason.LATENCY);
+
+        } else if (inFlight * 2 >= limit && limit < maxLimit) {
+            // raise the limit only if it is used, so it cannot grow indefinitely
+            final int previousLimit = getLimit();
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+
+            if (getLimit() != previousLimit) {
+                increaseCount++;
+                addHistory(LimitChangeReason.INCREASE);
+            }
+        }
+
+        return getLimit();
+    }
+
+
+    @Override
+    public synchronized int getLimit()
+    {
+        return (int) limit;
+    }
+
+
+    @Override
+    public int getMinLimit()
+    {
+        return ImrHttpConstants.ADAPTIVE_MIN_LIMIT;
+    }
+
+
+    @Override
+    public synchronized int getMaxLimit()
+    {
+        return maxLimit;
+    }
+
+
+    @Override
+    public synchronized double getSmoothedLatencyRatio()
+    {
+        return smoothedLatencyRatio;
+    }
+
+
+    @Override
+    public synchronized long getIncreaseCount()
+    {
+        return increaseCount;
+    }
+
+
+    @Override
+    public synchronized long getDecreaseCount()
+    {
+        return decreaseCount;
+    }
+
+
+    @Override
+    public synchronized Map<String, Double> getBaselineLatencyMillis()
+    {
+        final Map<String, Double> baselineLatencyMillis = new HashMap<>();
+
+        for (final Map.Entry<String, Double> entry : baselineLatencyNanos.entrySet())
+            baselineLatencyMillis.put(entry.getKey(), entry.getValue() / ImrMetricsConstants.NANOS_PER_MILLI);
+
+        return baselineLatencyMillis;
+    }
+
+
+    @Override
+    public synchronized List<ConcurrencyLimitChange> getHistory()
+    {
+        return new ArrayList<>(history);
+    }
+
+
+    /**
+     * Creates an immutable copy of the state of the limit.
+     *
+     * @return a snapshot of the limit
+     */
+    public synchronized ConcurrencyLimitSnapshot getSnapshot()
+    {
+        return new ConcurrencyLimitSnapshot(
+                   getLimit(),
+                   getMinLimit(),
+                   maxLimit,
+                   smoothedLatencyRatio,
+                   increaseCount,
+                   decreaseCount,
+                   getBaselineLatencyMillis(),
+                   getHistory());
+    }
+
+
+    /**
+     * Lowers the limit, unless it was lowered during the current window of requests.
+     *
+     * @param ratio the factor by which the limit is multiplied
+     * @param reason the cause of the decrease
+     */
+    private void decrease(final double ratio, final LimitChangeReason reason)
+    {
+        if (sampleCount < nextDecreasableSample)
+            return;
+
+        final int previousLimit = getLimit();
+        limit = Math.max(ImrHttpConstants.ADAPTIVE_MIN_LIMIT, limit * ratio);
+        nextDecreasableSample = sampleCount + previousLimit;
+
+        if (getLimit() != previousLimit) {
+            decreaseCount++;
+            addHistory(reason);
+        }
+    }
+
+
+    /**
+     * Adds the current limit to the history, removing the oldest change if the history is full.
+     *
+     * @param reason the cause of the change
+     */
+    private void addHistory(final LimitChangeReason reason)
+    {
+        if (history.size() == ImrHttpConstants.ADAPTIVE_HISTORY_SIZE)
+            history.removeFirst();
+
+        history.addLast(new ConcurrencyLimitChange(System.currentTimeMillis(), getLimit(), reason));
+    }
+
+
+    /**
+     * Creates the limit that is shared by all IMR ETLs and registers it via JMX.
+     *
+     * @return the shared limit
+     */
+    private static AdaptiveConcurrencyLimit createSharedInstance()
+    {
+        final AdaptiveConcurrencyLimit sharedLimit = new AdaptiveConcurrencyLimit(ImrHttpConstants.ADAPTIVE_INITIAL_LIMIT);
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(ImrMetricsConstants.CONCURRENCY_JMX_OBJECT_NAME);
+
+            if (!server.isRegistered(objectName))
+                server.registerMBean(sharedLimit, objectName);
+
+        } catch (final JMException e) {
+            LOGGER.warn(String.format(ImrMetricsConstants.CONCURRENCY_JMX_REGISTRATION_FAILED_ERROR, e.getMessage()));
+        }
+
+        return sharedLimit;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import java.util.List;
+import java.util.Map;
+
+import de.gerdiproject.harvest.imr.metrics.ConcurrencyLimitChange;
+
+/**
+ * This interface exposes the {@linkplain AdaptiveConcurrencyLimit} that is shared
+ * by all IMR ETLs via JMX.
+ *
+ * @author Robin Weiss
+ */
+public interface AdaptiveConcurrencyLimitMXBean
+{
+    /**
+     * Returns the current maximum number of concurrent requests.
+     *
+     * @return the current concurrency limit
+     */
+    int getLimit();
+
+
+    /**
+     * Returns the lowest value that the limit can be lowered to.
+     *
+     * @return the lower bound of the limit
+     */
+    int getMinLimit();
+
+
+    /**
+     * Returns the highest value that the limit can be raised to.
+     *
+     * @return the upper bound of the limit
+     */
+    int getMaxLimit();
+
+
+    /**
+     * Returns the smoothed ratio of recent latencies to the baseline latencies
+     * of their endpoints. A ratio of 1 means that requests are as fast as usual.
+     *
+     * @return the smoothed latency ratio
+     */
+    double getSmoothedLatencyRatio();
+
+
+    /**
+     * Returns the number of times that the limit was raised.
+     *
+     * @return the number of increases
+     */
+    long getIncreaseCount();
+
+
+    /**
+     * Returns the number of times that the limit was lowered.
+     *
+     * @return the number of decreases
+     */
+    long getDecreaseCount();
+
+
+    /**
+     * Returns the baseline latency of each endpoint, which is the latency
+     * of requests that are not delayed by the load on IMR.
+     *
+     * @return a map of endpoint names to baseline latencies in milliseconds
+     */
+    Map<String, Double> getBaselineLatencyMillis();
+
+
+    /**
+     * Returns the most recent changes of the limit.
+     *
+     * @return a list of limit changes, sorted from oldest to newest
+     */
+    List<ConcurrencyLimitChange> getHistory();
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import de.gerdiproject.harvest.imr.metrics.RequestMetricsRegistry;
+
+/**
+ * This class limits the number of connections that are open at the same time.
+ * Unlike a fixed semaphore, the limit can be changed while connections are open.
+ * A single instance is shared by all IMR ETLs, in order to limit the load on IMR
+ * while the ETLs are harvested in parallel. Optionally, the limit is adapted to
+ * the latency and errors of completed requests by an {@linkplain AdaptiveConcurrencyLimit}.
+ *
+ * @author Robin Weiss
+ */
+public class ConnectionLimiter
+{
+    private static final ConnectionLimiter SHARED_INSTANCE = new ConnectionLimiter(0);
+
+    private int maxConnections;
+    private int openConnections;
+    private AdaptiveConcurrencyLimit adaptiveLimit;
+
+
+    /**
+     * Constructor that sets the maximum number of open connections.
+     *
+     * @param maxConnections the maximum number of open connections,
+     *                       or a number below 1 if the connections are not to be limited
+     */
+    public ConnectionLimiter(final int maxConnections)
+    {
+        this.maxConnections = maxConnections;
+    }
+
+
+    /**
+     * Returns the limiter that is shared by all IMR ETLs.
+     *
+     * @return the limiter that is shared by all IMR ETLs
+     */
+    public static ConnectionLimiter getSharedInstance()
+    {
+        return SHARED_INSTANCE;
+    }
+
+
+    /**
+     * Changes the maximum number of open connections. Connections that are
+     * already open are not affected, but new connections are only permitted
+     * if they do not exceed the new limit.
+     *
+     * @param maxConnections the maximum number of open connections,
+     *                       or a number below 1 if the connections are not to be limited
+     */
+    public synchronized void setMaxConnections(final int maxConnections)
+    {
+        this.maxConnections = maxConnections;
+        notifyAll();
+    }
+
+
+    /**
+     * Sets a limit that adapts the maximum number of open connections to completed requests,
+     * or stops adapting the maximum number of open connections.
+     *
+     * @param adaptiveLimit the adaptive limit, or null if the maximum number of
+     *                      open connections is only changed via {@linkplain #setMaxConnections(int)}
+     */
+    public synchronized void setAdaptiveLimit(final AdaptiveConcurrencyLimit adaptiveLimit)
+    {
+        this.adaptiveLimit = adaptiveLimit;
+
+        if (adaptiveLimit != null)
+            maxConnections = adaptiveLimit.getLimit();
+
+        notifyAll();
+    }
+
+
+    /**
+     * Returns true if the maximum number of open connections is adapted to completed requests.
+     *
+     * @return true if an adaptive limit is set
+     */
+    public synchronized boolean isAdaptive()
+    {
+        return adaptiveLimit != null;
+    }
+
+
+    /**
+     * Blocks until a connection may be opened. Every successful call must
+     * be followed by a call of {@linkplain #release()}.
+     *
+     * @return true if the connection may be opened, or false if the thread was interrupted
+     */
+    public synchronized boolean acquire()
+    {
+        try {
+            while (maxConnections > 0 && openConnections >= maxConnections)
+                wait();
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        openConnections++;
+        return true;
+    }
+
+
+    /**
+     * Marks a connection that was permitted by {@linkplain #acquire()} as closed.
+     */
+    public synchronized void release()
+    {
+        if (openConnections > 0) {
+            openConnections--;
+            notifyAll();
+        }
+    }
+
+
+    /**
+     * Marks a connection that was permitted by {@linkplain #acquire()} as closed,
+     * and adapts the maximum number of open connections to the completed request,
+     * if an adaptive limit is set. Requests that were aborted, because the
+     * releasing thread was interrupted, are not taken into account.
+     *
+     * @param url the requested URL
+     * @param latencyNanos the latency of the request in nanoseconds
+     * @param isSuccessful false if the request failed or timed out
+     */
+    public void release(final String url, final long latencyNanos, final boolean isSuccessful)
+    {
+        final String endpointName = RequestMetricsRegistry.getInstance().getEndpointNameOfUrl(url);
+        final boolean isAborted = Thread.currentThread().isInterrupted();
+
+        synchronized (this) {
+            if (adaptiveLimit != null && !isAborted)
+                maxConnections = adaptiveLimit.update(endpointName, latencyNanos, isSuccessful, openConnections);
+
+            release();
+        }
+    }
+
+
+    /**
+     * Returns the number of connections that are currently open.
+     *
+     * @return the number of open connections
+     */
+    public synchronized int getOpenConnections()
+    {
+        return openConnections;
+    }
+}
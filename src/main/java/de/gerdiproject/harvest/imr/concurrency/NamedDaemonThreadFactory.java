@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This {@linkplain ThreadFactory} creates numbered daemon threads, in order to
+ * prevent pending IMR requests from blocking the shutdown of the service.
+ *
+ * @author Robin Weiss
+ */
+public class NamedDaemonThreadFactory implements ThreadFactory
+{
+    private static final String THREAD_NAME = "%s-%d";
+
+    private final String namePrefix;
+    private final AtomicInteger threadCount;
+
+
+    /**
+     * Constructor that sets the prefix of all thread names.
+     *
+     * @param namePrefix the prefix of all thread names
+     */
+    public NamedDaemonThreadFactory(final String namePrefix)
+    {
+        this.namePrefix = namePrefix;
+        this.threadCount = new AtomicInteger();
+    }
+
+
+    @Override
+    public Thread newThread(final Runnable runnable)
+    {
+        final Thread thread = new Thread(runnable, String.format(THREAD_NAME, namePrefix, threadCount.incrementAndGet()));
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * This class allows ETLs that are harvested one after the other to be
+ * harvested in parallel instead. When the harvest of a participating ETL is
+ * requested, the harvests of all participating ETLs that were registered
+ * after it are started in the background. When their harvests are requested
+ * later on, they wait for the running harvests instead of starting new ones.
+ * Thus, a full harvest takes as long as the slowest ETL, while each ETL still
+ * runs its own harvest and reports its own status and failures.
+ * A coordinator belongs to the ETLs of a single deployment, and must be
+ * shut down when they are discarded.
+ *
+ * @author Robin Weiss
+ */
+public class ParallelHarvestCoordinator
+{
+    private static final String UNREGISTERED_ETL_ERROR = "Cannot harvest unregistered ETL '%s'!";
+
+    private final List<Participant> participants = new ArrayList<>();
+    private final Map<Object, CompletableFuture<Void>> runningHarvests = new HashMap<>();
+    private final ExecutorService harvestExecutor = Executors.newCachedThreadPool(
+                                                        new NamedDaemonThreadFactory(getClass().getSimpleName()));
+
+
+    /**
+     * Registers an ETL that may be harvested in parallel to other ETLs.
+     * ETLs should be registered in the order in which they are harvested.
+     *
+     * @param etl the ETL
+     * @param isParticipating returns true if the ETL is currently to be harvested in parallel
+     * @param harvest harvests the ETL synchronously
+     */
+    public synchronized void register(final Object etl, final BooleanSupplier isParticipating, final Runnable harvest)
+    {
+        participants.add(new Participant(etl, isParticipating, harvest));
+    }
+
+
+    /**
+     * Unregisters all ETLs and stops the threads of harvests that run in the background.
+     * Harvests that were not awaited yet are cancelled.
+     */
+    public synchronized void shutdown()
+    {
+        participants.clear();
+        runningHarvests.values().forEach((final CompletableFuture<Void> harvest) -> harvest.cancel(false));
+        runningHarvests.clear();
+        harvestExecutor.shutdownNow();
+    }
+
+
+    /**
+     * Harvests an ETL and starts the harvests of all participating ETLs that
+     * were registered after it, unless the harvest of the ETL is already running.
+     * In that case, this method waits for the running harvest to finish.
+     *
+     * @param etl a registered ETL
+     *
+     * @throws IllegalArgumentException if the ETL was not registered
+     */
+    public void harvest(final Object etl)
+    {
+        final CompletableFuture<Void> runningHarvest;
+        Participant participant = null;
+
+        synchronized (this) {
+            runningHarvest = runningHarvests.remove(etl);
+
+            if (runningHarvest == null)
+                participant = startFollowingHarvests(etl);
+        }
+
+        // harvest the ETL in the current thread, or wait for the harvest that was started by a preceding ETL
+        if (participant != null)
+            participant.harvest.run();
+        else
+            awaitHarvest(runningHarvest);
+    }
+
+
+    /**
+     * Starts the harvests of all participating ETLs that were registered after a specified ETL
+     * and are not already being harvested. Finished harvests that were not awaited are discarded.
+     *
+     * @param etl the ETL that is harvested in the current thread
+     *
+     * @return the participant of the specified ETL
+     *
+     * @throws IllegalArgumentException if the ETL was not registered
+     */
+    private Participant startFollowingHarvests(final Object etl)
+    {
+        runningHarvests.values().removeIf((final CompletableFuture<Void> harvest) -> harvest.isDone());
+
+        Participant harvestedParticipant = null;
+
+        for (final Participant participant : participants) {
+            if (harvestedParticipant == null) {
+                if (participant.etl == etl)
+                    harvestedParticipant = participant;
+
+            } else if (!runningHarvests.containsKey(participant.etl) && participant.isParticipating.getAsBoolean())
+                runningHarvests.put(participant.etl, CompletableFuture.runAsync(participant.harvest, harvestExecutor));
+        }
+
+        if (harvestedParticipant == null)
+            throw new IllegalArgumentException(String.format(UNREGISTERED_ETL_ERROR, etl));
+
+        return harvestedParticipant;
+    }
+
+
+    /**
+     * Waits for a harvest that runs in the background to finish, and rethrows
+     * its failure in the current thread.
+     *
+     * @param runningHarvest the harvest that runs in the background
+     */
+    private static void awaitHarvest(final CompletableFuture<Void> runningHarvest)
+    {
+        try {
+            runningHarvest.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * This class represents a registered ETL.
+     *
+     * @author Robin Weiss
+     */
+    private static class Participant
+    {
+        private final Object etl;
+        private final BooleanSupplier isParticipating;
+        private final Runnable harvest;
+
+
+        /**
+         * Constructor that sets all fields.
+         *
+         * @param etl the ETL
+         * @param isParticipating returns true if the ETL is currently to be harvested in parallel
+         * @param harvest harvests the ETL synchronously
+         */
+        Participant(final Object etl, final BooleanSupplier isParticipating, final Runnable harvest)
+        {
+            this.etl = etl;
+            this.isParticipating = isParticipating;
+            this.harvest = harvest;
+        }
+    }
+}
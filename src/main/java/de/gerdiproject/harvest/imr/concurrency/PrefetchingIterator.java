@@ -0,0 +1,157 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * This {@linkplain Iterator} requests the elements of a source {@linkplain Iterator}
+ * ahead of time, but returns the results in the same order as the source elements.
+ * At most a fixed number of results are pending at any time, which keeps the
+ * memory consumption constant and limits the number of concurrent requests.
+ *
+ * @param <S> the type of the source elements
+ * @param <T> the type of the retrieved results
+ *
+ * @author Robin Weiss
+ */
+public class PrefetchingIterator<S, T> implements Iterator<T>
+{
+    private static final String INTERRUPTED_ERROR = "Interrupted while waiting for a prefetched element!";
+
+    private final Iterator<S> sourceIterator;
+    private final Function<S, ? extends Future<T>> requestFunction;
+    private final int lookahead;
+    private final Queue<Future<T>> pendingResults;
+    private volatile boolean isExhausted;
+
+
+    /**
+     * Constructor that sets up the source and how its elements are retrieved.
+     *
+     * @param sourceIterator an iterator of elements that are to be retrieved
+     * @param requestFunction a function that starts the asynchronous retrieval of a source element
+     * @param lookahead the maximum number of results that are retrieved ahead of time
+     */
+    public PrefetchingIterator(final Iterator<S> sourceIterator, final Function<S, ? extends Future<T>> requestFunction, final int lookahead)
+    {
+        this.sourceIterator = sourceIterator;
+        this.requestFunction = requestFunction;
+        this.lookahead = Math.max(1, lookahead);
+        this.pendingResults = new ArrayDeque<>(this.lookahead);
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        prefetch();
+
+        if (pendingResults.isEmpty())
+            isExhausted = true;
+
+        return !isExhausted;
+    }
+
+
+    @Override
+    public T next()
+    {
+        prefetch();
+
+        final Future<T> nextResult = pendingResults.poll();
+
+        if (nextResult == null) {
+            isExhausted = true;
+            throw new NoSuchElementException();
+        }
+
+        // fill up the free slot before blocking
+        prefetch();
+
+        return awaitResult(nextResult);
+    }
+
+
+    /**
+     * Checks if all elements were returned, without requesting any more elements.
+     * Unlike {@linkplain #hasNext()}, this method can also be called by other threads.
+     *
+     * @return true if the iteration reached the end of the source elements
+     */
+    public boolean isExhausted()
+    {
+        return isExhausted;
+    }
+
+
+    /**
+     * Cancels all pending requests.
+     */
+    public void cancel()
+    {
+        while (!pendingResults.isEmpty())
+            pendingResults.poll().cancel(true);
+    }
+
+
+    /**
+     * Starts the retrieval of source elements until the lookahead is
+     * exhausted or there are no more source elements.
+     */
+    private void prefetch()
+    {
+        while (pendingResults.size() < lookahead && sourceIterator.hasNext())
+            pendingResults.add(requestFunction.apply(sourceIterator.next()));
+    }
+
+
+    /**
+     * Blocks until a result is retrieved and returns it.
+     *
+     * @param result the pending result
+     *
+     * @return the retrieved result
+     */
+    private T awaitResult(final Future<T> result)
+    {
+        try {
+            return result.get();
+
+        } catch (final InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(INTERRUPTED_ERROR, e);
+
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new IllegalStateException(cause);
+        }
+    }
+}
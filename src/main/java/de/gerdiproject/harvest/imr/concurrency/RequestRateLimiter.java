@@ -0,0 +1,131 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class limits the number of requests per second that are sent to a host.
+ * Requests that exceed the limit are delayed until a free time slot is available.
+ * A single instance is shared by all IMR ETLs, so that the limit of a host
+ * is not exceeded while the ETLs are harvested in parallel.
+ *
+ * @author Robin Weiss
+ */
+public class RequestRateLimiter
+{
+    private static final RequestRateLimiter SHARED_INSTANCE = new RequestRateLimiter(0);
+
+    private final Map<String, Long> nextFreeSlots;
+    private volatile long minIntervalNanos;
+
+
+    /**
+     * Constructor that sets the maximum request rate per host.
+     *
+     * @param maxRequestsPerSecond the maximum number of requests per second and host,
+     *                             or a number below 1 if the rate is not to be limited
+     */
+    public RequestRateLimiter(final int maxRequestsPerSecond)
+    {
+        this.nextFreeSlots = new HashMap<>();
+        this.minIntervalNanos = toMinIntervalNanos(maxRequestsPerSecond);
+    }
+
+
+    /**
+     * Returns the limiter that is shared by all IMR ETLs.
+     *
+     * @return the limiter that is shared by all IMR ETLs
+     */
+    public static RequestRateLimiter getSharedInstance()
+    {
+        return SHARED_INSTANCE;
+    }
+
+
+    /**
+     * Changes the maximum request rate per host. Time slots that
+     * were already reserved are not affected.
+     *
+     * @param maxRequestsPerSecond the maximum number of requests per second and host,
+     *                             or a number below 1 if the rate is not to be limited
+     */
+    public void setMaxRequestsPerSecond(final int maxRequestsPerSecond)
+    {
+        this.minIntervalNanos = toMinIntervalNanos(maxRequestsPerSecond);
+    }
+
+
+    /**
+     * Blocks until a request to the host of a specified URL may be sent.
+     *
+     * @param url the URL that is to be requested
+     *
+     * @return true if the request may be sent, or false if the thread was interrupted
+     */
+    public boolean acquire(final String url)
+    {
+        final long intervalNanos = minIntervalNanos;
+
+        if (intervalNanos == 0L)
+            return true;
+
+        final String host = URI.create(url).getHost();
+        final long waitingNanos;
+
+        // reserve the next free time slot of the host
+        synchronized (nextFreeSlots) {
+            final long now = System.nanoTime();
+            final Long nextFreeSlot = nextFreeSlots.get(host);
+            final long reservedSlot = nextFreeSlot == null || nextFreeSlot - now < 0 ? now : nextFreeSlot;
+
+            nextFreeSlots.put(host, reservedSlot + intervalNanos);
+            waitingNanos = reservedSlot - now;
+        }
+
+        // wait for the reserved time slot
+        if (waitingNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitingNanos);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Converts a request rate to the minimum interval between two requests.
+     *
+     * @param maxRequestsPerSecond the maximum number of requests per second,
+     *                             or a number below 1 if the rate is not to be limited
+     *
+     * @return the minimum interval in nanoseconds, or 0 if the rate is not limited
+     */
+    private static long toMinIntervalNanos(final int maxRequestsPerSecond)
+    {
+        return maxRequestsPerSecond > 0
+               ? TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond
+               : 0L;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.constants;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class contains constants of files that persist IMR
+ * harvesting results between harvests.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ImrCacheConstants
+{
+    public static final String CACHE_FOLDER = "cache/imr/";
+    public static final String SHARD_CACHE_FILE = CACHE_FOLDER + "%s.bin";
+    public static final String SJOMIL_ID_INDEX_NAME = "sjomilIdIndex";
+    public static final String STATION_DATES_NAME = "stationDates";
+    public static final String DOCUMENT_HASHES_FILE = CACHE_FOLDER + "%s/documentHashes.bin";
+    public static final String REMOVED_DOCUMENTS_FILE = CACHE_FOLDER + "%s/removedDocuments.txt";
+    public static final String CHECKPOINT_FILE = CACHE_FOLDER + "%s/checkpoint.bin";
+    public static final String HTTP_CACHE_FOLDER = CACHE_FOLDER + "http/%s/";
+    public static final String HTTP_CACHE_FILE_EXTENSION = ".response";
+
+    public static final String LOAD_FAILED_ERROR = "Could not load '%s': %s";
+    public static final String SAVE_FAILED_ERROR = "Could not save '%s': %s";
+    public static final String DELETE_FAILED_ERROR = "Could not delete '%s'!";
+    public static final String RESUMING_HARVEST = "Resuming the harvest of %s after %d documents, continuing after '%s'. Only the remaining documents are submitted, which is incomplete for loaders that replace their output!";
+    public static final String CHECKPOINT_MISMATCH_ERROR = "Cannot resume the harvest of %s, because '%s' is no longer harvested. Starting from the beginning.";
+    public static final String TOUCH_FAILED_ERROR = "Could not update the modification date of '%s'!";
+    public static final String UNCACHEABLE_DATES_ERROR = "Cannot cache measurement dates of station %s in %d: %s";
+    public static final String REMOVED_DOCUMENTS_INFO = "%d documents were removed since the last complete harvest. Their identifiers were written to '%s'.";
+    public static final String UNSUPPORTED_VERSION_ERROR = "Unsupported file version: %d";
+}
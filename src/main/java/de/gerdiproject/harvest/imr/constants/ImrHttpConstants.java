@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.constants;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class contains constants that are used for sending HTTP requests to IMR.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ImrHttpConstants
+{
+    // TIMEOUTS
+    public static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    public static final int READ_TIMEOUT_MILLIS = 30000;
+
+    // CONNECTION POOL
+    public static final long IDLE_EVICTION_INTERVAL_SECONDS = 5;
+    public static final String POOL_TOO_SMALL_WARNING = "The connection pool keeps only %d connections, but up to %d connections to IMR are opened! Increase the parameter connectionPoolSize to keep all connections open.";
+    public static final String POOL_SHUTDOWN_ERROR = "Could not close the connections to IMR: %s";
+
+    // ADAPTIVE CONCURRENCY
+    public static final int ADAPTIVE_MIN_LIMIT = 1;
+    public static final int ADAPTIVE_INITIAL_LIMIT = 4;
+    public static final double ADAPTIVE_BACKOFF_RATIO = 0.5;
+    public static final double ADAPTIVE_LATENCY_TOLERANCE = 2.0;
+    public static final double ADAPTIVE_LATENCY_SMOOTHING = 0.2;
+    public static final double ADAPTIVE_BASELINE_DRIFT = 0.01;
+    public static final int ADAPTIVE_HISTORY_SIZE = 100;
+    public static final String UNKNOWN_ENDPOINT = "unknown";
+
+    // RESILIENCE
+    public static final long RETRY_BASE_BACKOFF_MILLIS = 250;
+    public static final long RETRY_MAX_BACKOFF_MILLIS = 10000;
+    public static final double RETRY_BUDGET_RATIO = 0.2;
+    public static final double RETRY_BUDGET_MAX_TOKENS = 10;
+    public static final long CIRCUIT_OPEN_MILLIS = 30000;
+
+    // DISK MOCKS OF THE HTTP REQUESTER
+    public static final String HTTP_REQUESTS_CATEGORY = "HttpRequests";
+    public static final String READ_FROM_DISK_KEY = "readFromDisk";
+    public static final String WRITE_TO_DISK_KEY = "writeToDisk";
+
+    // HEADERS
+    public static final String ETAG_HEADER = "ETag";
+    public static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+
+    // ERRORS
+    public static final String REQUEST_FAILED_ERROR = "Request to '%s' failed: %s";
+    public static final String UNEXPECTED_STATUS_ERROR = "Request to '%s' failed with HTTP status %d!";
+    public static final String EMPTY_RESPONSE_ERROR = "Request to '%s' returned an empty response!";
+    public static final String NO_RESPONSE_ERROR = "Cannot harvest %s, because '%s' could not be retrieved!";
+    public static final String CIRCUIT_OPENED_ERROR = "Requests to endpoint '%s' failed %d times in a row! Shedding its requests for %d seconds.";
+    public static final String CIRCUIT_CLOSED_INFO = "Requests to endpoint '%s' succeed again.";
+    public static final String SKIPPED_DOCUMENTS_ERROR = "%s skipped %d document(s), because requests to IMR failed! The document hashes of this harvest are not saved.";
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.constants;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class contains constants of the measurement of IMR requests.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ImrMetricsConstants
+{
+    // ENDPOINTS
+    public static final String STATION_POSITIONS_ENDPOINT = "stationPositions";
+    public static final String STATION_YEARS_ENDPOINT = "stationYears";
+    public static final String STATION_DATES_ENDPOINT = "stationDates";
+    public static final String STATION_DESCRIPTION_ENDPOINT = "stationDescription";
+    public static final String SJOMIL_INDEX_ENDPOINT = "sjomilIndex";
+    public static final String SJOMIL_VIEW_ENDPOINT = "sjomilView";
+
+    // HISTOGRAM
+    public static final long[] LATENCY_BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+    public static final String LATENCY_BUCKET_LABEL = "<=%dms";
+    public static final String OVERFLOW_BUCKET_LABEL = ">%dms";
+    public static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // STAGE TIMINGS
+    public static final int STAGE_WINDOW_SIZE = 1024;
+    public static final int SLOWEST_DOCUMENT_COUNT = 10;
+
+    // JMX
+    public static final String JMX_OBJECT_NAME = "de.gerdiproject.harvest.imr:type=RequestMetrics,endpoint=%s";
+    public static final String JMX_REGISTRATION_FAILED_ERROR = "Could not register JMX metrics of endpoint '%s': %s";
+    public static final String CONCURRENCY_JMX_OBJECT_NAME = "de.gerdiproject.harvest.imr:type=ConcurrencyLimit";
+    public static final String CONCURRENCY_JMX_REGISTRATION_FAILED_ERROR = "Could not register JMX metrics of the concurrency limit: %s";
+
+    // REST
+    public static final String REST_PATH = "imr/metrics";
+    public static final String STAGES_REST_PATH = "stages";
+    public static final String CONCURRENCY_REST_PATH = "concurrency";
+    public static final String RESILIENCE_REST_PATH = "resilience";
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.constants;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class contains keys and default values of IMR ETL parameters.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ImrParameterConstants
+{
+    // CONCURRENCY
+    public static final String CONCURRENT_REQUESTS_KEY = "concurrentRequests";
+    public static final int CONCURRENT_REQUESTS_DEFAULT = 8;
+
+    public static final String HARVEST_IN_PARALLEL_KEY = "harvestInParallel";
+    public static final boolean HARVEST_IN_PARALLEL_DEFAULT = false;
+
+    // RESILIENCE
+    public static final String MAX_RETRIES_KEY = "maxRetries";
+    public static final int MAX_RETRIES_DEFAULT = 2;
+
+    public static final String CIRCUIT_BREAKER_THRESHOLD_KEY = "circuitBreakerThreshold";
+    public static final int CIRCUIT_BREAKER_THRESHOLD_DEFAULT = 5;
+
+    // SHARED BY ALL IMR ETLS
+    public static final String SHARED_CATEGORY = "IMR";
+
+    public static final String MAX_REQUESTS_PER_SECOND_KEY = "maxRequestsPerSecond";
+    public static final int MAX_REQUESTS_PER_SECOND_DEFAULT = 20;
+
+    public static final String MAX_TOTAL_CONNECTIONS_KEY = "maxTotalConnections";
+    public static final int MAX_TOTAL_CONNECTIONS_DEFAULT = 16;
+
+    public static final String ADAPTIVE_CONCURRENCY_KEY = "adaptiveConcurrency";
+    public static final boolean ADAPTIVE_CONCURRENCY_DEFAULT = false;
+
+    public static final String CONNECTION_POOL_SIZE_KEY = "connectionPoolSize";
+    public static final int CONNECTION_POOL_SIZE_DEFAULT = 16;
+
+    public static final String IDLE_CONNECTION_TIMEOUT_SECONDS_KEY = "idleConnectionTimeoutSeconds";
+    public static final int IDLE_CONNECTION_TIMEOUT_SECONDS_DEFAULT = 30;
+
+    // CHECKPOINTS
+    public static final String CHECKPOINT_INTERVAL_SECONDS_KEY = "checkpointIntervalSeconds";
+    public static final int CHECKPOINT_INTERVAL_SECONDS_DEFAULT = 0; // only for incremental loaders, because resumed harvests submit only the remaining documents
+
+    // SHARDING
+    public static final String SHARD_INDEX_KEY = "shardIndex";
+    public static final int SHARD_INDEX_DEFAULT = 0;
+
+    public static final String SHARD_COUNT_KEY = "shardCount";
+    public static final int SHARD_COUNT_DEFAULT = 1;
+
+    public static final String SHARD_BY_RANGE_KEY = "shardByRange";
+    public static final boolean SHARD_BY_RANGE_DEFAULT = false;
+
+    // HTTP CACHE
+    public static final String HTTP_CACHE_ENABLED_KEY = "httpCacheEnabled";
+    public static final boolean HTTP_CACHE_ENABLED_DEFAULT = false;
+
+    public static final String HTTP_CACHE_SIZE_MB_KEY = "httpCacheSizeMB";
+    public static final int HTTP_CACHE_SIZE_MB_DEFAULT = 256;
+
+    // DOCUMENT CHANGES
+    public static final String CHANGED_DOCUMENTS_ONLY_KEY = "submitChangedDocumentsOnly";
+    public static final boolean CHANGED_DOCUMENTS_ONLY_DEFAULT = false;
+
+    // STATIONS
+    public static final String STATION_LOOKAHEAD_KEY = "stationLookahead";
+    public static final int STATION_LOOKAHEAD_DEFAULT = 4;
+
+    public static final String STREAM_STATION_POSITIONS_KEY = "streamStationPositions";
+    public static final boolean STREAM_STATION_POSITIONS_DEFAULT = false;
+
+    // SJOMIL
+    public static final String REPROBE_MISSING_IDS_HOURS_KEY = "reprobeMissingIdsAfterHours";
+    public static final int REPROBE_MISSING_IDS_HOURS_DEFAULT = 168;
+
+    public static final String MAX_CONSECUTIVE_MISSING_IDS_KEY = "maxConsecutiveMissingIds";
+    public static final int MAX_CONSECUTIVE_MISSING_IDS_DEFAULT = 200;
+
+    public static final String STREAM_VIEW_PAGES_KEY = "streamViewPages";
+    public static final boolean STREAM_VIEW_PAGES_DEFAULT = false;
+}
@@ -36,16 +36,23 @@ public class ImrSjomilConstants
     public static final String DOWNLOAD_URL = PREFIX + "/getdata.html?datasets=%d&nullverdi=NULL";
 
     // SELECTION QUERIES
-    public static final String SELECT_DATASET_NAME_ELEMENT = "div.right-margin:containsOwn(Dataset name:) + div.left_margin";
-    public static final String SELECT_PARENT_NAME_ELEMENT = "div.right-margin:containsOwn(Parent dataset:) + div.left_margin";
-    public static final String SELECT_SHORT_DESCRIPTION_ELEMENT = "div.right-margin:containsOwn(Description:) + div.left_margin";
-    public static final String SELECT_AREA_ELEMENT = "div.right-margin:containsOwn(Area:) + div.left_margin";
-    public static final String SELECT_TIMESTEP_ELEMENT = "div.right-margin:containsOwn(Timestep:) + div.left_margin";
-    public static final String SELECT_REFERENCES_ELEMENT = "div.right-margin:containsOwn(References:) + div.left_margin";
-    public static final String SELECT_LONG_DESCRIPTION_ELEMENT = "div.right-margin:containsOwn(Long description:) + div.left_margin a";
-    public static final String SELECT_RESPONSIBLE_SCIENTIST_ELEMENT = "div.right-margin:containsOwn(Responsible scientist:) + div.left_margin";
-    public static final String SELECT_DATE_ELEMENT = "select#date1 > option";
+    public static final String SELECT_FIELD_ELEMENTS = "div.right-margin, select#date1";
+    public static final String LABEL_CLASS = "right-margin";
+    public static final String VALUE_CLASS = "left_margin";
+    public static final String DATE_OPTION_TAG = "option";
+    public static final String LINK_TAG = "a";
+    public static final String LINK_URL_ATTRIBUTE = "href";
+
+    // FIELD LABELS
+    public static final String DATASET_NAME_LABEL = "dataset name:";
+    public static final String PARENT_NAME_LABEL = "parent dataset:";
+    public static final String SHORT_DESCRIPTION_LABEL = "description:";
+    public static final String AREA_LABEL = "area:";
+    public static final String REFERENCES_LABEL = "references:";
+    public static final String LONG_DESCRIPTION_LABEL = "long description:";
+    public static final String RESPONSIBLE_SCIENTIST_LABEL = "responsible scientist:";
 
     // OTHER
-    public static final int SEA_AND_ENVIRONMENT_DOC_COUNT = 10000; // determined empirically
+    public static final int INITIAL_ID_BOUND = 10000; // determined empirically, only used until the ID range is known
+    public static final int SHARDED_ID_RANGE = INITIAL_ID_BOUND; // fixed, so that all harvester instances agree on the ID ranges of shards
 }
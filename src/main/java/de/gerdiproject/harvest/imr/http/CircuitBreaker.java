@@ -0,0 +1,163 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+
+/**
+ * This class stops requests to an endpoint that failed repeatedly. After a number
+ * of consecutive failed requests, the circuit opens and requests are shed without
+ * being sent. When the circuit has been open for a while, a single trial request
+ * is permitted. If it succeeds, the circuit closes again, and otherwise it reopens.
+ *
+ * @author Robin Weiss
+ */
+public class CircuitBreaker
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openingTimestamp;
+    private boolean isTrialPending;
+    private long openCount;
+
+
+    /**
+     * Constructor that sets when the circuit opens and for how long.
+     *
+     * @param name the name of the endpoint that is guarded by the circuit
+     * @param failureThreshold the number of consecutive failed requests that open the circuit,
+     *                         or a number below 1 if the circuit is never to open
+     * @param openMillis the number of milliseconds until a trial request is permitted
+     */
+    public CircuitBreaker(final String name, final int failureThreshold, final long openMillis)
+    {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+
+    /**
+     * Checks if a request may be sent. If a trial request is permitted, every
+     * other request is shed until the outcome of the trial request is recorded.
+     * Every permitted request must be followed by a call of {@linkplain #recordSuccess()},
+     * {@linkplain #recordFailure()} or {@linkplain #recordCancellation()}.
+     *
+     * @return true if the request may be sent, or false if it is to be shed
+     */
+    public synchronized boolean allowRequest()
+    {
+        if (state == CircuitState.OPEN) {
+            if (System.currentTimeMillis() - openingTimestamp < openMillis)
+                return false;
+
+            state = CircuitState.HALF_OPEN;
+            isTrialPending = false;
+        }
+
+        if (state == CircuitState.HALF_OPEN) {
+            if (isTrialPending)
+                return false;
+
+            isTrialPending = true;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Records a successful request, closing the circuit.
+     */
+    public synchronized void recordSuccess()
+    {
+        if (state != CircuitState.CLOSED)
+            LOGGER.info(String.format(ImrHttpConstants.CIRCUIT_CLOSED_INFO, name));
+
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+        isTrialPending = false;
+    }
+
+
+    /**
+     * Records a failed request, opening the circuit if the trial request
+     * failed, or if too many consecutive requests failed. Requests that
+     * fail while the circuit is open do not prolong the opening.
+     */
+    public synchronized void recordFailure()
+    {
+        consecutiveFailures++;
+        isTrialPending = false;
+
+        final boolean isOpening = state == CircuitState.HALF_OPEN
+                                  || state == CircuitState.CLOSED && failureThreshold > 0 && consecutiveFailures >= failureThreshold;
+
+        if (isOpening) {
+            if (state == CircuitState.CLOSED)
+                LOGGER.warn(String.format(ImrHttpConstants.CIRCUIT_OPENED_ERROR, name, consecutiveFailures, TimeUnit.MILLISECONDS.toSeconds(openMillis)));
+
+            state = CircuitState.OPEN;
+            openingTimestamp = System.currentTimeMillis();
+            openCount++;
+        }
+    }
+
+
+    /**
+     * Records a permitted request that was not sent, because it was cancelled.
+     * The state of the circuit is not changed, but if the request was the trial
+     * request, another trial request is permitted.
+     */
+    public synchronized void recordCancellation()
+    {
+        isTrialPending = false;
+    }
+
+
+    /**
+     * Returns the current state of the circuit. An open circuit whose
+     * opening expired is reported as open until the next request is checked.
+     *
+     * @return the state of the circuit
+     */
+    public synchronized CircuitState getState()
+    {
+        return state;
+    }
+
+
+    /**
+     * Returns the number of times that the circuit opened.
+     *
+     * @return the number of openings
+     */
+    public synchronized long getOpenCount()
+    {
+        return openCount;
+    }
+}
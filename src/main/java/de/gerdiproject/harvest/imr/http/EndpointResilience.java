@@ -0,0 +1,216 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+import de.gerdiproject.harvest.imr.metrics.EndpointResilienceSnapshot;
+
+/**
+ * This class retries failed requests to an IMR endpoint and sheds requests
+ * while the endpoint keeps failing. Retries wait for an exponentially growing,
+ * randomly jittered time, so that failed requests of concurrent threads do not
+ * hit the endpoint again at the same time. The retries are limited by a
+ * {@linkplain RetryBudget}, and requests are shed while the {@linkplain CircuitBreaker}
+ * of the endpoint is open. Requests that were rejected for good are not retried,
+ * and neither they nor requests that were aborted count as failures of the endpoint.
+ *
+ * @author Robin Weiss
+ */
+public class EndpointResilience
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(EndpointResilience.class);
+
+    private final String name;
+    private final int maxRetries;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBudget retryBudget;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong shedCount = new AtomicLong();
+
+
+    /**
+     * Constructor that sets the retries and the circuit breaker of the endpoint.
+     *
+     * @param name the name of the endpoint
+     * @param maxRetries the maximum number of retries of a failed request
+     * @param circuitBreaker the circuit breaker of the endpoint
+     * @param retryBudget the budget of retries of the endpoint
+     */
+    public EndpointResilience(final String name, final int maxRetries, final CircuitBreaker circuitBreaker, final RetryBudget retryBudget)
+    {
+        this.name = name;
+        this.maxRetries = maxRetries;
+        this.circuitBreaker = circuitBreaker;
+        this.retryBudget = retryBudget;
+    }
+
+
+    /**
+     * Sends a request, retrying it if it fails. A request fails if it returns
+     * null or throws a {@linkplain RuntimeException}. A request that throws a
+     * {@linkplain PermanentRequestFailureException} is not retried, and a request that
+     * returns null after the thread was interrupted is considered aborted.
+     * Requests are not sent while the circuit of the endpoint is open.
+     *
+     * @param url the requested URL
+     * @param request a function that sends the request and returns the processed response,
+     *                or null if the request failed or was aborted
+     * @param <T> the type of the processed response
+     *
+     * @return the processed response, or null if all attempts failed,
+     *          or the request was rejected, shed, or aborted
+     */
+    public <T> T send(final String url, final Supplier<T> request)
+    {
+        return send(url, request, null);
+    }
+
+
+    /**
+     * Sends a request like {@linkplain #send(String, Supplier)}, but returns
+     * a specified response if the request was rejected for good, allowing callers
+     * to distinguish resources that do not exist from requests that failed.
+     *
+     * @param url the requested URL
+     * @param request a function that sends the request and returns the processed response,
+     *                or null if the request failed or was aborted
+     * @param rejectedResponse the response that is returned if the request was rejected for good
+     * @param <T> the type of the processed response
+     *
+     * @return the processed response, the rejected response if the request was rejected,
+     *          or null if all attempts failed, or the request was shed or aborted
+     */
+    public <T> T send(final String url, final Supplier<T> request, final T rejectedResponse)
+    {
+        requestCount.incrementAndGet();
+        retryBudget.recordRequest();
+
+        for (int retry = 0; ; retry++) {
+            if (!circuitBreaker.allowRequest()) {
+                shedCount.incrementAndGet();
+                return null;
+            }
+
+            final T response;
+
+            try {
+                response = attempt(url, request);
+            } catch (final PermanentRequestFailureException e) {
+                // the endpoint answered, but repeating the request would be pointless
+                LOGGER.warn(e.getMessage());
+                circuitBreaker.recordSuccess();
+                failureCount.incrementAndGet();
+                return rejectedResponse;
+            }
+
+            if (response != null) {
+                circuitBreaker.recordSuccess();
+                return response;
+            }
+
+            // a request that was aborted while waiting for a permit says nothing about the endpoint
+            if (Thread.currentThread().isInterrupted()) {
+                circuitBreaker.recordCancellation();
+                return null;
+            }
+
+            circuitBreaker.recordFailure();
+
+            if (retry >= maxRetries || !retryBudget.tryAcquireRetry() || !awaitBackoff(retry)) {
+                failureCount.incrementAndGet();
+                return null;
+            }
+
+            retryCount.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * Creates an immutable copy of the retries and the circuit state of the endpoint.
+     *
+     * @return a snapshot of the endpoint
+     */
+    public EndpointResilienceSnapshot getSnapshot()
+    {
+        return new EndpointResilienceSnapshot(
+                   name,
+                   circuitBreaker.getState(),
+                   circuitBreaker.getOpenCount(),
+                   requestCount.get(),
+                   retryCount.get(),
+                   failureCount.get(),
+                   shedCount.get());
+    }
+
+
+    /**
+     * Sends a request once, treating exceptions as failures.
+     *
+     * @param url the requested URL
+     * @param request a function that sends the request and returns the processed response
+     * @param <T> the type of the processed response
+     *
+     * @return the processed response, or null if the request failed
+     *
+     * @throws PermanentRequestFailureException if the request was rejected for good
+     */
+    private static <T> T attempt(final String url, final Supplier<T> request)
+    {
+        try {
+            return request.get();
+        } catch (final PermanentRequestFailureException e) {
+            throw e;
+        } catch (final RuntimeException e) { // NOPMD a malformed response must not stop the harvest
+            LOGGER.warn(String.format(ImrHttpConstants.REQUEST_FAILED_ERROR, url, e.toString()));
+            return null;
+        }
+    }
+
+
+    /**
+     * Waits before a retry, for a random time of up to an exponentially growing maximum.
+     *
+     * @param retry the number of retries that were sent before
+     *
+     * @return false if the thread was interrupted while waiting
+     */
+    private static boolean awaitBackoff(final int retry)
+    {
+        final long maxBackoffMillis = Math.min(
+                                          ImrHttpConstants.RETRY_MAX_BACKOFF_MILLIS,
+                                          ImrHttpConstants.RETRY_BASE_BACKOFF_MILLIS << Math.min(retry, Integer.SIZE));
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(maxBackoffMillis + 1));
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+
+/**
+ * This exception is thrown if a request was answered with an HTTP status other than OK.
+ *
+ * @author Robin Weiss
+ */
+public class HttpStatusException extends IOException
+{
+    private static final long serialVersionUID = 4623101796348025175L;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final int statusCode;
+
+
+    /**
+     * Constructor that sets the requested URL and the received status.
+     *
+     * @param url the requested URL
+     * @param statusCode the received HTTP status code
+     */
+    public HttpStatusException(final String url, final int statusCode)
+    {
+        super(String.format(ImrHttpConstants.UNEXPECTED_STATUS_ERROR, url, statusCode));
+        this.statusCode = statusCode;
+    }
+
+
+    /**
+     * Returns the received HTTP status code.
+     *
+     * @return the HTTP status code
+     */
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+
+
+    /**
+     * Checks if the request was rejected for good, for instance because the
+     * requested resource does not exist, in which case repeating the request
+     * would be pointless. Requests that timed out or exceeded a rate limit
+     * may succeed when they are repeated.
+     *
+     * @return true if the status is a client error other than
+     *          408 (Request Timeout) or 429 (Too Many Requests)
+     */
+    public boolean isPermanent()
+    {
+        return statusCode >= HttpURLConnection.HTTP_BAD_REQUEST
+               && statusCode < HttpURLConnection.HTTP_INTERNAL_ERROR
+               && statusCode != HttpURLConnection.HTTP_CLIENT_TIMEOUT
+               && statusCode != HTTP_TOO_MANY_REQUESTS;
+    }
+}
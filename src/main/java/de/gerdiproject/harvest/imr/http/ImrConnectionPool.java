@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.concurrency.NamedDaemonThreadFactory;
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+
+/**
+ * This class keeps a pool of keep-alive connections to IMR, which is shared by all
+ * {@linkplain ImrHttpRequester}s of the harvester service. Unlike the keep-alive cache
+ * of {@linkplain java.net.HttpURLConnection}s, which is configured for the whole JVM,
+ * the size of the pool can be changed while the harvester is running, and connections
+ * that stay idle for too long are closed in the background. A connection returns to
+ * the pool when its response was read completely. Since the pool is not available
+ * after it was shut down, the next request creates a new one.
+ *
+ * @author Robin Weiss
+ */
+public class ImrConnectionPool
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImrConnectionPool.class);
+    private static final ImrConnectionPool SHARED_INSTANCE = new ImrConnectionPool();
+
+    private int poolSize = 1;
+    private int idleTimeoutSeconds;
+    private int checkedMaxConnections = -1;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private ScheduledExecutorService evictionExecutor;
+
+
+    /**
+     * Returns the pool that is shared by all IMR ETLs.
+     *
+     * @return the pool that is shared by all IMR ETLs
+     */
+    public static ImrConnectionPool getSharedInstance()
+    {
+        return SHARED_INSTANCE;
+    }
+
+
+    /**
+     * Changes the maximum number of connections of the pool, which are all
+     * opened to the same host. Connections that are already open are not affected,
+     * but requests wait for a free connection while the pool is exhausted.
+     *
+     * @param poolSize the maximum number of pooled connections
+     */
+    public synchronized void setPoolSize(final int poolSize)
+    {
+        this.poolSize = Math.max(1, poolSize);
+
+        if (connectionManager != null) {
+            connectionManager.setMaxTotal(this.poolSize);
+            connectionManager.setDefaultMaxPerRoute(this.poolSize);
+        }
+    }
+
+
+    /**
+     * Changes the number of seconds after which idle connections are closed.
+     *
+     * @param idleTimeoutSeconds the number of seconds after which idle connections
+     *                           are closed, or 0 if they are only closed when they expire
+     */
+    public synchronized void setIdleTimeoutSeconds(final int idleTimeoutSeconds)
+    {
+        this.idleTimeoutSeconds = Math.max(0, idleTimeoutSeconds);
+    }
+
+
+    /**
+     * Warns if the pool has fewer connections than the harvester opens at the
+     * same time, because the surplus requests would wait for a free connection.
+     * Each number of connections is checked only once.
+     *
+     * @param maxConnections the maximum number of connections that are opened
+     *                       at the same time, or 0 if they are not limited
+     */
+    public synchronized void checkPoolSize(final int maxConnections)
+    {
+        if (checkedMaxConnections == maxConnections)
+            return;
+
+        checkedMaxConnections = maxConnections;
+
+        if (maxConnections > poolSize || maxConnections <= 0)
+            LOGGER.warn(String.format(ImrHttpConstants.POOL_TOO_SMALL_WARNING, poolSize, maxConnections));
+    }
+
+
+    /**
+     * Returns the client that sends requests via the pooled connections,
+     * creating the pool if it does not exist yet.
+     *
+     * @return the client of the pool
+     */
+    public synchronized CloseableHttpClient getHttpClient()
+    {
+        if (httpClient == null) {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(poolSize);
+            connectionManager.setDefaultMaxPerRoute(poolSize);
+
+            final RequestConfig requestConfig = RequestConfig.custom()
+                                                .setConnectTimeout(ImrHttpConstants.CONNECT_TIMEOUT_MILLIS)
+                                                .setSocketTimeout(ImrHttpConstants.READ_TIMEOUT_MILLIS)
+                                                .setConnectionRequestTimeout(ImrHttpConstants.READ_TIMEOUT_MILLIS)
+                                                .build();
+
+            // only retry requests via pooled connections that were closed by IMR,
+            // other failed requests are retried by the EndpointResilience
+            httpClient = HttpClients.custom()
+                         .setConnectionManager(connectionManager)
+                         .setDefaultRequestConfig(requestConfig)
+                         .setRetryHandler(new DefaultHttpRequestRetryHandler(1, false))
+                         .disableCookieManagement()
+                         .build();
+
+            evictionExecutor = Executors.newSingleThreadScheduledExecutor(new NamedDaemonThreadFactory(getClass().getSimpleName()));
+            evictionExecutor.scheduleWithFixedDelay(
+                this::evictIdleConnections,
+                ImrHttpConstants.IDLE_EVICTION_INTERVAL_SECONDS,
+                ImrHttpConstants.IDLE_EVICTION_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+        }
+
+        return httpClient;
+    }
+
+
+    /**
+     * Closes all connections of the pool and stops the eviction of idle connections.
+     */
+    public synchronized void shutdown()
+    {
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdownNow();
+            evictionExecutor = null;
+        }
+
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (final IOException e) {
+                LOGGER.warn(String.format(ImrHttpConstants.POOL_SHUTDOWN_ERROR, e.getMessage()));
+            }
+
+            httpClient = null;
+            connectionManager = null;
+        }
+    }
+
+
+    /**
+     * Closes connections that were closed by the server, or exceeded their
+     * keep-alive time, or were idle for longer than the idle timeout.
+     */
+    private synchronized void evictIdleConnections()
+    {
+        if (connectionManager == null)
+            return;
+
+        connectionManager.closeExpiredConnections();
+
+        if (idleTimeoutSeconds > 0)
+            connectionManager.closeIdleConnections(idleTimeoutSeconds, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,506 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.config.parameters.constants.ParameterMappingFunctions;
+import de.gerdiproject.harvest.imr.cache.CachedHttpResponse;
+import de.gerdiproject.harvest.imr.cache.HttpResponseCache;
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+import de.gerdiproject.harvest.imr.metrics.EndpointMetrics;
+import de.gerdiproject.harvest.imr.metrics.RequestMetricsRegistry;
+import de.gerdiproject.harvest.imr.utils.HashUtils;
+import de.gerdiproject.harvest.utils.data.HttpRequester;
+
+/**
+ * This {@linkplain HttpRequester} sends requests via the connections of an
+ * {@linkplain ImrConnectionPool} and can cache responses of IMR on disk. If a cache
+ * is set, requests are sent conditionally and unchanged responses are served
+ * from the cache. Every response is read completely and closed, including
+ * error responses, so that its connection returns to the pool.
+ * Requests of URLs of registered endpoints are measured by the {@linkplain RequestMetricsRegistry}.
+ * Requests that are rejected for good throw a {@linkplain PermanentRequestFailureException},
+ * so that they are not retried by the {@linkplain EndpointResilience}.
+ * If responses are read from or written to disk, in order to mock requests,
+ * HTML and JSON requests are sent by the {@linkplain HttpRequester} instead.
+ *
+ * @author Robin Weiss
+ */
+public class ImrHttpRequester extends HttpRequester
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImrHttpRequester.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Gson gson;
+    private final RequestMetricsRegistry metricsRegistry = RequestMetricsRegistry.getInstance();
+    private final BooleanParameter readFromDiskParam;
+    private final BooleanParameter writeToDiskParam;
+    private Charset charset;
+    private HttpResponseCache responseCache;
+    private ImrConnectionPool connectionPool = ImrConnectionPool.getSharedInstance();
+
+
+    /**
+     * Constructor that uses a default {@linkplain Gson} instance and UTF-8 encoding.
+     */
+    public ImrHttpRequester()
+    {
+        this(new Gson(), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Constructor that sets the JSON parser and the encoding of responses.
+     *
+     * @param gson the JSON parser of responses
+     * @param charset the encoding of responses
+     */
+    public ImrHttpRequester(final Gson gson, final Charset charset)
+    {
+        super(gson, charset);
+        this.gson = gson;
+        this.charset = charset;
+
+        // retrieve the parameters that were registered by the HttpRequester
+        this.readFromDiskParam = Configuration.registerParameter(
+                                     new BooleanParameter(
+                                         ImrHttpConstants.READ_FROM_DISK_KEY,
+                                         ImrHttpConstants.HTTP_REQUESTS_CATEGORY,
+                                         false,
+                                         ParameterMappingFunctions::mapToBoolean));
+        this.writeToDiskParam = Configuration.registerParameter(
+                                    new BooleanParameter(
+                                        ImrHttpConstants.WRITE_TO_DISK_KEY,
+                                        ImrHttpConstants.HTTP_REQUESTS_CATEGORY,
+                                        false,
+                                        ParameterMappingFunctions::mapToBoolean));
+    }
+
+
+    @Override
+    public void setCharset(final Charset charset)
+    {
+        super.setCharset(charset);
+        this.charset = charset;
+    }
+
+
+    /**
+     * Changes the pool of connections via which requests are sent.
+     * By default, the pool that is shared by all IMR ETLs is used.
+     *
+     * @param connectionPool the pool of connections via which requests are sent
+     */
+    public void setConnectionPool(final ImrConnectionPool connectionPool)
+    {
+        this.connectionPool = connectionPool;
+    }
+
+
+    /**
+     * Sets a cache for responses, or disables caching.
+     *
+     * @param responseCache the response cache, or null if responses are not to be cached
+     */
+    public void setResponseCache(final HttpResponseCache responseCache)
+    {
+        this.responseCache = responseCache;
+    }
+
+
+    @Override
+    public Document getHtmlFromUrl(final String url)
+    {
+        final EndpointMetrics endpoint = metricsRegistry.getEndpointOfUrl(url);
+        final long startTime = System.nanoTime();
+        Document document = null;
+
+        try {
+            if (isMockingRequests())
+                document = super.getHtmlFromUrl(url);
+            else {
+                final String body = getBody(url, endpoint);
+                document = body == null ? null : Jsoup.parse(body, url);
+            }
+        } finally {
+            recordRequest(endpoint, startTime, document != null);
+        }
+
+        return document;
+    }
+
+
+    /**
+     * Sends a request and parses the response as HTML, distinguishing
+     * pages that do not exist or are rejected for good from requests that failed.
+     * If requests are mocked, pages that cannot be retrieved are treated as missing.
+     *
+     * @param url the requested URL
+     *
+     * @return the parsed page, or null if the page does not exist or was rejected for good
+     *
+     * @throws IOException if the request failed, and may succeed when it is repeated
+     */
+    public Document getHtmlFromUrlIfExists(final String url) throws IOException
+    {
+        if (isMockingRequests())
+            return getHtmlFromUrl(url);
+
+        final EndpointMetrics endpoint = metricsRegistry.getEndpointOfUrl(url);
+        final long startTime = System.nanoTime();
+        boolean isSuccessful = false;
+
+        try {
+            final Document document = Jsoup.parse(readBody(url, endpoint), url);
+            isSuccessful = true;
+            return document;
+
+        } catch (final HttpStatusException e) {
+            if (e.isPermanent())
+                return null;
+
+            throw e;
+
+        } finally {
+            recordRequest(endpoint, startTime, isSuccessful);
+        }
+    }
+
+
+    @Override
+    public <T> T getObjectFromUrl(final String url, final Type targetType)
+    {
+        final EndpointMetrics endpoint = metricsRegistry.getEndpointOfUrl(url);
+        final long startTime = System.nanoTime();
+        T object = null;
+
+        try {
+            object = isMockingRequests()
+                     ? super.getObjectFromUrl(url, targetType)
+                     : parseJson(url, getBody(url, endpoint), targetType);
+        } finally {
+            recordRequest(endpoint, startTime, object != null);
+        }
+
+        return object;
+    }
+
+
+    /**
+     * Parses a response body as JSON, logging malformed responses.
+     *
+     * @param url the requested URL
+     * @param body the response body, or null if the request failed
+     * @param targetType the type of the parsed object
+     * @param <T> the type of the parsed object
+     *
+     * @return the parsed object, or null if the request failed or the response is malformed
+     */
+    private <T> T parseJson(final String url, final String body, final Type targetType)
+    {
+        if (body == null)
+            return null;
+
+        try {
+            return gson.fromJson(body, targetType);
+        } catch (final JsonParseException e) {
+            LOGGER.warn(String.format(ImrHttpConstants.REQUEST_FAILED_ERROR, url, e.getMessage()));
+            return null;
+        }
+    }
+
+
+    /**
+     * Sends a request and returns a reader of the response body, which can be
+     * processed while the response is still being received. The response is
+     * neither cached nor retrieved from the cache. Since it cannot be read from
+     * or written to disk, callers must request the URL via the other methods
+     * instead while {@linkplain #isMockingRequests()} is true. The measured
+     * latency of the request ends when the response headers are received.
+     *
+     * @param url the requested URL
+     *
+     * @return a reader of the response body, which must be closed by the caller
+     *
+     * @throws HttpStatusException if the request did not succeed
+     * @throws IOException if the request failed or returned no content
+     */
+    public Reader getReaderFromUrl(final String url) throws IOException
+    {
+        final EndpointMetrics endpoint = metricsRegistry.getEndpointOfUrl(url);
+        final long startTime = System.nanoTime();
+        boolean isSuccessful = false;
+
+        try {
+            final CloseableHttpResponse response = connectionPool.getHttpClient().execute(new HttpGet(url));
+            final HttpEntity entity = response.getEntity();
+            final int status = response.getStatusLine().getStatusCode();
+
+            if (status != HttpURLConnection.HTTP_OK) {
+                closeResponse(response);
+                throw new HttpStatusException(url, status);
+            }
+
+            // reject empty responses before reading anything
+            if (entity == null || entity.getContentLength() == 0L) {
+                closeResponse(response);
+                throw new IOException(String.format(ImrHttpConstants.EMPTY_RESPONSE_ERROR, url));
+            }
+
+            final InputStream body = new ResponseInputStream(entity.getContent(), response, endpoint);
+            isSuccessful = true;
+
+            return new BufferedReader(new InputStreamReader(body, charset), BUFFER_SIZE);
+        } finally {
+            recordRequest(endpoint, startTime, isSuccessful);
+        }
+    }
+
+
+    /**
+     * Checks if responses are read from or written to disk by the
+     * {@linkplain HttpRequester}, in which case requests must be sent by it,
+     * and responses cannot be streamed.
+     *
+     * @return true if responses are read from or written to disk
+     */
+    public boolean isMockingRequests()
+    {
+        return readFromDiskParam.getValue() || writeToDiskParam.getValue();
+    }
+
+
+    /**
+     * Sends a request and reads the response body, logging failed requests.
+     *
+     * @param url the requested URL
+     * @param endpoint the metrics of the endpoint of the URL, or null
+     *
+     * @return the response body, or null if the request failed
+     *
+     * @throws PermanentRequestFailureException if the request was rejected for good
+     */
+    private String getBody(final String url, final EndpointMetrics endpoint)
+    {
+        try {
+            return readBody(url, endpoint);
+
+        } catch (final HttpStatusException e) {
+            if (e.isPermanent())
+                throw new PermanentRequestFailureException(e);
+
+            LOGGER.warn(e.getMessage());
+            return null;
+
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(ImrHttpConstants.REQUEST_FAILED_ERROR, url, e.getMessage()));
+            return null;
+        }
+    }
+
+
+    /**
+     * Sends a request and reads the response body. If a cache is set, the request
+     * is sent conditionally and the response body is retrieved from the cache
+     * if it has not changed.
+     *
+     * @param url the requested URL
+     * @param endpoint the metrics of the endpoint of the URL, or null
+     *
+     * @return the response body
+     *
+     * @throws HttpStatusException if the request did not succeed
+     * @throws IOException if the request failed
+     */
+    private String readBody(final String url, final EndpointMetrics endpoint) throws IOException
+    {
+        final CachedHttpResponse cachedResponse = responseCache == null ? null : responseCache.get(url);
+
+        final HttpGet request = new HttpGet(url);
+
+        if (cachedResponse != null) {
+            if (cachedResponse.getETag() != null)
+                request.setHeader(ImrHttpConstants.IF_NONE_MATCH_HEADER, cachedResponse.getETag());
+
+            if (cachedResponse.getLastModified() != null)
+                request.setHeader(ImrHttpConstants.IF_MODIFIED_SINCE_HEADER, cachedResponse.getLastModified());
+        }
+
+        try
+            (CloseableHttpResponse response = connectionPool.getHttpClient().execute(request)) {
+            final HttpEntity entity = response.getEntity();
+            final int status = response.getStatusLine().getStatusCode();
+
+            // serve unchanged response from the cache
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cachedResponse != null) {
+                EntityUtils.consume(entity);
+                return new String(cachedResponse.getBody(), charset);
+            }
+
+            if (status != HttpURLConnection.HTTP_OK) {
+                EntityUtils.consume(entity);
+                throw new HttpStatusException(url, status);
+            }
+
+            final byte[] body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+
+            if (endpoint != null)
+                endpoint.addTransferredBytes(body.length);
+
+            final String eTag = getHeader(response, ImrHttpConstants.ETAG_HEADER);
+            final String lastModified = getHeader(response, ImrHttpConstants.LAST_MODIFIED_HEADER);
+
+            // only responses with validators can be requested conditionally
+            if (responseCache != null && (eTag != null || lastModified != null))
+                responseCache.put(new CachedHttpResponse(url, eTag, lastModified, HashUtils.sha256(body), body));
+
+            return new String(body, charset);
+        }
+    }
+
+
+    /**
+     * Retrieves the value of a response header.
+     *
+     * @param response the response that contains the header
+     * @param name the name of the header
+     *
+     * @return the value of the header, or null if it is missing
+     */
+    private static String getHeader(final CloseableHttpResponse response, final String name)
+    {
+        final Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+
+    /**
+     * Reads the remaining body of a response and closes it,
+     * so that its connection returns to the pool.
+     *
+     * @param response the response that is to be closed
+     *
+     * @throws IOException if the response could not be read
+     */
+    private static void closeResponse(final CloseableHttpResponse response) throws IOException
+    {
+        try
+            (CloseableHttpResponse closedResponse = response) {
+            EntityUtils.consume(closedResponse.getEntity());
+        }
+    }
+
+
+    /**
+     * Records a finished request in the metrics of its endpoint.
+     *
+     * @param endpoint the metrics of the endpoint of the request, or null
+     * @param startTime the value of {@linkplain System#nanoTime()} when the request was sent
+     * @param isSuccessful true if the request succeeded
+     */
+    private static void recordRequest(final EndpointMetrics endpoint, final long startTime, final boolean isSuccessful)
+    {
+        if (endpoint != null)
+            endpoint.recordRequest(System.nanoTime() - startTime, isSuccessful);
+    }
+
+
+    /**
+     * This stream reads a response body and closes the response when it is closed.
+     * The bytes that are read are counted in the metrics of the endpoint of the response.
+     *
+     * @author Robin Weiss
+     */
+    private static class ResponseInputStream extends FilterInputStream
+    {
+        private final CloseableHttpResponse response;
+        private final EndpointMetrics endpoint;
+
+
+        /**
+         * Constructor that wraps a response body stream.
+         *
+         * @param stream the response body stream
+         * @param response the response of the body
+         * @param endpoint the metrics of the endpoint of the response, or null
+         */
+        ResponseInputStream(final InputStream stream, final CloseableHttpResponse response, final EndpointMetrics endpoint)
+        {
+            super(stream);
+            this.response = response;
+            this.endpoint = endpoint;
+        }
+
+
+        @Override
+        public int read() throws IOException
+        {
+            final int b = super.read();
+
+            if (b != -1 && endpoint != null)
+                endpoint.addTransferredBytes(1);
+
+            return b;
+        }
+
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException
+        {
+            final int readCount = super.read(buffer, offset, length);
+
+            if (readCount > 0 && endpoint != null)
+                endpoint.addTransferredBytes(readCount);
+
+            return readCount;
+        }
+
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+                (CloseableHttpResponse closedResponse = response) {
+                super.close();
+            }
+        }
+    }
+}
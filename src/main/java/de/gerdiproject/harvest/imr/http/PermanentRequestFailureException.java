@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+/**
+ * This exception is thrown if a request was rejected for good, signaling
+ * the {@linkplain EndpointResilience} that the request is not to be repeated,
+ * and that the endpoint itself is available.
+ *
+ * @author Robin Weiss
+ */
+public class PermanentRequestFailureException extends RuntimeException
+{
+    private static final long serialVersionUID = -2745107263355478618L;
+
+
+    /**
+     * Constructor that wraps the status of the rejected request.
+     *
+     * @param cause the exception that carries the received HTTP status
+     */
+    public PermanentRequestFailureException(final HttpStatusException cause)
+    {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+import de.gerdiproject.harvest.imr.metrics.EndpointResilienceSnapshot;
+import de.gerdiproject.harvest.imr.metrics.RequestMetricsRegistry;
+
+/**
+ * This class keeps the {@linkplain EndpointResilience} of all IMR endpoints of the
+ * harvester service, so that the failures of one endpoint neither stall nor
+ * affect the requests to other endpoints. Endpoints are identified by the
+ * names that they were registered with in the {@linkplain RequestMetricsRegistry}.
+ *
+ * @author Robin Weiss
+ */
+public class RequestResilience
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestResilience.class);
+    private static final RequestResilience INSTANCE = new RequestResilience();
+
+    private final Map<String, EndpointResilience> endpoints = new ConcurrentHashMap<>();
+
+
+    /**
+     * Returns the resilience of the harvester service, which is exposed via REST.
+     *
+     * @return the resilience of the harvester service
+     */
+    public static RequestResilience getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Sets the retries and the circuit breaker of an endpoint, replacing
+     * its previous ones, including their state.
+     *
+     * @param name the name of the endpoint
+     * @param maxRetries the maximum number of retries of a failed request
+     * @param failureThreshold the number of consecutive failed requests that open the circuit,
+     *                         or a number below 1 if the circuit is never to open
+     *
+     * @return the resilience of the endpoint
+     */
+    public EndpointResilience configureEndpoint(final String name, final int maxRetries, final int failureThreshold)
+    {
+        final EndpointResilience endpoint = new EndpointResilience(
+            name,
+            maxRetries,
+            new CircuitBreaker(name, failureThreshold, ImrHttpConstants.CIRCUIT_OPEN_MILLIS),
+            new RetryBudget(ImrHttpConstants.RETRY_BUDGET_RATIO, ImrHttpConstants.RETRY_BUDGET_MAX_TOKENS));
+
+        endpoints.put(name, endpoint);
+        return endpoint;
+    }
+
+
+    /**
+     * Sends a request via the resilience of the endpoint of its URL.
+     * Requests of unconfigured endpoints are sent once.
+     *
+     * @param url the requested URL
+     * @param request a function that sends the request and returns the processed response,
+     *                or null if the request failed
+     * @param <T> the type of the processed response
+     *
+     * @return the processed response, or null if the request failed, was rejected, or was shed
+     */
+    public <T> T send(final String url, final Supplier<T> request)
+    {
+        return send(url, request, null);
+    }
+
+
+    /**
+     * Sends a request via the resilience of the endpoint of its URL, returning
+     * a specified response if the request was rejected for good.
+     * Requests of unconfigured endpoints are sent once.
+     *
+     * @param url the requested URL
+     * @param request a function that sends the request and returns the processed response,
+     *                or null if the request failed
+     * @param rejectedResponse the response that is returned if the request was rejected for good
+     * @param <T> the type of the processed response
+     *
+     * @return the processed response, the rejected response if the request was rejected,
+     *          or null if the request failed or was shed
+     */
+    public <T> T send(final String url, final Supplier<T> request, final T rejectedResponse)
+    {
+        final EndpointResilience endpoint = endpoints.get(RequestMetricsRegistry.getInstance().getEndpointNameOfUrl(url));
+
+        if (endpoint != null)
+            return endpoint.send(url, request, rejectedResponse);
+
+        try {
+            return request.get();
+        } catch (final PermanentRequestFailureException e) {
+            LOGGER.warn(e.getMessage());
+            return rejectedResponse;
+        }
+    }
+
+
+    /**
+     * Creates immutable copies of the retries and circuit states of all endpoints.
+     *
+     * @return a list of snapshots, sorted by endpoint name
+     */
+    public List<EndpointResilienceSnapshot> getSnapshots()
+    {
+        final List<EndpointResilienceSnapshot> snapshots = new ArrayList<>(endpoints.size());
+
+        for (final EndpointResilience endpoint : endpoints.values())
+            snapshots.add(endpoint.getSnapshot());
+
+        snapshots.sort((final EndpointResilienceSnapshot a, final EndpointResilienceSnapshot b) -> a.getEndpoint().compareTo(b.getEndpoint()));
+        return snapshots;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+/**
+ * This class limits the retries of failed requests to a share of all requests,
+ * so that retries cannot multiply the load on an endpoint that is failing anyway.
+ * Every request adds a fraction of a token to the budget, and every retry takes
+ * one token. The budget starts full, so that retries are possible right away.
+ *
+ * @author Robin Weiss
+ */
+public class RetryBudget
+{
+    private final double retryRatio;
+    private final double maxTokens;
+    private double tokens;
+
+
+    /**
+     * Constructor that sets the share of retries.
+     *
+     * @param retryRatio the number of retries that each request adds to the budget
+     * @param maxTokens the maximum number of retries that can be saved up
+     */
+    public RetryBudget(final double retryRatio, final double maxTokens)
+    {
+        this.retryRatio = retryRatio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+
+    /**
+     * Adds the share of a request to the budget.
+     */
+    public synchronized void recordRequest()
+    {
+        tokens = Math.min(maxTokens, tokens + retryRatio);
+    }
+
+
+    /**
+     * Takes a retry from the budget, if possible.
+     *
+     * @return true if a retry may be sent
+     */
+    public synchronized boolean tryAcquireRetry()
+    {
+        if (tokens < 1.0)
+            return false;
+
+        tokens -= 1.0;
+        return true;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * This {@linkplain Iterator} parses the elements of an array within a JSON object
+ * one at a time, while the JSON is being read. It is used for iterating large
+ * responses without keeping all of their elements in memory. The reader is closed
+ * as soon as the array is exhausted.
+ *
+ * @param <T> the type of the array elements
+ *
+ * @author Robin Weiss
+ */
+public class JsonArrayIterator<T> implements Iterator<T>, Closeable
+{
+    private final JsonReader jsonReader;
+    private final Gson gson;
+    private final Type elementType;
+    private boolean isClosed;
+
+
+    /**
+     * Constructor that positions the reader at the first element of an array.
+     *
+     * @param reader a reader of a JSON object
+     * @param arrayName the name of the array field of the JSON object
+     * @param gson the JSON parser of the array elements
+     * @param elementType the type of the array elements
+     *
+     * @throws IOException if the JSON could not be read
+     */
+    public JsonArrayIterator(final Reader reader, final String arrayName, final Gson gson, final Type elementType) throws IOException
+    {
+        this.jsonReader = new JsonReader(reader);
+        this.gson = gson;
+        this.elementType = elementType;
+
+        try {
+            if (!moveToArray(jsonReader, arrayName))
+                close();
+        } catch (final IOException | IllegalStateException e) {
+            close();
+            throw new IOException(e);
+        }
+    }
+
+
+    /**
+     * Counts the elements of an array within a JSON object
+     * without parsing them. Closes the reader afterwards.
+     *
+     * @param reader a reader of a JSON object
+     * @param arrayName the name of the array field of the JSON object
+     *
+     * @return the number of array elements, or 0 if there is no such array
+     *
+     * @throws IOException if the JSON could not be read
+     */
+    public static int countElements(final Reader reader, final String arrayName) throws IOException
+    {
+        try
+            (JsonReader countReader = new JsonReader(reader)) {
+            if (!moveToArray(countReader, arrayName))
+                return 0;
+
+            int count = 0;
+
+            while (countReader.hasNext()) {
+                countReader.skipValue();
+                count++;
+            }
+
+            return count;
+        } catch (final IllegalStateException e) {
+            throw new IOException(e);
+        }
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        if (isClosed)
+            return false;
+
+        try {
+            if (jsonReader.hasNext())
+                return true;
+
+            close();
+            return false;
+        } catch (final IOException e) {
+            close();
+            throw new JsonParseException(e);
+        }
+    }
+
+
+    @Override
+    public T next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        try {
+            return gson.fromJson(jsonReader, elementType);
+        } catch (final JsonParseException e) {
+            close();
+            throw e;
+        }
+    }
+
+
+    @Override
+    public void close()
+    {
+        if (isClosed)
+            return;
+
+        isClosed = true;
+
+        try {
+            jsonReader.close();
+        } catch (final IOException e) { // NOPMD the stream is no longer needed
+        }
+    }
+
+
+    /**
+     * Moves a reader into an array field of a JSON object, skipping all preceding fields.
+     *
+     * @param jsonReader a reader that is positioned in front of a JSON object
+     * @param arrayName the name of the array field
+     *
+     * @return true if the reader is positioned in front of the first array element,
+     *          or false if the object has no such array
+     *
+     * @throws IOException if the JSON could not be read
+     */
+    private static boolean moveToArray(final JsonReader jsonReader, final String arrayName) throws IOException
+    {
+        jsonReader.beginObject();
+
+        while (jsonReader.hasNext()) {
+            if (arrayName.equals(jsonReader.nextName()) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                jsonReader.beginArray();
+                return true;
+            }
+
+            jsonReader.skipValue();
+        }
+
+        return false;
+    }
+}
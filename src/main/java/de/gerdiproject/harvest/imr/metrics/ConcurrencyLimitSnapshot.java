@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * This value object is an immutable copy of the state of an adaptive concurrency limit.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class ConcurrencyLimitSnapshot
+{
+    private int limit;
+    private int minLimit;
+    private int maxLimit;
+    private double smoothedLatencyRatio;
+    private long increaseCount;
+    private long decreaseCount;
+    private Map<String, Double> baselineLatencyMillis;
+    private List<ConcurrencyLimitChange> history;
+}
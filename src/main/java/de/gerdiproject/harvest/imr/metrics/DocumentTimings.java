@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+
+/**
+ * This class contains the wall-clock and CPU times that a single document
+ * spent in each {@linkplain HarvestStage}. Times of the same stage may be added
+ * concurrently, for instance by multiple requests of a document.
+ *
+ * @author Robin Weiss
+ */
+public class DocumentTimings
+{
+    private final String documentId;
+    private final AtomicLongArray wallNanos = new AtomicLongArray(HarvestStage.values().length);
+    private final AtomicLongArray cpuNanos = new AtomicLongArray(HarvestStage.values().length);
+
+
+    /**
+     * Constructor that sets the identifier of the document.
+     *
+     * @param documentId the identifier of the document
+     */
+    public DocumentTimings(final String documentId)
+    {
+        this.documentId = documentId;
+    }
+
+
+    /**
+     * Returns the identifier of the document.
+     *
+     * @return the identifier of the document
+     */
+    public String getDocumentId()
+    {
+        return documentId;
+    }
+
+
+    /**
+     * Adds time that the document spent in a stage.
+     *
+     * @param stage the stage
+     * @param addedWallNanos the wall-clock time in nanoseconds
+     * @param addedCpuNanos the CPU time in nanoseconds
+     */
+    public void add(final HarvestStage stage, final long addedWallNanos, final long addedCpuNanos)
+    {
+        wallNanos.addAndGet(stage.ordinal(), addedWallNanos);
+        cpuNanos.addAndGet(stage.ordinal(), addedCpuNanos);
+    }
+
+
+    /**
+     * Adds CPU time that the document spent in a stage, without adding wall-clock time.
+     * This is useful for stages that are executed by more than one thread at once.
+     *
+     * @param stage the stage
+     * @param addedCpuNanos the CPU time in nanoseconds
+     */
+    public void addCpu(final HarvestStage stage, final long addedCpuNanos)
+    {
+        cpuNanos.addAndGet(stage.ordinal(), addedCpuNanos);
+    }
+
+
+    /**
+     * Returns the wall-clock time that the document spent in a stage.
+     *
+     * @param stage the stage
+     *
+     * @return the wall-clock time in nanoseconds
+     */
+    public long getWallNanos(final HarvestStage stage)
+    {
+        return wallNanos.get(stage.ordinal());
+    }
+
+
+    /**
+     * Returns the CPU time that the document spent in a stage.
+     *
+     * @param stage the stage
+     *
+     * @return the CPU time in nanoseconds
+     */
+    public long getCpuNanos(final HarvestStage stage)
+    {
+        return cpuNanos.get(stage.ordinal());
+    }
+
+
+    /**
+     * Returns the wall-clock time that the document spent in all stages.
+     *
+     * @return the total wall-clock time in nanoseconds
+     */
+    public long getTotalWallNanos()
+    {
+        long total = 0;
+
+        for (int i = 0; i < wallNanos.length(); i++)
+            total += wallNanos.get(i);
+
+        return total;
+    }
+
+
+    /**
+     * Returns the wall-clock times of all stages in milliseconds.
+     *
+     * @return a map of stages to wall-clock times in milliseconds
+     */
+    public Map<HarvestStage, Double> getWallMillis()
+    {
+        final Map<HarvestStage, Double> wallMillis = new EnumMap<>(HarvestStage.class);
+
+        for (final HarvestStage stage : HarvestStage.values())
+            wallMillis.put(stage, getWallNanos(stage) / ImrMetricsConstants.NANOS_PER_MILLI);
+
+        return wallMillis;
+    }
+}
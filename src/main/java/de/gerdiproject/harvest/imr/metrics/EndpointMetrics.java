@@ -0,0 +1,180 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+
+/**
+ * This class measures the requests of a single IMR endpoint, which is
+ * the set of all URLs that are created from the same URL template.
+ * All measurements can be recorded concurrently.
+ *
+ * @author Robin Weiss
+ */
+public class EndpointMetrics implements EndpointMetricsMXBean
+{
+    private final String name;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder transferredBytes = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+
+    /**
+     * Constructor that sets the name of the endpoint.
+     *
+     * @param name the name of the endpoint
+     */
+    public EndpointMetrics(final String name)
+    {
+        this.name = name;
+    }
+
+
+    /**
+     * Returns the name of the endpoint.
+     *
+     * @return the name of the endpoint
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * Records a finished request.
+     *
+     * @param latencyNanos the duration of the request in nanoseconds
+     * @param isSuccessful true if the request succeeded
+     */
+    public void recordRequest(final long latencyNanos, final boolean isSuccessful)
+    {
+        requestCount.increment();
+        totalLatencyNanos.add(latencyNanos);
+        latencies.record(latencyNanos);
+
+        if (!isSuccessful)
+            errorCount.increment();
+    }
+
+
+    /**
+     * Adds received response body bytes.
+     *
+     * @param byteCount the number of received bytes
+     */
+    public void addTransferredBytes(final long byteCount)
+    {
+        transferredBytes.add(byteCount);
+    }
+
+
+    @Override
+    public long getRequestCount()
+    {
+        return requestCount.sum();
+    }
+
+
+    @Override
+    public long getErrorCount()
+    {
+        return errorCount.sum();
+    }
+
+
+    @Override
+    public long getTransferredBytes()
+    {
+        return transferredBytes.sum();
+    }
+
+
+    @Override
+    public double getMeanLatencyMillis()
+    {
+        final long count = requestCount.sum();
+
+        return count == 0
+               ? 0.0
+               : totalLatencyNanos.sum() / ImrMetricsConstants.NANOS_PER_MILLI / count;
+    }
+
+
+    @Override
+    public long getLatencyP50Millis()
+    {
+        return latencies.getPercentileMillis(50);
+    }
+
+
+    @Override
+    public long getLatencyP95Millis()
+    {
+        return latencies.getPercentileMillis(95);
+    }
+
+
+    @Override
+    public long getLatencyP99Millis()
+    {
+        return latencies.getPercentileMillis(99);
+    }
+
+
+    @Override
+    public Map<String, Long> getLatencyHistogram()
+    {
+        return latencies.getBucketCounts();
+    }
+
+
+    @Override
+    public void reset()
+    {
+        requestCount.reset();
+        errorCount.reset();
+        transferredBytes.reset();
+        totalLatencyNanos.reset();
+        latencies.reset();
+    }
+
+
+    /**
+     * Creates an immutable copy of the current measurements.
+     *
+     * @return a snapshot of the measurements
+     */
+    public EndpointMetricsSnapshot getSnapshot()
+    {
+        return new EndpointMetricsSnapshot(
+                   name,
+                   getRequestCount(),
+                   getErrorCount(),
+                   getTransferredBytes(),
+                   getMeanLatencyMillis(),
+                   getLatencyP50Millis(),
+                   getLatencyP95Millis(),
+                   getLatencyP99Millis(),
+                   getLatencyHistogram());
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.util.Map;
+
+/**
+ * This interface exposes the {@linkplain EndpointMetrics} of an IMR endpoint via JMX.
+ *
+ * @author Robin Weiss
+ */
+public interface EndpointMetricsMXBean
+{
+    /**
+     * Returns the number of sent requests.
+     *
+     * @return the number of requests
+     */
+    long getRequestCount();
+
+
+    /**
+     * Returns the number of requests that failed or did not succeed.
+     *
+     * @return the number of failed requests
+     */
+    long getErrorCount();
+
+
+    /**
+     * Returns the number of received response body bytes.
+     * Bytes are only counted for responses that are read by the
+     * {@linkplain de.gerdiproject.harvest.imr.http.ImrHttpRequester} itself.
+     *
+     * @return the number of received bytes
+     */
+    long getTransferredBytes();
+
+
+    /**
+     * Returns the mean latency of all requests.
+     *
+     * @return the mean latency in milliseconds
+     */
+    double getMeanLatencyMillis();
+
+
+    /**
+     * Returns the estimated median latency.
+     *
+     * @return the 50th percentile of latencies in milliseconds
+     */
+    long getLatencyP50Millis();
+
+
+    /**
+     * Returns the estimated 95th percentile latency.
+     *
+     * @return the 95th percentile of latencies in milliseconds
+     */
+    long getLatencyP95Millis();
+
+
+    /**
+     * Returns the estimated 99th percentile latency.
+     *
+     * @return the 99th percentile of latencies in milliseconds
+     */
+    long getLatencyP99Millis();
+
+
+    /**
+     * Returns the number of requests per latency bucket.
+     *
+     * @return a map of bucket labels to the number of requests
+     */
+    Map<String, Long> getLatencyHistogram();
+
+
+    /**
+     * Resets all measurements.
+     */
+    void reset();
+}
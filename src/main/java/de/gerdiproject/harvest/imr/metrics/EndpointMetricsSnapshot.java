@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * This value object contains the measurements of an IMR endpoint at a point in time.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class EndpointMetricsSnapshot
+{
+    private String endpoint;
+    private long requestCount;
+    private long errorCount;
+    private long transferredBytes;
+    private double meanLatencyMillis;
+    private long latencyP50Millis;
+    private long latencyP95Millis;
+    private long latencyP99Millis;
+    private Map<String, Long> latencyHistogram;
+}
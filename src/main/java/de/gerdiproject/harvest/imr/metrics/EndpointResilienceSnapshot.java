@@ -0,0 +1,37 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import de.gerdiproject.harvest.imr.http.CircuitState;
+
+import lombok.Value;
+
+/**
+ * This value object is an immutable copy of the retries and the circuit state of an IMR endpoint.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class EndpointResilienceSnapshot
+{
+    private String endpoint;
+    private CircuitState circuitState;
+    private long circuitOpenCount;
+    private long requestCount;
+    private long retryCount;
+    private long failureCount;
+    private long shedCount;
+}
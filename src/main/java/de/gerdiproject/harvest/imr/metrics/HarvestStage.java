@@ -0,0 +1,44 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+/**
+ * This enumeration represents the stages that each harvested document passes.
+ *
+ * @author Robin Weiss
+ */
+public enum HarvestStage
+{
+    /**
+     * Requesting and receiving all responses of a document.
+     */
+    FETCH,
+
+    /**
+     * Extracting the value object from the received responses.
+     */
+    PARSE,
+
+    /**
+     * Transforming the value object to a document.
+     */
+    TRANSFORM,
+
+    /**
+     * Serializing and submitting the document by the loader.
+     */
+    LOAD
+}
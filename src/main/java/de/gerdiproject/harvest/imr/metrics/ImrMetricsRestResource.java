@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import de.gerdiproject.harvest.imr.concurrency.AdaptiveConcurrencyLimit;
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+import de.gerdiproject.harvest.imr.http.RequestResilience;
+
+/**
+ * This REST resource exposes the request metrics of all IMR endpoints
+ * of the {@linkplain RequestMetricsRegistry} of the harvester service,
+ * the stage timings of the {@linkplain StageTimingsRegistry}, the
+ * shared {@linkplain AdaptiveConcurrencyLimit}, and the retries and circuit
+ * states of the {@linkplain RequestResilience}.
+ *
+ * @author Robin Weiss
+ */
+@Path(ImrMetricsConstants.REST_PATH)
+public class ImrMetricsRestResource
+{
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+
+    /**
+     * Retrieves the request metrics of all IMR endpoints.
+     *
+     * @return a JSON array of the metrics of each endpoint
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getMetrics()
+    {
+        return GSON.toJson(RequestMetricsRegistry.getInstance().getSnapshots());
+    }
+
+
+    /**
+     * Resets the request metrics of all IMR endpoints.
+     *
+     * @return a JSON array of the reset metrics of each endpoint
+     */
+    @DELETE
+    @Produces(MediaType.APPLICATION_JSON)
+    public String resetMetrics()
+    {
+        RequestMetricsRegistry.getInstance().reset();
+        return getMetrics();
+    }
+
+
+    /**
+     * Retrieves the stage timings of all IMR ETLs.
+     *
+     * @return a JSON array of the stage timings of each ETL
+     */
+    @GET
+    @Path(ImrMetricsConstants.STAGES_REST_PATH)
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getStageTimings()
+    {
+        return GSON.toJson(StageTimingsRegistry.getInstance().getSnapshots());
+    }
+
+
+    /**
+     * Resets the stage timings of all IMR ETLs.
+     *
+     * @return a JSON array of the reset stage timings of each ETL
+     */
+    @DELETE
+    @Path(ImrMetricsConstants.STAGES_REST_PATH)
+    @Produces(MediaType.APPLICATION_JSON)
+    public String resetStageTimings()
+    {
+        StageTimingsRegistry.getInstance().reset();
+        return getStageTimings();
+    }
+
+
+    /**
+     * Retrieves the current adaptive concurrency limit that is shared by all
+     * IMR ETLs, and the history of its changes.
+     *
+     * @return a JSON object of the concurrency limit
+     */
+    @GET
+    @Path(ImrMetricsConstants.CONCURRENCY_REST_PATH)
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getConcurrencyLimit()
+    {
+        return GSON.toJson(AdaptiveConcurrencyLimit.getSharedInstance().getSnapshot());
+    }
+
+
+    /**
+     * Retrieves the retries and circuit states of all IMR endpoints.
+     *
+     * @return a JSON array of the retries and circuit state of each endpoint
+     */
+    @GET
+    @Path(ImrMetricsConstants.RESILIENCE_REST_PATH)
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getResilience()
+    {
+        return GSON.toJson(RequestResilience.getInstance().getSnapshots());
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+
+/**
+ * This class counts latencies in buckets of exponentially growing upper bounds.
+ * Recording a latency is lock-free and does not allocate memory.
+ *
+ * @author Robin Weiss
+ */
+public class LatencyHistogram
+{
+    private final long[] boundsNanos;
+    private final AtomicLongArray counts;
+
+
+    /**
+     * Constructor that creates the buckets of {@linkplain ImrMetricsConstants#LATENCY_BUCKET_BOUNDS_MILLIS},
+     * and an overflow bucket for longer latencies.
+     */
+    public LatencyHistogram()
+    {
+        final long[] boundsMillis = ImrMetricsConstants.LATENCY_BUCKET_BOUNDS_MILLIS;
+        this.boundsNanos = new long[boundsMillis.length];
+
+        for (int i = 0; i < boundsMillis.length; i++)
+            boundsNanos[i] = TimeUnit.MILLISECONDS.toNanos(boundsMillis[i]);
+
+        this.counts = new AtomicLongArray(boundsNanos.length + 1);
+    }
+
+
+    /**
+     * Counts a latency in its bucket.
+     *
+     * @param latencyNanos the latency in nanoseconds
+     */
+    public void record(final long latencyNanos)
+    {
+        int bucket = 0;
+
+        while (bucket < boundsNanos.length && latencyNanos > boundsNanos[bucket])
+            bucket++;
+
+        counts.incrementAndGet(bucket);
+    }
+
+
+    /**
+     * Estimates a percentile of all recorded latencies as the upper bound
+     * of the bucket that contains it.
+     *
+     * @param percentile the percentile between 0 and 100
+     *
+     * @return the estimated percentile in milliseconds, the lower bound of the overflow
+     * bucket if the percentile lies within it, or 0 if nothing was recorded
+     */
+    public long getPercentileMillis(final double percentile)
+    {
+        long total = 0;
+
+        for (int i = 0; i < counts.length(); i++)
+            total += counts.get(i);
+
+        if (total == 0)
+            return 0;
+
+        final long rank = (long) Math.ceil(total * percentile / 100.0);
+        final long[] boundsMillis = ImrMetricsConstants.LATENCY_BUCKET_BOUNDS_MILLIS;
+        long cumulativeCount = 0;
+
+        for (int i = 0; i < boundsMillis.length; i++) {
+            cumulativeCount += counts.get(i);
+
+            if (cumulativeCount >= rank)
+                return boundsMillis[i];
+        }
+
+        return boundsMillis[boundsMillis.length - 1];
+    }
+
+
+    /**
+     * Returns the number of latencies of each bucket.
+     *
+     * @return a map of bucket labels to the number of latencies, in the order of the buckets
+     */
+    public Map<String, Long> getBucketCounts()
+    {
+        final long[] boundsMillis = ImrMetricsConstants.LATENCY_BUCKET_BOUNDS_MILLIS;
+        final Map<String, Long> bucketCounts = new LinkedHashMap<>();
+
+        for (int i = 0; i < boundsMillis.length; i++)
+            bucketCounts.put(String.format(ImrMetricsConstants.LATENCY_BUCKET_LABEL, boundsMillis[i]), counts.get(i));
+
+        bucketCounts.put(
+            String.format(ImrMetricsConstants.OVERFLOW_BUCKET_LABEL, boundsMillis[boundsMillis.length - 1]),
+            counts.get(boundsMillis.length));
+
+        return bucketCounts;
+    }
+
+
+    /**
+     * Removes all recorded latencies.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+    }
+}
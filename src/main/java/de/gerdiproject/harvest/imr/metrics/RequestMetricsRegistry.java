@@ -0,0 +1,191 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.imr.constants.ImrHttpConstants;
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+
+/**
+ * This class collects the {@linkplain EndpointMetrics} of all IMR endpoints
+ * of the harvester service. Endpoints are registered with the template of
+ * their URLs, and requested URLs are mapped to their endpoints by the constant
+ * prefix of the templates. The metrics of each endpoint are also registered as
+ * an MXBean of the platform MBean server.
+ *
+ * @author Robin Weiss
+ */
+public class RequestMetricsRegistry
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestMetricsRegistry.class);
+    private static final char PLACEHOLDER_PREFIX = '%';
+    private static final RequestMetricsRegistry INSTANCE = new RequestMetricsRegistry(true);
+
+    private final boolean isRegisteringMXBeans;
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, EndpointMetrics> endpointsByUrlPrefix = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor that decides whether the metrics are exposed via JMX.
+     *
+     * @param isRegisteringMXBeans if true, the metrics of all endpoints are registered as MXBeans
+     */
+    public RequestMetricsRegistry(final boolean isRegisteringMXBeans)
+    {
+        this.isRegisteringMXBeans = isRegisteringMXBeans;
+    }
+
+
+    /**
+     * Returns the registry of the harvester service, which is exposed via JMX and REST.
+     *
+     * @return the registry of the harvester service
+     */
+    public static RequestMetricsRegistry getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Registers an endpoint, unless it was registered before.
+     *
+     * @param name the name of the endpoint
+     * @param urlTemplate a format string of all URLs of the endpoint
+     *
+     * @return the metrics of the endpoint
+     */
+    public EndpointMetrics registerEndpoint(final String name, final String urlTemplate)
+    {
+        final EndpointMetrics metrics = endpoints.computeIfAbsent(name, this::createEndpoint);
+        final int placeholderIndex = urlTemplate.indexOf(PLACEHOLDER_PREFIX);
+        final String urlPrefix = placeholderIndex == -1 ? urlTemplate : urlTemplate.substring(0, placeholderIndex);
+
+        endpointsByUrlPrefix.putIfAbsent(urlPrefix, metrics);
+        return metrics;
+    }
+
+
+    /**
+     * Retrieves the metrics of the endpoint of a URL. If more than one endpoint
+     * matches, the one with the longest URL prefix is chosen.
+     *
+     * @param url a requested URL
+     *
+     * @return the metrics of the endpoint, or null if no endpoint matches the URL
+     */
+    public EndpointMetrics getEndpointOfUrl(final String url)
+    {
+        EndpointMetrics metrics = null;
+        int matchLength = -1;
+
+        for (final Map.Entry<String, EndpointMetrics> entry : endpointsByUrlPrefix.entrySet()) {
+            final String urlPrefix = entry.getKey();
+
+            if (urlPrefix.length() > matchLength && url.startsWith(urlPrefix)) {
+                metrics = entry.getValue();
+                matchLength = urlPrefix.length();
+            }
+        }
+
+        return metrics;
+    }
+
+
+    /**
+     * Retrieves the name of the endpoint of a URL.
+     *
+     * @param url a requested URL
+     *
+     * @return the name of the endpoint, or a placeholder name if no endpoint matches the URL
+     */
+    public String getEndpointNameOfUrl(final String url)
+    {
+        final EndpointMetrics metrics = getEndpointOfUrl(url);
+
+        return metrics == null
+               ? ImrHttpConstants.UNKNOWN_ENDPOINT
+               : metrics.getName();
+    }
+
+
+    /**
+     * Creates immutable copies of the metrics of all endpoints.
+     *
+     * @return a list of snapshots, sorted by endpoint name
+     */
+    public List<EndpointMetricsSnapshot> getSnapshots()
+    {
+        final List<EndpointMetricsSnapshot> snapshots = new ArrayList<>(endpoints.size());
+
+        for (final EndpointMetrics metrics : endpoints.values())
+            snapshots.add(metrics.getSnapshot());
+
+        snapshots.sort((final EndpointMetricsSnapshot a, final EndpointMetricsSnapshot b) -> a.getEndpoint().compareTo(b.getEndpoint()));
+        return snapshots;
+    }
+
+
+    /**
+     * Resets the measurements of all endpoints.
+     */
+    public void reset()
+    {
+        for (final EndpointMetrics metrics : endpoints.values())
+            metrics.reset();
+    }
+
+
+    /**
+     * Creates the metrics of an endpoint and registers them via JMX.
+     *
+     * @param name the name of the endpoint
+     *
+     * @return the metrics of the endpoint
+     */
+    private EndpointMetrics createEndpoint(final String name)
+    {
+        final EndpointMetrics metrics = new EndpointMetrics(name);
+
+        if (isRegisteringMXBeans) {
+            try {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                final ObjectName objectName = new ObjectName(String.format(ImrMetricsConstants.JMX_OBJECT_NAME, ObjectName.quote(name)));
+
+                if (!server.isRegistered(objectName))
+                    server.registerMBean(metrics, objectName);
+
+            } catch (final JMException e) {
+                LOGGER.warn(String.format(ImrMetricsConstants.JMX_REGISTRATION_FAILED_ERROR, name, e.getMessage()));
+            }
+        }
+
+        return metrics;
+    }
+}
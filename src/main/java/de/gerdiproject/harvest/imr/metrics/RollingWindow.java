@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.util.Arrays;
+
+/**
+ * This class keeps the most recent samples of a measurement,
+ * in order to calculate percentiles of the recent past.
+ *
+ * @author Robin Weiss
+ */
+public class RollingWindow
+{
+    private final long[] samples;
+    private int nextIndex;
+    private int sampleCount;
+
+
+    /**
+     * Constructor that sets the maximum number of kept samples.
+     *
+     * @param capacity the maximum number of kept samples
+     */
+    public RollingWindow(final int capacity)
+    {
+        this.samples = new long[capacity];
+    }
+
+
+    /**
+     * Adds a sample, replacing the oldest sample if the window is full.
+     *
+     * @param sample the added sample
+     */
+    public synchronized void add(final long sample)
+    {
+        samples[nextIndex] = sample;
+        nextIndex = (nextIndex + 1) % samples.length;
+
+        if (sampleCount < samples.length)
+            sampleCount++;
+    }
+
+
+    /**
+     * Calculates a percentile of the kept samples, using the nearest-rank method.
+     *
+     * @param percentiles the percentiles between 0 and 100
+     *
+     * @return the sample values at the percentiles, or zeros if there are no samples
+     */
+    public long[] getPercentiles(final double... percentiles)
+    {
+        final long[] sortedSamples;
+
+        synchronized (this) {
+            sortedSamples = Arrays.copyOf(samples, sampleCount);
+        }
+
+        Arrays.sort(sortedSamples);
+
+        final long[] values = new long[percentiles.length];
+
+        if (sortedSamples.length > 0) {
+            for (int i = 0; i < percentiles.length; i++) {
+                final int rank = (int) Math.ceil(sortedSamples.length * percentiles[i] / 100.0);
+                values[i] = sortedSamples[Math.max(0, rank - 1)];
+            }
+        }
+
+        return values;
+    }
+
+
+    /**
+     * Removes all samples.
+     */
+    public synchronized void clear()
+    {
+        nextIndex = 0;
+        sampleCount = 0;
+    }
+}
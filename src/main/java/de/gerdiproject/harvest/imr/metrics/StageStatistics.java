@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import lombok.Value;
+
+/**
+ * This value object contains the measured times of a {@linkplain HarvestStage}
+ * at a point in time. Percentiles refer to the most recent documents only.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class StageStatistics
+{
+    private long documentCount;
+    private double totalWallMillis;
+    private double totalCpuMillis;
+    private double meanWallMillis;
+    private double wallP50Millis;
+    private double wallP95Millis;
+    private double wallP99Millis;
+}
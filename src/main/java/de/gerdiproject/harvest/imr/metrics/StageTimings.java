@@ -0,0 +1,318 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+
+/**
+ * This class measures the wall-clock and CPU times that the documents of an ETL
+ * spend in each {@linkplain HarvestStage}. Documents are measured by the extractor,
+ * handed over to the transformer by their identifiers, and finished when the
+ * loader requests the next document. The times of the most recent documents
+ * are kept for calculating percentiles, and the slowest documents are kept
+ * until the measurements are reset.
+ *
+ * @author Robin Weiss
+ */
+public class StageTimings
+{
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final Comparator<DocumentTimings> BY_TOTAL_WALL_TIME =
+        Comparator.comparingLong((final DocumentTimings timings) -> timings.getTotalWallNanos());
+
+    private final String etlName;
+    private final int slowestDocumentCount;
+    private final Map<String, DocumentTimings> pendingDocuments = new ConcurrentHashMap<>();
+    private final Map<HarvestStage, RollingWindow> recentWallNanos = new EnumMap<>(HarvestStage.class);
+    private final Map<HarvestStage, LongAdder> totalWallNanos = new EnumMap<>(HarvestStage.class);
+    private final Map<HarvestStage, LongAdder> totalCpuNanos = new EnumMap<>(HarvestStage.class);
+    private final Map<HarvestStage, LongAdder> stageCounts = new EnumMap<>(HarvestStage.class);
+    private final LongAdder documentCount = new LongAdder();
+    private final PriorityQueue<DocumentTimings> slowestDocuments;
+
+    private volatile DocumentTimings loadingDocument;
+    private volatile long loadStartWallNanos;
+    private volatile long loadStartCpuNanos;
+
+
+    /**
+     * Constructor that sets up the measurements of all stages.
+     *
+     * @param etlName the name of the measured ETL
+     * @param windowSize the number of recent documents of which percentiles are calculated
+     * @param slowestDocumentCount the number of slowest documents that are kept
+     */
+    public StageTimings(final String etlName, final int windowSize, final int slowestDocumentCount)
+    {
+        this.etlName = etlName;
+        this.slowestDocumentCount = slowestDocumentCount;
+        this.slowestDocuments = new PriorityQueue<>(slowestDocumentCount + 1, BY_TOTAL_WALL_TIME);
+
+        for (final HarvestStage stage : HarvestStage.values()) {
+            recentWallNanos.put(stage, new RollingWindow(windowSize));
+            totalWallNanos.put(stage, new LongAdder());
+            totalCpuNanos.put(stage, new LongAdder());
+            stageCounts.put(stage, new LongAdder());
+        }
+    }
+
+
+    /**
+     * Returns the CPU time of the current thread, if the JVM supports measuring it.
+     *
+     * @return the CPU time of the current thread in nanoseconds, or 0 if it cannot be measured
+     */
+    public static long getCurrentCpuNanos()
+    {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+               ? THREAD_MX_BEAN.getCurrentThreadCpuTime()
+               : 0L;
+    }
+
+
+    /**
+     * Adds the timings of an extracted document, in order to continue its
+     * measurement as soon as it is transformed. If a document with the same
+     * identifier is still pending, its timings are replaced.
+     *
+     * @param timings the timings of the document
+     */
+    public void addPending(final DocumentTimings timings)
+    {
+        pendingDocuments.put(timings.getDocumentId(), timings);
+    }
+
+
+    /**
+     * Retrieves and removes the timings of an extracted document, in order to
+     * continue its measurement in a later stage.
+     *
+     * @param documentId the identifier of the document
+     *
+     * @return the timings of the document, or null if it is not pending
+     */
+    public DocumentTimings takeDocument(final String documentId)
+    {
+        return pendingDocuments.remove(documentId);
+    }
+
+
+    /**
+     * Adds the time that passed since the beginning of a stage to a document.
+     *
+     * @param timings the timings of the document, or null if the document is not measured
+     * @param stage the stage that ended
+     * @param startWallNanos the {@linkplain System#nanoTime()} at the beginning of the stage
+     * @param startCpuNanos the {@linkplain #getCurrentCpuNanos()} at the beginning of the stage
+     */
+    public static void endStage(final DocumentTimings timings, final HarvestStage stage, final long startWallNanos, final long startCpuNanos)
+    {
+        if (timings != null)
+            timings.add(stage, System.nanoTime() - startWallNanos, getCurrentCpuNanos() - startCpuNanos);
+    }
+
+
+    /**
+     * Marks a transformed document as being loaded. The loading ends when the
+     * loader requests the next document from the iterator returned by
+     * {@linkplain #measureLoading(Iterator)}.
+     *
+     * @param timings the timings of the document, or null if the document is not measured
+     */
+    public void beginLoad(final DocumentTimings timings)
+    {
+        endLoad();
+
+        if (timings != null) {
+            loadStartWallNanos = System.nanoTime();
+            loadStartCpuNanos = getCurrentCpuNanos();
+            loadingDocument = timings;
+        }
+    }
+
+
+    /**
+     * Ends the loading of the document that is currently being loaded, if there
+     * is one, and finishes its measurement.
+     */
+    public void endLoad()
+    {
+        final DocumentTimings timings = loadingDocument;
+
+        if (timings != null) {
+            loadingDocument = null;
+            endStage(timings, HarvestStage.LOAD, loadStartWallNanos, loadStartCpuNanos);
+            finishDocument(timings);
+        }
+    }
+
+
+    /**
+     * Wraps an {@linkplain Iterator} of extracted documents, in order to end the
+     * loading of the previous document whenever the loader requests the next document.
+     *
+     * @param extractedDocuments the extracted documents
+     * @param <T> the type of the extracted documents
+     *
+     * @return an iterator that ends the loading of documents
+     */
+    public <T> Iterator<T> measureLoading(final Iterator<T> extractedDocuments)
+    {
+        return new Iterator<T>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                endLoad();
+                return extractedDocuments.hasNext();
+            }
+
+
+            @Override
+            public T next()
+            {
+                endLoad();
+                return extractedDocuments.next();
+            }
+        };
+    }
+
+
+    /**
+     * Finishes the measurement of a document, adding its times to the statistics
+     * of all stages that it passed.
+     *
+     * @param timings the timings of the document, or null if the document is not measured
+     */
+    public void finishDocument(final DocumentTimings timings)
+    {
+        if (timings == null)
+            return;
+
+        for (final HarvestStage stage : HarvestStage.values()) {
+            final long wallNanos = timings.getWallNanos(stage);
+
+            // skip stages that the document did not pass
+            if (wallNanos == 0)
+                continue;
+
+            recentWallNanos.get(stage).add(wallNanos);
+            totalWallNanos.get(stage).add(wallNanos);
+            totalCpuNanos.get(stage).add(timings.getCpuNanos(stage));
+            stageCounts.get(stage).increment();
+        }
+
+        documentCount.increment();
+
+        synchronized (slowestDocuments) {
+            slowestDocuments.add(timings);
+
+            if (slowestDocuments.size() > slowestDocumentCount)
+                slowestDocuments.poll();
+        }
+    }
+
+
+    /**
+     * Discards the timings of all documents that were extracted, but not finished.
+     */
+    public void clearPending()
+    {
+        pendingDocuments.clear();
+        loadingDocument = null;
+    }
+
+
+    /**
+     * Creates an immutable copy of the measurements.
+     *
+     * @return a snapshot of the measurements
+     */
+    public StageTimingsSnapshot getSnapshot()
+    {
+        final Map<HarvestStage, StageStatistics> stages = new EnumMap<>(HarvestStage.class);
+
+        for (final HarvestStage stage : HarvestStage.values()) {
+            final long count = stageCounts.get(stage).sum();
+            final long wallNanos = totalWallNanos.get(stage).sum();
+            final long[] percentiles = recentWallNanos.get(stage).getPercentiles(50, 95, 99);
+
+            stages.put(stage, new StageStatistics(
+                           count,
+                           wallNanos / ImrMetricsConstants.NANOS_PER_MILLI,
+                           totalCpuNanos.get(stage).sum() / ImrMetricsConstants.NANOS_PER_MILLI,
+                           count == 0 ? 0.0 : wallNanos / ImrMetricsConstants.NANOS_PER_MILLI / count,
+                           percentiles[0] / ImrMetricsConstants.NANOS_PER_MILLI,
+                           percentiles[1] / ImrMetricsConstants.NANOS_PER_MILLI,
+                           percentiles[2] / ImrMetricsConstants.NANOS_PER_MILLI));
+        }
+
+        final List<DocumentTimings> slowest;
+
+        synchronized (slowestDocuments) {
+            slowest = new ArrayList<>(slowestDocuments);
+        }
+
+        slowest.sort(BY_TOTAL_WALL_TIME.reversed());
+
+        final List<SlowDocumentSnapshot> slowestSnapshots = new ArrayList<>(slowest.size());
+
+        for (final DocumentTimings timings : slowest)
+            slowestSnapshots.add(new SlowDocumentSnapshot(
+                                     timings.getDocumentId(),
+                                     timings.getTotalWallNanos() / ImrMetricsConstants.NANOS_PER_MILLI,
+                                     timings.getWallMillis()));
+
+        return new StageTimingsSnapshot(
+                   etlName,
+                   documentCount.sum(),
+                   pendingDocuments.size(),
+                   stages,
+                   slowestSnapshots);
+    }
+
+
+    /**
+     * Resets all measurements, except for those of pending documents.
+     */
+    public void reset()
+    {
+        for (final HarvestStage stage : HarvestStage.values()) {
+            recentWallNanos.get(stage).clear();
+            totalWallNanos.get(stage).reset();
+            totalCpuNanos.get(stage).reset();
+            stageCounts.get(stage).reset();
+        }
+
+        documentCount.reset();
+
+        synchronized (slowestDocuments) {
+            slowestDocuments.clear();
+        }
+    }
+}
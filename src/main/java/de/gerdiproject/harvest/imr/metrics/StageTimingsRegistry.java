@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+
+/**
+ * This class collects the {@linkplain StageTimings} of all ETLs of the harvester service.
+ *
+ * @author Robin Weiss
+ */
+public class StageTimingsRegistry
+{
+    private static final StageTimingsRegistry INSTANCE = new StageTimingsRegistry();
+
+    private final Map<String, StageTimings> etls = new ConcurrentHashMap<>();
+
+
+    /**
+     * Returns the registry of the harvester service, which is exposed via REST.
+     *
+     * @return the registry of the harvester service
+     */
+    public static StageTimingsRegistry getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Retrieves the stage timings of an ETL, creating them if they do not exist yet.
+     *
+     * @param etlName the name of the ETL
+     *
+     * @return the stage timings of the ETL
+     */
+    public StageTimings getTimingsOfEtl(final String etlName)
+    {
+        return etls.computeIfAbsent(
+                   etlName,
+                   (final String name) -> new StageTimings(
+                       name,
+                       ImrMetricsConstants.STAGE_WINDOW_SIZE,
+                       ImrMetricsConstants.SLOWEST_DOCUMENT_COUNT));
+    }
+
+
+    /**
+     * Creates immutable copies of the stage timings of all ETLs.
+     *
+     * @return a list of snapshots, sorted by ETL name
+     */
+    public List<StageTimingsSnapshot> getSnapshots()
+    {
+        final List<StageTimingsSnapshot> snapshots = new ArrayList<>(etls.size());
+
+        for (final StageTimings timings : etls.values())
+            snapshots.add(timings.getSnapshot());
+
+        snapshots.sort((final StageTimingsSnapshot a, final StageTimingsSnapshot b) -> a.getEtl().compareTo(b.getEtl()));
+        return snapshots;
+    }
+
+
+    /**
+     * Resets the stage timings of all ETLs.
+     */
+    public void reset()
+    {
+        for (final StageTimings timings : etls.values())
+            timings.reset();
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a format string with string (%s) and decimal (%d) placeholders,
+ * that is split into its literal parts only once. Filling in the placeholders requires
+ * a single, sufficiently sized {@linkplain StringBuilder}, instead of the
+ * parsing and formatting overhead of {@linkplain String#format(String, Object...)}.
+ *
+ * @author Robin Weiss
+ */
+public class FormatTemplate
+{
+    private static final char PLACEHOLDER_PREFIX = '%';
+    private static final String PLACEHOLDER_TYPES = "sd";
+    private static final int INT_LENGTH_ESTIMATE = 11;
+    private static final String UNSUPPORTED_FORMAT_ERROR = "Unsupported format '%s': only %%s and %%d are allowed!";
+    private static final String ARGUMENT_COUNT_ERROR = "Format '%s' has %d placeholders, but %d values were provided!";
+
+    private final String format;
+    private final String[] literals;
+    private final int literalLength;
+
+
+    /**
+     * Constructor that splits a format string into its literal parts.
+     *
+     * @param format a format string that contains only %s and %d placeholders
+     *
+     * @throws IllegalArgumentException if the format contains other format specifiers
+     */
+    public FormatTemplate(final String format)
+    {
+        this.format = format;
+        this.literals = split(format);
+
+        int length = 0;
+
+        for (final String literal : literals)
+            length += literal.length();
+
+        this.literalLength = length;
+    }
+
+
+    /**
+     * Fills in the only placeholder of the format.
+     *
+     * @param value the value of the placeholder
+     *
+     * @return the formatted string
+     */
+    public String format(final String value)
+    {
+        assertPlaceholderCount(1);
+        return new StringBuilder(literalLength + value.length())
+               .append(literals[0]).append(value)
+               .append(literals[1])
+               .toString();
+    }
+
+
+    /**
+     * Fills in the only placeholder of the format.
+     *
+     * @param value the value of the placeholder
+     *
+     * @return the formatted string
+     */
+    public String format(final int value)
+    {
+        assertPlaceholderCount(1);
+        return new StringBuilder(literalLength + INT_LENGTH_ESTIMATE)
+               .append(literals[0]).append(value)
+               .append(literals[1])
+               .toString();
+    }
+
+
+    /**
+     * Fills in both placeholders of the format.
+     *
+     * @param first the value of the first placeholder
+     * @param second the value of the second placeholder
+     *
+     * @return the formatted string
+     */
+    public String format(final String first, final int second)
+    {
+        assertPlaceholderCount(2);
+        return new StringBuilder(literalLength + first.length() + INT_LENGTH_ESTIMATE)
+               .append(literals[0]).append(first)
+               .append(literals[1]).append(second)
+               .append(literals[2])
+               .toString();
+    }
+
+
+    /**
+     * Verifies that the format has the expected number of placeholders.
+     *
+     * @param valueCount the number of provided values
+     *
+     * @throws IllegalArgumentException if the number of placeholders differs
+     */
+    private void assertPlaceholderCount(final int valueCount)
+    {
+        if (literals.length - 1 != valueCount)
+            throw new IllegalArgumentException(String.format(ARGUMENT_COUNT_ERROR, format, literals.length - 1, valueCount));
+    }
+
+
+    /**
+     * Splits a format string at its placeholders.
+     *
+     * @param format a format string that contains only %s and %d placeholders
+     *
+     * @return the literal parts of the format, which are one more than the placeholders
+     *
+     * @throws IllegalArgumentException if the format contains other format specifiers
+     */
+    private static String[] split(final String format)
+    {
+        final List<String> parts = new ArrayList<>();
+        int literalStart = 0;
+        int placeholderStart = format.indexOf(PLACEHOLDER_PREFIX);
+
+        while (placeholderStart != -1) {
+            final int typeIndex = placeholderStart + 1;
+
+            if (typeIndex == format.length() || PLACEHOLDER_TYPES.indexOf(format.charAt(typeIndex)) == -1)
+                throw new IllegalArgumentException(String.format(UNSUPPORTED_FORMAT_ERROR, format));
+
+            parts.add(format.substring(literalStart, placeholderStart));
+            literalStart = typeIndex + 1;
+            placeholderStart = format.indexOf(PLACEHOLDER_PREFIX, literalStart);
+        }
+
+        parts.add(format.substring(literalStart));
+        return parts.toArray(new String[parts.size()]);
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class offers static methods for calculating content hashes.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class HashUtils
+{
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+
+    /**
+     * Calculates the SHA-256 hash of a byte array.
+     *
+     * @param bytes the bytes that are to be hashed
+     *
+     * @return the hash as a lower case hexadecimal String
+     */
+    public static String sha256(final byte[] bytes)
+    {
+        return toHex(createDigest().digest(bytes));
+    }
+
+
+    /**
+     * Calculates the SHA-256 hash of the UTF-8 bytes of a String.
+     *
+     * @param text the String that is to be hashed
+     *
+     * @return the hash as a lower case hexadecimal String
+     */
+    public static String sha256(final String text)
+    {
+        return sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Creates a new SHA-256 {@linkplain MessageDigest}.
+     *
+     * @return a new SHA-256 {@linkplain MessageDigest}
+     */
+    public static MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Converts bytes to a lower case hexadecimal String.
+     *
+     * @param bytes the bytes that are to be converted
+     *
+     * @return a lower case hexadecimal String
+     */
+    public static String toHex(final byte[] bytes)
+    {
+        final char[] hex = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.utils;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * This class represents one of several disjoint partitions of a sequence of
+ * elements, allowing multiple harvester instances to harvest separate parts
+ * of a repository. Elements are identified either by non-negative numbers,
+ * such as IDs, which are distributed round-robin (modulo) or in contiguous
+ * ranges of equal size, or by string keys, which are distributed by their hash.
+ * Since all instances use the same partitioning, the union of all shards is
+ * the complete sequence.
+ *
+ * @author Robin Weiss
+ */
+public class Shard
+{
+    private static final String INVALID_SHARD_ERROR = "Invalid shard %d of %d: the index must be between 0 and %d!";
+    private static final String SHARD_NAME = "%s-shard%dof%d";
+
+    private final int index;
+    private final int count;
+    private final boolean isPartitionedByRange;
+
+
+    /**
+     * Constructor that defines the partitioning and the partition of the shard.
+     *
+     * @param index the zero-based index of the shard
+     * @param count the number of shards
+     * @param isPartitionedByRange if true, shards are contiguous ranges of elements,
+     *                             otherwise elements are distributed by their remainder
+     *
+     * @throws IllegalArgumentException if the index is not within the shard count
+     */
+    public Shard(final int index, final int count, final boolean isPartitionedByRange)
+    {
+        if (count < 1 || index < 0 || index >= count)
+            throw new IllegalArgumentException(String.format(INVALID_SHARD_ERROR, index, count, count - 1));
+
+        this.index = index;
+        this.count = count;
+        this.isPartitionedByRange = isPartitionedByRange;
+    }
+
+
+    /**
+     * Returns true if the shard contains all elements.
+     *
+     * @return true if there is only one shard
+     */
+    public boolean isComplete()
+    {
+        return count == 1;
+    }
+
+
+    /**
+     * Checks if an element belongs to the shard. If shards are ranges,
+     * elements past the partitioned sequence belong to the last shard.
+     *
+     * @param element a non-negative element number
+     * @param elementCount the length of the partitioned sequence
+     *
+     * @return true if the element belongs to the shard
+     */
+    public boolean contains(final int element, final int elementCount)
+    {
+        if (count == 1)
+            return true;
+
+        if (!isPartitionedByRange)
+            return element % count == index;
+
+        final int rangeIndex = element >= elementCount
+                               ? count - 1
+                               : (int)((long) element * count / elementCount);
+        return rangeIndex == index;
+    }
+
+
+    /**
+     * Counts the elements of a sequence that belong to the shard.
+     *
+     * @param elementCount the length of the partitioned sequence
+     *
+     * @return the number of elements that belong to the shard
+     */
+    public int size(final int elementCount)
+    {
+        if (count == 1 || elementCount <= 0)
+            return Math.max(elementCount, 0);
+
+        if (!isPartitionedByRange)
+            return index < elementCount ? (elementCount - index + count - 1) / count : 0;
+
+        return getRangeStart(index + 1, elementCount) - getRangeStart(index, elementCount);
+    }
+
+
+    /**
+     * Checks if an element that is identified by a string key belongs to the shard.
+     * Keys are distributed by their hash, regardless of the partitioning of numbers.
+     * Since the hash of a string is only derived from its characters, a key belongs
+     * to the same shard in every harvester instance, and regardless of its position
+     * or the presence of other elements.
+     *
+     * @param key the key of an element
+     *
+     * @return true if the element belongs to the shard
+     */
+    public boolean contains(final String key)
+    {
+        return count == 1 || Math.floorMod(key.hashCode(), count) == index;
+    }
+
+
+    /**
+     * Iterates through the elements of a sequence that belong to the shard,
+     * identifying elements by a string key.
+     *
+     * @param elements the elements of the sequence
+     * @param keyFunction a function that retrieves the key of an element
+     * @param <T> the type of the elements
+     *
+     * @return an iterator of the elements that belong to the shard
+     *
+     * @see #contains(String)
+     */
+    public <T> Iterator<T> filter(final Iterator<T> elements, final Function<T, String> keyFunction)
+    {
+        return count == 1 ? elements : new ShardIterator<>(elements, keyFunction);
+    }
+
+
+    /**
+     * Creates a name that is unique for each shard, in order to separate
+     * the files of different shards. The name of a complete shard is unchanged.
+     *
+     * @param name a name that is shared by all shards
+     *
+     * @return a name that is unique for the shard
+     */
+    public String getUniqueName(final String name)
+    {
+        return count == 1 ? name : String.format(SHARD_NAME, name, index + 1, count);
+    }
+
+
+    /**
+     * Calculates the first element of a range shard.
+     *
+     * @param rangeIndex the index of the shard
+     * @param elementCount the length of the partitioned sequence
+     *
+     * @return the first element of the range
+     */
+    private int getRangeStart(final int rangeIndex, final int elementCount)
+    {
+        // the smallest element e with floor(e * count / elementCount) >= rangeIndex
+        return (int)(((long) rangeIndex * elementCount + count - 1) / count);
+    }
+
+
+    /**
+     * This class represents an {@linkplain Iterator} that skips all elements
+     * that do not belong to the shard.
+     *
+     * @param <T> the type of the elements
+     *
+     * @author Robin Weiss
+     */
+    private class ShardIterator<T> implements Iterator<T>
+    {
+        private final Iterator<T> elements;
+        private final Function<T, String> keyFunction;
+        private T nextElement;
+        private boolean hasNextElement;
+
+
+        /**
+         * Constructor that sets the filtered elements.
+         *
+         * @param elements the elements of the sequence
+         * @param keyFunction a function that retrieves the key of an element
+         */
+        ShardIterator(final Iterator<T> elements, final Function<T, String> keyFunction)
+        {
+            this.elements = elements;
+            this.keyFunction = keyFunction;
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            while (!hasNextElement && elements.hasNext()) {
+                final T element = elements.next();
+
+                if (contains(keyFunction.apply(element))) {
+                    nextElement = element;
+                    hasNextElement = true;
+                }
+            }
+
+            return hasNextElement;
+        }
+
+
+        @Override
+        public T next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final T element = nextElement;
+            nextElement = null;
+            hasNextElement = false;
+            return element;
+        }
+    }
+}
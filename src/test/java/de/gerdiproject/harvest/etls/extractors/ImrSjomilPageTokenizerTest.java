@@ -0,0 +1,133 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.jsoup.Jsoup;
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ImrSjomilPageTokenizer}.
+ *
+ * @author Robin Weiss
+ */
+public class ImrSjomilPageTokenizerTest
+{
+    private static final String VIEW_PAGE_RESOURCE = "/de/gerdiproject/harvest/etls/transformers/ImrSjomilTransformerTest/inputViewPage.html";
+    private static final String EDGE_CASE_PAGE = "<!-- <div class=\"right-margin\">Area:</div> -->"
+                                                 + "<div class='x right-margin'> Dataset  name: </div>"
+                                                 + "<div class=\"left_margin\">A &amp; B<br>C</div>"
+                                                 + "<div class=\"right-margin\">Long description:</div>"
+                                                 + "<div class=left_margin><span><a title=\"x>y\" href=\"http://mo.ck/?a=1&amp;b=2\">L</a></span></div>"
+                                                 + "<div class=\"right-margin\">Area:</div><p>x</p><div class=\"left_margin\">ignored</div>"
+                                                 + "<select id=\"date1\"><option>2001<option>2002<option> 2003 </select>";
+    private static final String EMPTY_PAGE = "<div class=\"right-margin\">Dataset name:</div><div class=\"left_margin\"></div>"
+                                             + "<div class=\"right-margin\">Description:</div><div class=\"left_margin\"> </div>"
+                                             + "<div class=\"right-margin\">Area:</div><div class=\"left_margin\">unread</div>";
+
+
+    /**
+     * Tests if the tokenizer extracts the same fields as the
+     * {@linkplain ImrSjomilFieldExtractor} from a view page.
+     *
+     * @throws IOException if the view page could not be read
+     */
+    @Test
+    public void testSameFieldsAsFieldExtractor() throws IOException
+    {
+        final String html = readResource(VIEW_PAGE_RESOURCE);
+        final Map<ImrSjomilField, String> expectedFields = ImrSjomilFieldExtractor.extract(Jsoup.parse(html));
+
+        assertFalse(expectedFields.isEmpty());
+        assertEquals(expectedFields, ImrSjomilPageTokenizer.extract(new StringReader(html)));
+    }
+
+
+    /**
+     * Tests if comments, entities, implicitly closed options, and values
+     * that do not directly succeed their labels are handled like the
+     * {@linkplain ImrSjomilFieldExtractor} handles them.
+     *
+     * @throws IOException if the view page could not be read
+     */
+    @Test
+    public void testEdgeCases() throws IOException
+    {
+        final Map<ImrSjomilField, String> expectedFields = ImrSjomilFieldExtractor.extract(Jsoup.parse(EDGE_CASE_PAGE));
+
+        assertEquals(expectedFields, ImrSjomilPageTokenizer.extract(new StringReader(EDGE_CASE_PAGE)));
+    }
+
+
+    /**
+     * Tests if the empty page template of a non-existing dataset is recognized,
+     * and if the fields that follow the empty dataset name and description are not read.
+     *
+     * @throws IOException if the view page could not be read
+     */
+    @Test
+    public void testEmptyPage() throws IOException
+    {
+        final Map<ImrSjomilField, String> fields = ImrSjomilPageTokenizer.extract(new StringReader(EMPTY_PAGE));
+
+        assertTrue(ImrSjomilFieldExtractor.isEmptyPage(fields));
+        assertFalse(fields.containsKey(ImrSjomilField.AREA));
+    }
+
+
+    /**
+     * Tests if the view page of an existing dataset is not considered empty.
+     *
+     * @throws IOException if the view page could not be read
+     */
+    @Test
+    public void testNonEmptyPage() throws IOException
+    {
+        final String html = readResource(VIEW_PAGE_RESOURCE);
+
+        assertFalse(ImrSjomilFieldExtractor.isEmptyPage(ImrSjomilPageTokenizer.extract(new StringReader(html))));
+    }
+
+
+    /**
+     * Reads a test resource as text.
+     *
+     * @param resourcePath the path of the resource
+     *
+     * @return the content of the resource
+     *
+     * @throws IOException if the resource could not be read
+     */
+    private String readResource(final String resourcePath) throws IOException
+    {
+        try
+            (BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream(resourcePath), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+}
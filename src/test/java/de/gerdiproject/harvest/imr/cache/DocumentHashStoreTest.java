@@ -0,0 +1,165 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain DocumentHashStore}.
+ *
+ * @author Robin Weiss
+ */
+public class DocumentHashStoreTest
+{
+    private File hashFile;
+    private File removedIdsFile;
+    private DocumentHashStore store;
+
+
+    /**
+     * Creates a store that contains the documents A and B of a complete harvest.
+     *
+     * @throws IOException if the temporary files could not be created
+     */
+    @Before
+    public void before() throws IOException
+    {
+        hashFile = Files.createTempFile(getClass().getSimpleName(), ".bin").toFile();
+        removedIdsFile = Files.createTempFile(getClass().getSimpleName(), ".txt").toFile();
+        Files.delete(hashFile.toPath());
+
+        store = new DocumentHashStore(hashFile, removedIdsFile);
+        store.load();
+        store.update("A", "hashA");
+        store.update("B", "hashB");
+        store.markLoaded();
+        store.save(true);
+    }
+
+
+    /**
+     * Removes the temporary files.
+     *
+     * @throws IOException if a file could not be deleted
+     */
+    @After
+    public void after() throws IOException
+    {
+        Files.deleteIfExists(hashFile.toPath());
+        Files.deleteIfExists(removedIdsFile.toPath());
+    }
+
+
+    /**
+     * Tests if only changed and added documents are reported as changed,
+     * and if missing documents are reported as removed.
+     *
+     * @throws IOException if the file of removed documents could not be read
+     */
+    @Test
+    public void testChanges() throws IOException
+    {
+        final DocumentHashStore loadedStore = new DocumentHashStore(hashFile, removedIdsFile);
+        loadedStore.load();
+
+        assertFalse(loadedStore.update("A", "hashA"));
+        assertTrue(loadedStore.update("C", "hashC"));
+        assertEquals(Arrays.asList("B"), loadedStore.getRemovedIds());
+
+        loadedStore.markLoaded();
+        loadedStore.save(true);
+        assertEquals(Arrays.asList("B"), Files.readAllLines(removedIdsFile.toPath()));
+    }
+
+
+    /**
+     * Tests if an incomplete harvest does not replace the hashes of the last complete harvest.
+     */
+    @Test
+    public void testIncompleteHarvest()
+    {
+        store.update("A", "changedHashA");
+        store.save(false);
+
+        final DocumentHashStore loadedStore = new DocumentHashStore(hashFile, removedIdsFile);
+        loadedStore.load();
+
+        assertTrue(loadedStore.update("A", "changedHashA"));
+        assertFalse(loadedStore.update("B", "hashB"));
+    }
+
+
+    /**
+     * Tests if the hash of a changed document that was not loaded is not saved,
+     * so that the document is considered changed by the next harvest,
+     * and if the document is not reported as removed.
+     */
+    @Test
+    public void testUnloadedDocument()
+    {
+        store.load();
+        store.update("A", "hashA");
+        store.update("B", "changedHashB");
+
+        assertEquals(Arrays.asList(), store.getRemovedIds());
+        store.save(true);
+
+        final DocumentHashStore loadedStore = new DocumentHashStore(hashFile, removedIdsFile);
+        loadedStore.load();
+
+        assertFalse(loadedStore.update("A", "hashA"));
+        assertTrue(loadedStore.update("B", "changedHashB"));
+    }
+
+
+    /**
+     * Tests if documents are marked as loaded when the loader requests the
+     * next source element, but not before.
+     */
+    @Test
+    public void testTrackLoading()
+    {
+        store.load();
+
+        final Iterator<String> sourceIter = store.trackLoading(Arrays.asList("A", "B").iterator());
+        sourceIter.next();
+        store.update("A", "changedHashA");
+        sourceIter.next();
+        store.update("B", "changedHashB");
+
+        // the loader fails to load document B, so it never requests the next element
+        store.save(true);
+
+        final DocumentHashStore loadedStore = new DocumentHashStore(hashFile, removedIdsFile);
+        loadedStore.load();
+
+        assertFalse(loadedStore.update("A", "changedHashA"));
+        assertTrue(loadedStore.update("B", "changedHashB"));
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain HarvestCheckpoint}.
+ *
+ * @author Robin Weiss
+ */
+public class HarvestCheckpointTest
+{
+    private static final List<String> SOURCE = Arrays.asList("a", "b", "c", "d");
+
+    private File checkpointFile;
+
+
+    /**
+     * Creates a path for a temporary checkpoint file.
+     *
+     * @throws IOException if the temporary file could not be created
+     */
+    @Before
+    public void before() throws IOException
+    {
+        checkpointFile = Files.createTempFile(getClass().getSimpleName(), ".bin").toFile();
+        Files.delete(checkpointFile.toPath());
+    }
+
+
+    /**
+     * Deletes the temporary checkpoint file.
+     *
+     * @throws IOException if the file could not be deleted
+     */
+    @After
+    public void after() throws IOException
+    {
+        Files.deleteIfExists(checkpointFile.toPath());
+    }
+
+
+    /**
+     * Tests if a document is marked as loaded only when the next document is requested,
+     * even if the source elements were requested ahead of the loader.
+     */
+    @Test
+    public void testTracking()
+    {
+        final HarvestCheckpoint checkpoint = new HarvestCheckpoint(checkpointFile, 0);
+        final Iterator<String> documents = checkpoint.trackLoading(requestAhead(checkpoint));
+
+        assertEquals("A", documents.next());
+        assertNull(checkpoint.getLastLoadedKey());
+
+        assertTrue(documents.hasNext());
+        assertEquals("a", checkpoint.getLastLoadedKey());
+
+        documents.next();
+        documents.next();
+        assertEquals("b", checkpoint.getLastLoadedKey());
+        assertEquals(2, checkpoint.getLoadedCount());
+    }
+
+
+    /**
+     * Tests if the progress is saved as soon as the first document is loaded,
+     * and if the saved progress can be loaded.
+     */
+    @Test
+    public void testSaveAndLoad()
+    {
+        final HarvestCheckpoint checkpoint = new HarvestCheckpoint(checkpointFile, 1);
+        final Iterator<String> documents = checkpoint.trackLoading(requestAhead(checkpoint));
+
+        documents.next();
+        documents.next();
+        assertTrue(checkpointFile.exists());
+
+        documents.next();
+        checkpoint.save();
+
+        final HarvestCheckpoint loadedCheckpoint = new HarvestCheckpoint(checkpointFile, 1);
+        loadedCheckpoint.load();
+
+        assertFalse(loadedCheckpoint.isEmpty());
+        assertEquals("b", loadedCheckpoint.getLastLoadedKey());
+        assertEquals(2, loadedCheckpoint.getLoadedCount());
+    }
+
+
+    /**
+     * Tests if a disabled checkpoint is neither saved nor loaded.
+     */
+    @Test
+    public void testDisabled()
+    {
+        final HarvestCheckpoint checkpoint = new HarvestCheckpoint(checkpointFile, 0);
+        final Iterator<String> documents = checkpoint.trackLoading(requestAhead(checkpoint));
+
+        documents.next();
+        documents.next();
+        checkpoint.save();
+        assertFalse(checkpointFile.exists());
+
+        checkpoint.load();
+        assertTrue(checkpoint.isEmpty());
+    }
+
+
+    /**
+     * Tests if deleting the checkpoint of a complete harvest removes the file.
+     */
+    @Test
+    public void testDelete()
+    {
+        final HarvestCheckpoint checkpoint = new HarvestCheckpoint(checkpointFile, 1);
+        final Iterator<String> documents = checkpoint.trackLoading(requestAhead(checkpoint));
+
+        while (documents.hasNext())
+            documents.next();
+
+        checkpoint.save();
+        assertTrue(checkpointFile.exists());
+
+        checkpoint.delete();
+        assertFalse(checkpointFile.exists());
+        assertTrue(checkpoint.isEmpty());
+    }
+
+
+    /**
+     * Requests all source elements before any document is loaded, the way
+     * a prefetching extractor does, and creates a document of each element.
+     *
+     * @param checkpoint the checkpoint that tracks the requests
+     *
+     * @return an iterator of the upper case source elements
+     */
+    private static Iterator<String> requestAhead(final HarvestCheckpoint checkpoint)
+    {
+        final Iterator<String> requests = checkpoint.trackRequests(SOURCE.iterator(), (final String element) -> element);
+        final List<String> documents = new ArrayList<>();
+
+        while (requests.hasNext())
+            documents.add(requests.next().toUpperCase());
+
+        return documents.iterator();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.imr.utils.HashUtils;
+
+/**
+ * This class provides Unit Tests for the {@linkplain HttpResponseCache}.
+ *
+ * @author Robin Weiss
+ */
+public class HttpResponseCacheTest
+{
+    private static final int BODY_SIZE = 1000;
+    private static final String URL_PREFIX = "http://localhost/test?id=";
+
+    private File cacheFolder;
+
+
+    /**
+     * Creates a temporary cache folder.
+     *
+     * @throws IOException if the folder could not be created
+     */
+    @Before
+    public void before() throws IOException
+    {
+        cacheFolder = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+    }
+
+
+    /**
+     * Removes the cache folder and all of its files.
+     *
+     * @throws IOException if a file could not be deleted
+     */
+    @After
+    public void after() throws IOException
+    {
+        final File[] cacheFiles = cacheFolder.listFiles();
+
+        if (cacheFiles != null) {
+            for (final File cacheFile : cacheFiles)
+                Files.delete(cacheFile.toPath());
+        }
+
+        Files.delete(cacheFolder.toPath());
+    }
+
+
+    /**
+     * Tests if a stored response can be retrieved by a new cache instance.
+     */
+    @Test
+    public void testPutAndGet()
+    {
+        final CachedHttpResponse response = createResponse(1);
+        new HttpResponseCache(cacheFolder, Long.MAX_VALUE).put(response);
+
+        final HttpResponseCache loadedCache = new HttpResponseCache(cacheFolder, Long.MAX_VALUE);
+        loadedCache.load();
+        final CachedHttpResponse loadedResponse = loadedCache.get(response.getUrl());
+
+        assertNotNull(loadedResponse);
+        assertEquals(response.getETag(), loadedResponse.getETag());
+        assertArrayEquals(response.getBody(), loadedResponse.getBody());
+    }
+
+
+    /**
+     * Tests if the least recently used response is evicted when the
+     * size limit is exceeded.
+     */
+    @Test
+    public void testEviction()
+    {
+        final HttpResponseCache cache = new HttpResponseCache(cacheFolder, (long)(2.5 * BODY_SIZE));
+        cache.put(createResponse(1));
+        cache.put(createResponse(2));
+
+        // use the first response, so the second one becomes the eldest
+        assertNotNull(cache.get(URL_PREFIX + 1));
+        cache.put(createResponse(3));
+
+        assertNotNull(cache.get(URL_PREFIX + 1));
+        assertNull(cache.get(URL_PREFIX + 2));
+        assertNotNull(cache.get(URL_PREFIX + 3));
+    }
+
+
+    /**
+     * Creates a response with a body that consists of a single repeated byte.
+     *
+     * @param id a number that is appended to the URL and used as body content
+     *
+     * @return a response with a body of {@value #BODY_SIZE} bytes
+     */
+    private CachedHttpResponse createResponse(final int id)
+    {
+        final byte[] body = new byte[BODY_SIZE];
+        Arrays.fill(body, (byte) id);
+
+        return new CachedHttpResponse(URL_PREFIX + id, "\"etag" + id + "\"", null, HashUtils.sha256(body), body);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.imr.constants.ImrCacheConstants;
+import de.gerdiproject.harvest.imr.utils.Shard;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ImrSjomilIdIndex}.
+ *
+ * @author Robin Weiss
+ */
+public class ImrSjomilIdIndexTest
+{
+    private static final long NOW = TimeUnit.DAYS.toMillis(20000);
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private File indexFile;
+    private ImrSjomilIdIndex index;
+
+
+    /**
+     * Creates an index with the IDs 1 and 3 existing, ID 2 missing
+     * since an hour ago and ID 4 missing since a day ago.
+     *
+     * @throws IOException if the temporary file could not be created
+     */
+    @Before
+    public void before() throws IOException
+    {
+        indexFile = Files.createTempFile(getClass().getSimpleName(), ".bin").toFile();
+        Files.delete(indexFile.toPath());
+
+        index = new ImrSjomilIdIndex(indexFile);
+        index.markExisting(1, NOW);
+        index.markExisting(3, NOW);
+        index.markMissing(2, NOW - ONE_HOUR);
+        index.markMissing(4, NOW - TimeUnit.DAYS.toMillis(1));
+    }
+
+
+    /**
+     * Removes the index file.
+     *
+     * @throws IOException if the index file could not be deleted
+     */
+    @After
+    public void after() throws IOException
+    {
+        Files.deleteIfExists(indexFile.toPath());
+    }
+
+
+    /**
+     * Tests if existing IDs are scheduled first, followed by unknown IDs
+     * and IDs that were missing before the re-probe interval.
+     */
+    @Test
+    public void testSchedule()
+    {
+        final int[] schedule = index.createSchedule(6, 2 * ONE_HOUR, NOW);
+        assertArrayEquals(new int[] {1, 3, 0, 4, 5}, schedule);
+    }
+
+
+    /**
+     * Tests if an index that is saved and loaded again retains all entries.
+     */
+    @Test
+    public void testSaveAndLoad()
+    {
+        index.save();
+
+        final ImrSjomilIdIndex loadedIndex = new ImrSjomilIdIndex(indexFile);
+        loadedIndex.load();
+
+        assertEquals(2, loadedIndex.getExistingCount());
+        assertEquals(3, loadedIndex.getHighestExistingId());
+        assertTrue(loadedIndex.isExisting(1));
+        assertTrue(loadedIndex.isMissing(2));
+        assertFalse(loadedIndex.isMissing(0));
+        assertArrayEquals(index.createSchedule(6, 2 * ONE_HOUR, NOW), loadedIndex.createSchedule(6, 2 * ONE_HOUR, NOW));
+    }
+
+
+    /**
+     * Tests if the indexes of shards that share a cache folder
+     * do not overwrite each other.
+     *
+     * @throws IOException if the temporary files could not be created or deleted
+     */
+    @Test
+    public void testShardIndexes() throws IOException
+    {
+        final int shardCount = 2;
+        final int idCount = 10;
+        final File cacheFolder = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+
+        try {
+            for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+                final Shard shard = new Shard(shardIndex, shardCount, false);
+                final ImrSjomilIdIndex shardIdIndex = new ImrSjomilIdIndex(
+                    new File(cacheFolder, shard.getUniqueName(ImrCacheConstants.SJOMIL_ID_INDEX_NAME)));
+
+                for (int id = 0; id < idCount; id++) {
+                    if (shard.contains(id, idCount))
+                        shardIdIndex.markExisting(id, NOW);
+                }
+
+                shardIdIndex.save();
+            }
+
+            for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+                final Shard shard = new Shard(shardIndex, shardCount, false);
+                final ImrSjomilIdIndex loadedIndex = new ImrSjomilIdIndex(
+                    new File(cacheFolder, shard.getUniqueName(ImrCacheConstants.SJOMIL_ID_INDEX_NAME)));
+                loadedIndex.load();
+
+                assertEquals(shard.size(idCount), loadedIndex.getExistingCount());
+
+                for (int id = 0; id < idCount; id++)
+                    assertEquals(shard.contains(id, idCount), loadedIndex.isExisting(id));
+            }
+        } finally {
+            for (final File file : cacheFolder.listFiles())
+                Files.delete(file.toPath());
+
+            Files.delete(cacheFolder.toPath());
+        }
+    }
+}
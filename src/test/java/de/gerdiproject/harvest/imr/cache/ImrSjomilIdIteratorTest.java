@@ -0,0 +1,265 @@
+/**
+ * Copyright © 2019 Robin Weiss (http://www.gerdi-project.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ImrSjomilIdIterator}.
+ *
+ * @author Robin Weiss
+ */
+public class ImrSjomilIdIteratorTest
+{
+    private static final List<Integer> EXISTING_IDS = Arrays.asList(1, 3, 4);
+    private static final int MAX_CONSECUTIVE_MISSING_IDS = 2;
+    private static final long REPROBE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private File indexFile;
+    private File checkpointFile;
+
+
+    /**
+     * Creates an index file in which the IDs 1 and 3 exist,
+     * and a path for a temporary checkpoint file.
+     *
+     * @throws IOException if the temporary files could not be created
+     */
+    @Before
+    public void before() throws IOException
+    {
+        indexFile = Files.createTempFile(getClass().getSimpleName(), ".bin").toFile();
+        checkpointFile = Files.createTempFile(getClass().getSimpleName(), ".bin").toFile();
+        Files.delete(indexFile.toPath());
+        Files.delete(checkpointFile.toPath());
+
+        final ImrSjomilIdIndex index = new ImrSjomilIdIndex(indexFile);
+        index.markExisting(1, System.currentTimeMillis());
+        index.markExisting(3, System.currentTimeMillis());
+        index.save();
+    }
+
+
+    /**
+     * Deletes the temporary files.
+     *
+     * @throws IOException if the files could not be deleted
+     */
+    @After
+    public void after() throws IOException
+    {
+        Files.deleteIfExists(indexFile.toPath());
+        Files.deleteIfExists(checkpointFile.toPath());
+    }
+
+
+    /**
+     * Tests if a complete harvest requests the scheduled IDs, beginning with
+     * existing IDs, and continues past the schedule when new IDs are found.
+     */
+    @Test
+    public void testIteration()
+    {
+        final ImrSjomilIdIndex index = loadIndex();
+        final ImrSjomilIdIterator ids = createIterator(index);
+
+        assertEquals(Arrays.asList(1, 3, 0, 2, 4, 5, 6), harvest(ids, ids, index, Integer.MAX_VALUE));
+    }
+
+
+    /**
+     * Tests if a harvest that was interrupted after a missing ID was loaded
+     * is resumed with the next ID that is not known to exist, even though
+     * the missing ID is no longer scheduled.
+     */
+    @Test
+    public void testResumeAfterMissingId()
+    {
+        final ImrSjomilIdIndex index = loadIndex();
+        final HarvestCheckpoint checkpoint = new HarvestCheckpoint(checkpointFile, 1);
+        final ImrSjomilIdIterator idIterator = createIterator(index);
+        final Iterator<Integer> ids = checkpoint.trackRequests(idIterator, String::valueOf);
+        final Iterator<Integer> documents = checkpoint.trackLoading(ids);
+
+        // interrupt the harvest after the missing ID 2 was loaded
+        assertEquals(Arrays.asList(1, 3, 0, 2), harvest(documents, idIterator, index, 4));
+        assertTrue(documents.hasNext());
+        checkpoint.save();
+        index.save();
+
+        // resume the harvest
+        final ImrSjomilIdIndex resumedIndex = loadIndex();
+        final HarvestCheckpoint resumedCheckpoint = new HarvestCheckpoint(checkpointFile, 1);
+        resumedCheckpoint.load();
+        assertEquals("2", resumedCheckpoint.getLastLoadedKey());
+
+        final ImrSjomilIdIterator resumedIds = createIterator(resumedIndex);
+        assertTrue(resumedIds.skipPast(Integer.parseInt(resumedCheckpoint.getLastLoadedKey())));
+        assertEquals(Arrays.asList(4, 5, 6), harvest(resumedIds, resumedIds, resumedIndex, Integer.MAX_VALUE));
+    }
+
+
+    /**
+     * Tests if a harvest is resumed after an ID that was requested past the schedule.
+     */
+    @Test
+    public void testResumeAfterUnscheduledId()
+    {
+        final ImrSjomilIdIndex index = loadIndex();
+        final ImrSjomilIdIterator ids = createIterator(index);
+
+        // the interrupted harvest found ID 6 past the schedule
+        index.markExisting(6, System.currentTimeMillis());
+
+        assertTrue(ids.skipPast(6));
+        assertEquals(Arrays.asList(7, 8), harvest(ids, ids, index, Integer.MAX_VALUE));
+    }
+
+
+    /**
+     * Tests if a harvest is not resumed after an existing ID that is not scheduled,
+     * because it belongs to a different shard.
+     */
+    @Test
+    public void testResumeAfterIdOfOtherShard()
+    {
+        final ImrSjomilIdIndex index = loadIndex();
+        final ImrSjomilIdIterator ids = new ImrSjomilIdIterator(
+            index,
+            new int[] {1, 3},
+            6,
+            MAX_CONSECUTIVE_MISSING_IDS,
+            (final int id) -> id % 2 == 1);
+
+        assertFalse(ids.skipPast(2));
+        assertTrue(ids.skipPast(1));
+        assertEquals(Integer.valueOf(3), ids.next());
+    }
+
+
+    /**
+     * Tests if the iteration past the schedule waits for pending requests,
+     * which may find existing IDs that extend the iteration.
+     *
+     * @throws InterruptedException if the test was interrupted
+     */
+    @Test
+    public void testWaitForPendingRequests() throws InterruptedException
+    {
+        final ImrSjomilIdIndex index = loadIndex();
+        final ImrSjomilIdIterator ids = createIterator(index);
+
+        // the IDs 4 and 5 are still pending when the schedule ends
+        assertEquals(Arrays.asList(1, 3, 0, 2), harvest(ids, ids, index, 4));
+        assertEquals(Integer.valueOf(4), ids.next());
+        assertEquals(Integer.valueOf(5), ids.next());
+
+        final Thread requestThread = new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(100);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            index.markExisting(4, System.currentTimeMillis());
+            ids.markFinished();
+            index.markMissing(5, System.currentTimeMillis());
+            ids.markFinished();
+        });
+        requestThread.start();
+
+        // the existing ID 4 extends the iteration
+        assertTrue(ids.hasNext());
+        assertEquals(Integer.valueOf(6), ids.next());
+        requestThread.join();
+    }
+
+
+    /**
+     * Loads the index from its file.
+     *
+     * @return the loaded index
+     */
+    private ImrSjomilIdIndex loadIndex()
+    {
+        final ImrSjomilIdIndex index = new ImrSjomilIdIndex(indexFile);
+        index.load();
+        return index;
+    }
+
+
+    /**
+     * Creates an iterator of all IDs that are scheduled by an index,
+     * as if the harvest was not sharded.
+     *
+     * @param index the index that schedules the IDs
+     *
+     * @return an iterator of all IDs that are to be requested
+     */
+    private static ImrSjomilIdIterator createIterator(final ImrSjomilIdIndex index)
+    {
+        final int idScheduleBound = index.getHighestExistingId() + MAX_CONSECUTIVE_MISSING_IDS + 1;
+        final int[] idSchedule = index.createSchedule(idScheduleBound, REPROBE_INTERVAL, System.currentTimeMillis());
+
+        return new ImrSjomilIdIterator(index, idSchedule, idScheduleBound, MAX_CONSECUTIVE_MISSING_IDS, (final int id) -> true);
+    }
+
+
+    /**
+     * Requests IDs as a harvest would, marking them as existing
+     * or missing in the index, and marking their requests as finished.
+     *
+     * @param ids the IDs that are to be requested
+     * @param idIterator the iterator that returns the IDs, or that is wrapped by them
+     * @param index the index in which the IDs are marked
+     * @param maxIds the maximum number of IDs that are requested
+     *
+     * @return the requested IDs in the order in which they were requested
+     */
+    private static List<Integer> harvest(final Iterator<Integer> ids, final ImrSjomilIdIterator idIterator, final ImrSjomilIdIndex index, final int maxIds)
+    {
+        final List<Integer> requestedIds = new ArrayList<>();
+
+        while (requestedIds.size() < maxIds && ids.hasNext()) {
+            final int id = ids.next();
+
+            if (EXISTING_IDS.contains(id))
+                index.markExisting(id, System.currentTimeMillis());
+            else
+                index.markMissing(id, System.currentTimeMillis());
+
+            idIterator.markFinished();
+            requestedIds.add(id);
+        }
+
+        return requestedIds;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ImrStationDateCache}.
+ *
+ * @author Robin Weiss
+ */
+public class ImrStationDateCacheTest
+{
+    private static final String STATION_ID = "1337";
+    private static final List<String> DATES_OF_2000 = Arrays.asList("31.12.2000", "29.02.2000", "01.01.2000");
+
+    private File cacheFile;
+    private ImrStationDateCache cache;
+
+
+    /**
+     * Creates an empty cache.
+     *
+     * @throws IOException if the temporary file could not be created
+     */
+    @Before
+    public void before() throws IOException
+    {
+        cacheFile = Files.createTempFile(getClass().getSimpleName(), ".bin").toFile();
+        Files.delete(cacheFile.toPath());
+
+        cache = new ImrStationDateCache(cacheFile);
+    }
+
+
+    /**
+     * Removes the cache file.
+     *
+     * @throws IOException if the cache file could not be deleted
+     */
+    @After
+    public void after() throws IOException
+    {
+        Files.deleteIfExists(cacheFile.toPath());
+    }
+
+
+    /**
+     * Tests if cached dates are restored in their original order
+     * after saving and loading the cache.
+     */
+    @Test
+    public void testSaveAndLoad()
+    {
+        cache.putDates(STATION_ID, 2000, DATES_OF_2000);
+        cache.save();
+
+        final ImrStationDateCache loadedCache = new ImrStationDateCache(cacheFile);
+        loadedCache.load();
+
+        assertEquals(DATES_OF_2000, loadedCache.getDates(STATION_ID, 2000));
+        assertNull(loadedCache.getDates(STATION_ID, 2001));
+    }
+
+
+    /**
+     * Tests if dates are not cached if one of them does not belong to the specified year.
+     */
+    @Test
+    public void testDateOfOtherYear()
+    {
+        cache.putDates(STATION_ID, 2001, DATES_OF_2000);
+
+        assertNull(cache.getDates(STATION_ID, 2001));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.imr.metrics.ConcurrencyLimitChange;
+import de.gerdiproject.harvest.imr.metrics.LimitChangeReason;
+
+/**
+ * This class provides Unit Tests for the {@linkplain AdaptiveConcurrencyLimit}.
+ *
+ * @author Robin Weiss
+ */
+public class AdaptiveConcurrencyLimitTest
+{
+    private static final String ENDPOINT = "endpoint";
+    private static final String SLOW_ENDPOINT = "slowEndpoint";
+    private static final long LATENCY_NANOS = 10_000_000L;
+    private static final int MAX_LIMIT = 16;
+
+
+    /**
+     * Tests if the limit is raised up to its upper bound while the latency stays flat.
+     */
+    @Test
+    public void testIncreaseWhileLatencyIsFlat()
+    {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(MAX_LIMIT);
+
+        for (int i = 0; i < 1000; i++)
+            limit.update(ENDPOINT, LATENCY_NANOS, true, limit.getLimit());
+
+        assertEquals(MAX_LIMIT, limit.getLimit());
+        assertEquals(LimitChangeReason.INCREASE, getLastChange(limit).getReason());
+    }
+
+
+    /**
+     * Tests if the limit is not raised while it is not used.
+     */
+    @Test
+    public void testNoIncreaseWhileUnused()
+    {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(MAX_LIMIT);
+        final int initialLimit = limit.getLimit();
+
+        for (int i = 0; i < 1000; i++)
+            limit.update(ENDPOINT, LATENCY_NANOS, true, 1);
+
+        assertEquals(initialLimit, limit.getLimit());
+    }
+
+
+    /**
+     * Tests if the limit is halved once per window of failed requests.
+     */
+    @Test
+    public void testDecreaseOnFailure()
+    {
+        final AdaptiveConcurrencyLimit limit = raiseToMaxLimit();
+
+        // the remaining failures of the same window must not lower the limit again
+        for (int i = 0; i < MAX_LIMIT; i++)
+            limit.update(ENDPOINT, LATENCY_NANOS, false, MAX_LIMIT);
+
+        assertEquals(MAX_LIMIT / 2, limit.getLimit());
+        assertEquals(LimitChangeReason.FAILURE, getLastChange(limit).getReason());
+
+        limit.update(ENDPOINT, LATENCY_NANOS, false, MAX_LIMIT);
+        assertEquals(MAX_LIMIT / 4, limit.getLimit());
+    }
+
+
+    /**
+     * Tests if the limit is lowered when the latency rises above the tolerance.
+     */
+    @Test
+    public void testDecreaseOnRisingLatency()
+    {
+        final AdaptiveConcurrencyLimit limit = raiseToMaxLimit();
+
+        for (int i = 0; i < 10; i++)
+            limit.update(ENDPOINT, LATENCY_NANOS * 10, true, MAX_LIMIT);
+
+        assertTrue(limit.getLimit() < MAX_LIMIT);
+        assertTrue(limit.getSmoothedLatencyRatio() > 2.0);
+        assertEquals(LimitChangeReason.LATENCY, getLastChange(limit).getReason());
+    }
+
+
+    /**
+     * Tests if slower endpoints are compared to their own baseline latency,
+     * rather than being mistaken for rising latency.
+     */
+    @Test
+    public void testBaselinePerEndpoint()
+    {
+        final AdaptiveConcurrencyLimit limit = raiseToMaxLimit();
+
+        for (int i = 0; i < 100; i++) {
+            limit.update(ENDPOINT, LATENCY_NANOS, true, MAX_LIMIT);
+            limit.update(SLOW_ENDPOINT, LATENCY_NANOS * 10, true, MAX_LIMIT);
+        }
+
+        assertEquals(MAX_LIMIT, limit.getLimit());
+        assertEquals(10.0, limit.getBaselineLatencyMillis().get(ENDPOINT), 0.001);
+        assertEquals(100.0, limit.getBaselineLatencyMillis().get(SLOW_ENDPOINT), 0.001);
+    }
+
+
+    /**
+     * Tests if the limit never falls below its lower bound.
+     */
+    @Test
+    public void testMinLimit()
+    {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(MAX_LIMIT);
+
+        for (int i = 0; i < 100; i++)
+            limit.update(ENDPOINT, LATENCY_NANOS, false, 1);
+
+        assertEquals(limit.getMinLimit(), limit.getLimit());
+    }
+
+
+    /**
+     * Tests if lowering the upper bound lowers the limit.
+     */
+    @Test
+    public void testLoweredMaxLimit()
+    {
+        final AdaptiveConcurrencyLimit limit = raiseToMaxLimit();
+        limit.setMaxLimit(MAX_LIMIT / 2);
+
+        assertEquals(MAX_LIMIT / 2, limit.getLimit());
+        assertEquals(LimitChangeReason.CONFIGURATION, getLastChange(limit).getReason());
+    }
+
+
+    /**
+     * Tests if a connection limiter adopts the adapted limit when connections are released.
+     */
+    @Test
+    public void testConnectionLimiter()
+    {
+        final ConnectionLimiter limiter = new ConnectionLimiter(MAX_LIMIT);
+        final AdaptiveConcurrencyLimit limit = raiseToMaxLimit();
+        limiter.setAdaptiveLimit(limit);
+
+        for (int i = 0; i < MAX_LIMIT; i++)
+            assertTrue(limiter.acquire());
+
+        limiter.release("http://localhost/", LATENCY_NANOS, false);
+
+        assertEquals(MAX_LIMIT / 2, limit.getLimit());
+        assertEquals(MAX_LIMIT - 1, limiter.getOpenConnections());
+    }
+
+
+    /**
+     * Creates a limit that was raised to its upper bound.
+     *
+     * @return a limit that was raised to its upper bound
+     */
+    private static AdaptiveConcurrencyLimit raiseToMaxLimit()
+    {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(MAX_LIMIT);
+
+        while (limit.getLimit() < MAX_LIMIT)
+            limit.update(ENDPOINT, LATENCY_NANOS, true, limit.getLimit());
+
+        return limit;
+    }
+
+
+    /**
+     * Returns the most recent change of a limit.
+     *
+     * @param limit the limit of which the change is returned
+     *
+     * @return the most recent change of the limit
+     */
+    private static ConcurrencyLimitChange getLastChange(final AdaptiveConcurrencyLimit limit)
+    {
+        final List<ConcurrencyLimitChange> history = limit.getHistory();
+        return history.get(history.size() - 1);
+    }
+}
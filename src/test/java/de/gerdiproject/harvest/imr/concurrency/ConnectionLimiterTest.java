@@ -0,0 +1,97 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ConnectionLimiter}.
+ *
+ * @author Robin Weiss
+ */
+public class ConnectionLimiterTest
+{
+    private static final long TIMEOUT_MILLIS = 200;
+
+
+    /**
+     * Tests if a connection that exceeds the limit waits until another connection is released.
+     *
+     * @throws InterruptedException if the test is interrupted
+     * @throws ExecutionException if the waiting connection fails
+     * @throws TimeoutException if the waiting connection is not permitted after the release
+     */
+    @Test
+    public void testLimit() throws InterruptedException, ExecutionException, TimeoutException
+    {
+        final ConnectionLimiter limiter = new ConnectionLimiter(2);
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+
+        final CompletableFuture<Boolean> waitingConnection = CompletableFuture.supplyAsync(limiter::acquire);
+        TimeUnit.MILLISECONDS.sleep(TIMEOUT_MILLIS);
+        assertFalse(waitingConnection.isDone());
+
+        limiter.release();
+        assertTrue(waitingConnection.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(2, limiter.getOpenConnections());
+    }
+
+
+    /**
+     * Tests if raising the limit permits waiting connections.
+     *
+     * @throws InterruptedException if the test is interrupted
+     * @throws ExecutionException if the waiting connection fails
+     * @throws TimeoutException if the waiting connection is not permitted after raising the limit
+     */
+    @Test
+    public void testRaisedLimit() throws InterruptedException, ExecutionException, TimeoutException
+    {
+        final ConnectionLimiter limiter = new ConnectionLimiter(1);
+        assertTrue(limiter.acquire());
+
+        final CompletableFuture<Boolean> waitingConnection = CompletableFuture.supplyAsync(limiter::acquire);
+        limiter.setMaxConnections(2);
+
+        assertTrue(waitingConnection.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+
+    /**
+     * Tests if connections are not limited if the limit is 0.
+     */
+    @Test
+    public void testUnlimited()
+    {
+        final ConnectionLimiter limiter = new ConnectionLimiter(0);
+
+        for (int i = 0; i < 100; i++)
+            assertTrue(limiter.acquire());
+
+        assertEquals(100, limiter.getOpenConnections());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ParallelHarvestCoordinator}.
+ *
+ * @author Robin Weiss
+ */
+public class ParallelHarvestCoordinatorTest
+{
+    private static final long HARVEST_MILLIS = 300;
+
+    private final Object firstEtl = "first";
+    private final Object secondEtl = "second";
+    private final AtomicInteger firstHarvests = new AtomicInteger();
+    private final AtomicInteger secondHarvests = new AtomicInteger();
+
+
+    /**
+     * Tests if a full harvest takes as long as the slowest ETL, and
+     * if each ETL is harvested exactly once.
+     */
+    @Test
+    public void testParallelHarvest()
+    {
+        final ParallelHarvestCoordinator coordinator = createCoordinator(true, () -> {});
+
+        final long startMillis = System.currentTimeMillis();
+        coordinator.harvest(firstEtl);
+        coordinator.harvest(secondEtl);
+        final long durationMillis = System.currentTimeMillis() - startMillis;
+
+        assertEquals(1, firstHarvests.get());
+        assertEquals(1, secondHarvests.get());
+        assertTrue("harvests took " + durationMillis + "ms", durationMillis < 2 * HARVEST_MILLIS);
+    }
+
+
+    /**
+     * Tests if ETLs that do not participate are not harvested by preceding ETLs.
+     */
+    @Test
+    public void testNonParticipatingEtl()
+    {
+        final ParallelHarvestCoordinator coordinator = createCoordinator(false, () -> {});
+
+        coordinator.harvest(firstEtl);
+        assertEquals(0, secondHarvests.get());
+    }
+
+
+    /**
+     * Tests if harvesting an ETL does not start the harvests of preceding ETLs.
+     */
+    @Test
+    public void testHarvestOfLastEtl()
+    {
+        final ParallelHarvestCoordinator coordinator = createCoordinator(true, () -> {});
+
+        coordinator.harvest(secondEtl);
+        assertEquals(0, firstHarvests.get());
+        assertEquals(1, secondHarvests.get());
+    }
+
+
+    /**
+     * Tests if the failure of an ETL that was harvested in the background
+     * is thrown when the harvest of that ETL is awaited, but not before.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testFailureOfParallelEtl()
+    {
+        final ParallelHarvestCoordinator coordinator = createCoordinator(true, () -> {
+            throw new IllegalStateException();
+        });
+
+        coordinator.harvest(firstEtl);
+        assertEquals(1, firstHarvests.get());
+
+        coordinator.harvest(secondEtl);
+    }
+
+
+    /**
+     * Tests if harvesting an unregistered ETL causes an exception.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnregisteredEtl()
+    {
+        createCoordinator(true, () -> {}).harvest("unknown");
+    }
+
+
+    /**
+     * Tests if ETLs are unregistered when the coordinator is shut down.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testShutdown()
+    {
+        final ParallelHarvestCoordinator coordinator = createCoordinator(true, () -> {});
+        coordinator.shutdown();
+        coordinator.harvest(firstEtl);
+    }
+
+
+    /**
+     * Creates a coordinator of two slow ETLs.
+     *
+     * @param isSecondParticipating true if the second ETL is harvested in parallel
+     * @param secondFailure executed at the end of the harvest of the second ETL
+     *
+     * @return a coordinator of two slow ETLs
+     */
+    private ParallelHarvestCoordinator createCoordinator(final boolean isSecondParticipating, final Runnable secondFailure)
+    {
+        final ParallelHarvestCoordinator coordinator = new ParallelHarvestCoordinator();
+        coordinator.register(firstEtl, () -> true, () -> slowHarvest(firstHarvests));
+        coordinator.register(secondEtl, () -> isSecondParticipating, () -> {
+            slowHarvest(secondHarvests);
+            secondFailure.run();
+        });
+        return coordinator;
+    }
+
+
+    /**
+     * Simulates a harvest by waiting.
+     *
+     * @param harvestCount counts the harvests of the ETL
+     */
+    private static void slowHarvest(final AtomicInteger harvestCount)
+    {
+        try {
+            TimeUnit.MILLISECONDS.sleep(HARVEST_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        harvestCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain PrefetchingIterator}.
+ *
+ * @author Robin Weiss
+ */
+public class PrefetchingIteratorTest
+{
+    private static final int LOOKAHEAD = 3;
+    private static final List<Integer> SOURCE = Arrays.asList(5, 4, 3, 2, 1, 0);
+
+    private ExecutorService executor;
+
+
+    /**
+     * Creates a thread pool for the asynchronous requests.
+     */
+    @Before
+    public void before()
+    {
+        executor = Executors.newFixedThreadPool(LOOKAHEAD, new NamedDaemonThreadFactory(getClass().getSimpleName()));
+    }
+
+
+    /**
+     * Shuts down the thread pool.
+     */
+    @After
+    public void after()
+    {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Tests if the results are returned in source order, even if
+     * later elements are retrieved faster than earlier ones.
+     */
+    @Test
+    public void testOrder()
+    {
+        final PrefetchingIterator<Integer, Integer> iter = new PrefetchingIterator<>(
+            SOURCE.iterator(),
+            (final Integer i) -> CompletableFuture.supplyAsync(() -> sleepAndReturn(i), executor),
+            LOOKAHEAD);
+
+        final List<Integer> results = new ArrayList<>();
+
+        while (iter.hasNext())
+            results.add(iter.next());
+
+        assertEquals(SOURCE, results);
+    }
+
+
+    /**
+     * Tests if no more than the lookahead number of elements
+     * are requested ahead of the iteration.
+     */
+    @Test
+    public void testLookahead()
+    {
+        final AtomicInteger requestCount = new AtomicInteger();
+        final PrefetchingIterator<Integer, Integer> iter = new PrefetchingIterator<>(
+            SOURCE.iterator(),
+            (final Integer i) -> {
+                requestCount.incrementAndGet();
+                return CompletableFuture.completedFuture(i);
+            },
+            LOOKAHEAD);
+
+        iter.next();
+
+        assertEquals(LOOKAHEAD + 1, requestCount.get());
+    }
+
+
+    /**
+     * Tests if an empty source results in an empty iterator.
+     */
+    @Test
+    public void testEmptySource()
+    {
+        final PrefetchingIterator<Integer, Integer> iter = new PrefetchingIterator<>(
+            new ArrayList<Integer>().iterator(),
+            CompletableFuture::completedFuture,
+            LOOKAHEAD);
+
+        assertFalse(iter.hasNext());
+    }
+
+
+    /**
+     * Tests if the iterator is only exhausted after the end of the source
+     * was reached, and if checking it does not request any more elements.
+     */
+    @Test
+    public void testExhaustion()
+    {
+        final AtomicInteger requestCount = new AtomicInteger();
+        final PrefetchingIterator<Integer, Integer> iter = new PrefetchingIterator<>(
+            SOURCE.iterator(),
+            (final Integer i) -> {
+                requestCount.incrementAndGet();
+                return CompletableFuture.completedFuture(i);
+            },
+            LOOKAHEAD);
+
+        assertFalse(iter.isExhausted());
+        assertEquals(0, requestCount.get());
+
+        while (iter.hasNext()) {
+            iter.next();
+            assertFalse(iter.isExhausted());
+        }
+
+        assertTrue(iter.isExhausted());
+        assertEquals(SOURCE.size(), requestCount.get());
+    }
+
+
+    /**
+     * Waits for a number of milliseconds that is proportional to the
+     * specified number and returns it afterwards.
+     *
+     * @param i the number that is to be returned
+     *
+     * @return i
+     */
+    private static Integer sleepAndReturn(final int i)
+    {
+        try {
+            TimeUnit.MILLISECONDS.sleep(i * 10L);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return i;
+    }
+}
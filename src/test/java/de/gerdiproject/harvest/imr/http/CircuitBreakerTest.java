@@ -0,0 +1,159 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain CircuitBreaker}.
+ *
+ * @author Robin Weiss
+ */
+public class CircuitBreakerTest
+{
+    private static final String ENDPOINT = "endpoint";
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_MILLIS = 100;
+
+
+    /**
+     * Tests if the circuit opens after the threshold of consecutive failures, and sheds requests.
+     */
+    @Test
+    public void testOpening()
+    {
+        final CircuitBreaker breaker = new CircuitBreaker(ENDPOINT, FAILURE_THRESHOLD, OPEN_MILLIS);
+
+        for (int i = 0; i < FAILURE_THRESHOLD - 1; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.recordFailure();
+        }
+
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getOpenCount());
+    }
+
+
+    /**
+     * Tests if a success resets the count of consecutive failures.
+     */
+    @Test
+    public void testInterruptedFailures()
+    {
+        final CircuitBreaker breaker = new CircuitBreaker(ENDPOINT, FAILURE_THRESHOLD, OPEN_MILLIS);
+
+        for (int i = 0; i < FAILURE_THRESHOLD * 3; i++) {
+            assertTrue(breaker.allowRequest());
+
+            if (i % FAILURE_THRESHOLD == 0)
+                breaker.recordSuccess();
+            else
+                breaker.recordFailure();
+        }
+
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+    }
+
+
+    /**
+     * Tests if a single trial request is permitted after the opening,
+     * and if its success closes the circuit.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testRecovery() throws InterruptedException
+    {
+        final CircuitBreaker breaker = openCircuit();
+        TimeUnit.MILLISECONDS.sleep(OPEN_MILLIS * 2);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordSuccess();
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+
+    /**
+     * Tests if a failed trial request reopens the circuit.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testFailedTrial() throws InterruptedException
+    {
+        final CircuitBreaker breaker = openCircuit();
+        TimeUnit.MILLISECONDS.sleep(OPEN_MILLIS * 2);
+
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(2, breaker.getOpenCount());
+    }
+
+
+    /**
+     * Tests if the circuit never opens if the threshold is 0.
+     */
+    @Test
+    public void testDisabled()
+    {
+        final CircuitBreaker breaker = new CircuitBreaker(ENDPOINT, 0, OPEN_MILLIS);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.recordFailure();
+        }
+
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+    }
+
+
+    /**
+     * Creates a circuit breaker and opens its circuit.
+     *
+     * @return a circuit breaker with an open circuit
+     */
+    private static CircuitBreaker openCircuit()
+    {
+        final CircuitBreaker breaker = new CircuitBreaker(ENDPOINT, FAILURE_THRESHOLD, OPEN_MILLIS);
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            breaker.allowRequest();
+            breaker.recordFailure();
+        }
+
+        return breaker;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.imr.metrics.EndpointResilienceSnapshot;
+
+/**
+ * This class provides Unit Tests for the {@linkplain EndpointResilience}.
+ *
+ * @author Robin Weiss
+ */
+public class EndpointResilienceTest
+{
+    private static final String ENDPOINT = "endpoint";
+    private static final String URL = "http://localhost/endpoint";
+    private static final String RESPONSE = "response";
+    private static final int MAX_RETRIES = 2;
+    private static final long OPEN_MILLIS = 60000;
+
+
+    /**
+     * Tests if a failed request is retried until it succeeds.
+     */
+    @Test
+    public void testRetry()
+    {
+        final EndpointResilience endpoint = createEndpoint(0, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String response = endpoint.send(URL, () -> attempts.incrementAndGet() > MAX_RETRIES ? RESPONSE : null);
+
+        assertEquals(RESPONSE, response);
+        assertEquals(MAX_RETRIES + 1, attempts.get());
+        assertEquals(MAX_RETRIES, endpoint.getSnapshot().getRetryCount());
+        assertEquals(0, endpoint.getSnapshot().getFailureCount());
+    }
+
+
+    /**
+     * Tests if a request fails after the maximum number of retries.
+     */
+    @Test
+    public void testMaxRetries()
+    {
+        final EndpointResilience endpoint = createEndpoint(0, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertNull(endpoint.send(URL, () -> failAttempt(attempts)));
+        assertEquals(MAX_RETRIES + 1, attempts.get());
+        assertEquals(1, endpoint.getSnapshot().getFailureCount());
+    }
+
+
+    /**
+     * Tests if exceptions are treated like failed requests.
+     */
+    @Test
+    public void testException()
+    {
+        final EndpointResilience endpoint = createEndpoint(0, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String response = endpoint.send(URL, () -> {
+            if (attempts.incrementAndGet() == 1)
+                throw new IllegalStateException();
+
+            return RESPONSE;
+        });
+
+        assertEquals(RESPONSE, response);
+    }
+
+
+    /**
+     * Tests if retries are not sent when the retry budget is exhausted.
+     */
+    @Test
+    public void testExhaustedBudget()
+    {
+        final EndpointResilience endpoint = createEndpoint(0, 1);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertNull(endpoint.send(URL, () -> failAttempt(attempts)));
+        assertEquals(2, attempts.get());
+    }
+
+
+    /**
+     * Tests if requests are shed without being sent while the circuit is open.
+     */
+    @Test
+    public void testShedding()
+    {
+        final EndpointResilience endpoint = createEndpoint(MAX_RETRIES + 1, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertNull(endpoint.send(URL, () -> failAttempt(attempts)));
+        assertEquals(MAX_RETRIES + 1, attempts.get());
+
+        for (int i = 0; i < 10; i++)
+            assertNull(endpoint.send(URL, () -> RESPONSE));
+
+        final EndpointResilienceSnapshot snapshot = endpoint.getSnapshot();
+        assertEquals(CircuitState.OPEN, snapshot.getCircuitState());
+        assertEquals(10, snapshot.getShedCount());
+        assertEquals(11, snapshot.getRequestCount());
+    }
+
+
+    /**
+     * Tests if requests that were rejected for good are neither retried,
+     * nor open the circuit, while requests that may succeed later are retried.
+     */
+    @Test
+    public void testPermanentFailure()
+    {
+        final EndpointResilience endpoint = createEndpoint(1, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(endpoint.send(URL, () -> {
+                attempts.incrementAndGet();
+                throw new PermanentRequestFailureException(new HttpStatusException(URL, 404));
+            }));
+        }
+
+        final EndpointResilienceSnapshot snapshot = endpoint.getSnapshot();
+        assertEquals(3, attempts.get());
+        assertEquals(0, snapshot.getRetryCount());
+        assertEquals(3, snapshot.getFailureCount());
+        assertEquals(CircuitState.CLOSED, snapshot.getCircuitState());
+    }
+
+
+    /**
+     * Tests if requests that were rejected for good return the rejected response,
+     * while requests that failed otherwise return null.
+     */
+    @Test
+    public void testRejectedResponse()
+    {
+        final EndpointResilience endpoint = createEndpoint(0, 10);
+        final String rejectedResponse = "";
+
+        assertEquals(rejectedResponse, endpoint.send(URL, () -> {
+            throw new PermanentRequestFailureException(new HttpStatusException(URL, 404));
+        }, rejectedResponse));
+        assertNull(endpoint.send(URL, () -> null, rejectedResponse));
+        assertEquals(RESPONSE, endpoint.send(URL, () -> RESPONSE, rejectedResponse));
+    }
+
+
+    /**
+     * Tests which HTTP status codes are considered permanent failures.
+     */
+    @Test
+    public void testPermanentStatus()
+    {
+        assertTrue(new HttpStatusException(URL, 400).isPermanent());
+        assertTrue(new HttpStatusException(URL, 403).isPermanent());
+        assertTrue(new HttpStatusException(URL, 404).isPermanent());
+        assertTrue(new HttpStatusException(URL, 410).isPermanent());
+        assertFalse(new HttpStatusException(URL, 408).isPermanent());
+        assertFalse(new HttpStatusException(URL, 429).isPermanent());
+        assertFalse(new HttpStatusException(URL, 500).isPermanent());
+        assertFalse(new HttpStatusException(URL, 503).isPermanent());
+    }
+
+
+    /**
+     * Tests if requests that were aborted, because the thread was interrupted,
+     * are neither retried, nor count as failures, nor block the trial request
+     * of a half-open circuit.
+     */
+    @Test
+    public void testAbortedRequest()
+    {
+        final EndpointResilience endpoint = createEndpoint(1, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertNull(endpoint.send(URL, () -> {
+                    attempts.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                    return null;
+                }));
+            }
+        } finally {
+            // clear the interrupt flag
+            Thread.interrupted();
+        }
+
+        final EndpointResilienceSnapshot snapshot = endpoint.getSnapshot();
+        assertEquals(3, attempts.get());
+        assertEquals(0, snapshot.getRetryCount());
+        assertEquals(0, snapshot.getFailureCount());
+        assertEquals(CircuitState.CLOSED, snapshot.getCircuitState());
+        assertEquals(RESPONSE, endpoint.send(URL, () -> RESPONSE));
+    }
+
+
+    /**
+     * Creates the resilience of an endpoint that retries failed requests up to twice.
+     *
+     * @param failureThreshold the number of consecutive failures that open the circuit
+     * @param maxSavedRetries the maximum number of retries that can be saved up
+     *
+     * @return the resilience of an endpoint
+     */
+    private static EndpointResilience createEndpoint(final int failureThreshold, final int maxSavedRetries)
+    {
+        return new EndpointResilience(
+                   ENDPOINT,
+                   MAX_RETRIES,
+                   new CircuitBreaker(ENDPOINT, failureThreshold, OPEN_MILLIS),
+                   new RetryBudget(0.0, maxSavedRetries));
+    }
+
+
+    /**
+     * Counts an attempt of a request that always fails.
+     *
+     * @param attempts the counter of attempts
+     *
+     * @return null, indicating a failed request
+     */
+    private static String failAttempt(final AtomicInteger attempts)
+    {
+        attempts.incrementAndGet();
+        return null;
+    }
+}
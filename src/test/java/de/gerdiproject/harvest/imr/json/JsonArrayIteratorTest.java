@@ -0,0 +1,97 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+/**
+ * This class provides Unit Tests for the {@linkplain JsonArrayIterator}.
+ *
+ * @author Robin Weiss
+ */
+public class JsonArrayIteratorTest
+{
+    private static final String ARRAY_NAME = "features";
+    private static final String JSON = "{\"type\":\"FeatureCollection\",\"bbox\":[0,1],"
+                                       + "\"features\":[{\"id\":\"1\"},{\"id\":\"2\"},{\"id\":\"3\"}],\"crs\":{}}";
+
+
+    /**
+     * Tests if all array elements are parsed in their order,
+     * skipping the fields that precede the array.
+     *
+     * @throws IOException if the JSON could not be read
+     */
+    @Test
+    public void testIteration() throws IOException
+    {
+        final JsonArrayIterator<IdObject> iter = new JsonArrayIterator<>(new StringReader(JSON), ARRAY_NAME, new Gson(), IdObject.class);
+        final List<String> ids = new ArrayList<>();
+
+        while (iter.hasNext())
+            ids.add(iter.next().id);
+
+        assertEquals(Arrays.asList("1", "2", "3"), ids);
+    }
+
+
+    /**
+     * Tests if array elements are counted correctly.
+     *
+     * @throws IOException if the JSON could not be read
+     */
+    @Test
+    public void testCount() throws IOException
+    {
+        assertEquals(3, JsonArrayIterator.countElements(new StringReader(JSON), ARRAY_NAME));
+    }
+
+
+    /**
+     * Tests if there are no elements if the array does not exist.
+     *
+     * @throws IOException if the JSON could not be read
+     */
+    @Test
+    public void testMissingArray() throws IOException
+    {
+        final JsonArrayIterator<IdObject> iter = new JsonArrayIterator<>(new StringReader(JSON), "stations", new Gson(), IdObject.class);
+
+        assertFalse(iter.hasNext());
+        assertEquals(0, JsonArrayIterator.countElements(new StringReader(JSON), "stations"));
+    }
+
+
+    /**
+     * A simple JSON object with an identifier.
+     */
+    private static class IdObject
+    {
+        private String id;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.imr.constants.ImrMetricsConstants;
+
+/**
+ * This class provides Unit Tests for the {@linkplain RequestMetricsRegistry}.
+ *
+ * @author Robin Weiss
+ */
+public class RequestMetricsRegistryTest
+{
+    private static final String YEARS_ENDPOINT = "years";
+    private static final String DATES_ENDPOINT = "dates";
+    private static final String YEARS_URL = "http://www.mo.ck/view/getyears/%s";
+    private static final String DATES_URL = "http://www.mo.ck/view/getyears/dates/%s/%d";
+
+
+    /**
+     * Tests if URLs are mapped to the endpoint with the longest matching URL prefix.
+     */
+    @Test
+    public void testEndpointOfUrl()
+    {
+        final RequestMetricsRegistry registry = new RequestMetricsRegistry(false);
+        final EndpointMetrics years = registry.registerEndpoint(YEARS_ENDPOINT, YEARS_URL);
+        final EndpointMetrics dates = registry.registerEndpoint(DATES_ENDPOINT, DATES_URL);
+
+        assertEquals(years, registry.getEndpointOfUrl(String.format(YEARS_URL, "42")));
+        assertEquals(dates, registry.getEndpointOfUrl(String.format(DATES_URL, "42", 2000)));
+        assertNull(registry.getEndpointOfUrl("http://www.mo.ck/other"));
+    }
+
+
+    /**
+     * Tests if requests, errors, bytes, and latencies are summed up per endpoint.
+     */
+    @Test
+    public void testRecording()
+    {
+        final RequestMetricsRegistry registry = new RequestMetricsRegistry(false);
+        final EndpointMetrics years = registry.registerEndpoint(YEARS_ENDPOINT, YEARS_URL);
+        registry.registerEndpoint(DATES_ENDPOINT, DATES_URL);
+
+        for (int i = 0; i < 98; i++)
+            years.recordRequest(TimeUnit.MILLISECONDS.toNanos(8), true);
+
+        years.recordRequest(TimeUnit.MILLISECONDS.toNanos(400), false);
+        years.recordRequest(TimeUnit.MILLISECONDS.toNanos(400), false);
+        years.addTransferredBytes(1024);
+
+        final List<EndpointMetricsSnapshot> snapshots = registry.getSnapshots();
+        final EndpointMetricsSnapshot yearsSnapshot = snapshots.get(1);
+
+        assertEquals(DATES_ENDPOINT, snapshots.get(0).getEndpoint());
+        assertEquals(YEARS_ENDPOINT, yearsSnapshot.getEndpoint());
+        assertEquals(100, yearsSnapshot.getRequestCount());
+        assertEquals(2, yearsSnapshot.getErrorCount());
+        assertEquals(1024, yearsSnapshot.getTransferredBytes());
+        assertEquals(10, yearsSnapshot.getLatencyP50Millis());
+        assertEquals(10, yearsSnapshot.getLatencyP95Millis());
+        assertEquals(500, yearsSnapshot.getLatencyP99Millis());
+        assertEquals(Long.valueOf(98), yearsSnapshot.getLatencyHistogram().get(String.format(ImrMetricsConstants.LATENCY_BUCKET_LABEL, 10)));
+    }
+
+
+    /**
+     * Tests if the metrics of an endpoint can be read via JMX.
+     *
+     * @throws JMException if the metrics could not be read
+     */
+    @Test
+    public void testJmx() throws JMException
+    {
+        final String endpointName = getClass().getSimpleName();
+        final EndpointMetrics metrics = new RequestMetricsRegistry(true).registerEndpoint(endpointName, YEARS_URL);
+        metrics.recordRequest(1, true);
+
+        final ObjectName objectName = new ObjectName(String.format(ImrMetricsConstants.JMX_OBJECT_NAME, ObjectName.quote(endpointName)));
+
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "RequestCount"));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain StageTimings}.
+ *
+ * @author Robin Weiss
+ */
+public class StageTimingsTest
+{
+    private static final String ETL_NAME = "MockedETL";
+    private static final long ONE_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+
+    /**
+     * Tests if pending documents are handed over exactly once.
+     */
+    @Test
+    public void testPendingDocuments()
+    {
+        final StageTimings stageTimings = new StageTimings(ETL_NAME, 16, 2);
+        final DocumentTimings timings = new DocumentTimings("42");
+        stageTimings.addPending(timings);
+
+        assertEquals(1, stageTimings.getSnapshot().getPendingDocumentCount());
+        assertEquals(timings, stageTimings.takeDocument("42"));
+        assertNull(stageTimings.takeDocument("42"));
+        assertEquals(0, stageTimings.getSnapshot().getPendingDocumentCount());
+    }
+
+
+    /**
+     * Tests if only the slowest documents are kept, ordered by their total time.
+     */
+    @Test
+    public void testSlowestDocuments()
+    {
+        final StageTimings stageTimings = new StageTimings(ETL_NAME, 16, 2);
+
+        for (int i = 1; i <= 5; i++) {
+            final DocumentTimings timings = new DocumentTimings(String.valueOf(i));
+            timings.add(HarvestStage.FETCH, i * ONE_MILLI, 0L);
+            timings.add(HarvestStage.TRANSFORM, ONE_MILLI, ONE_MILLI);
+            stageTimings.finishDocument(timings);
+        }
+
+        final StageTimingsSnapshot snapshot = stageTimings.getSnapshot();
+        final List<SlowDocumentSnapshot> slowest = snapshot.getSlowestDocuments();
+
+        assertEquals(5, snapshot.getDocumentCount());
+        assertEquals(2, slowest.size());
+        assertEquals("5", slowest.get(0).getDocumentId());
+        assertEquals("4", slowest.get(1).getDocumentId());
+        assertEquals(6.0, slowest.get(0).getTotalWallMillis(), 0.001);
+    }
+
+
+    /**
+     * Tests if the statistics of a stage only contain documents that passed it,
+     * and if percentiles refer to the most recent documents.
+     */
+    @Test
+    public void testStageStatistics()
+    {
+        final StageTimings stageTimings = new StageTimings(ETL_NAME, 4, 1);
+
+        for (final long fetchMillis : Arrays.asList(100L, 1L, 2L, 3L, 4L)) {
+            final DocumentTimings timings = new DocumentTimings(String.valueOf(fetchMillis));
+            timings.add(HarvestStage.FETCH, fetchMillis * ONE_MILLI, ONE_MILLI);
+            stageTimings.finishDocument(timings);
+        }
+
+        final StageStatistics fetch = stageTimings.getSnapshot().getStages().get(HarvestStage.FETCH);
+        final StageStatistics load = stageTimings.getSnapshot().getStages().get(HarvestStage.LOAD);
+
+        assertEquals(5, fetch.getDocumentCount());
+        assertEquals(110.0, fetch.getTotalWallMillis(), 0.001);
+        assertEquals(5.0, fetch.getTotalCpuMillis(), 0.001);
+        assertEquals(2.0, fetch.getWallP50Millis(), 0.001);
+        assertEquals(4.0, fetch.getWallP99Millis(), 0.001);
+        assertEquals(0, load.getDocumentCount());
+    }
+
+
+    /**
+     * Tests if the loading of a document ends when the next document is requested.
+     */
+    @Test
+    public void testLoading()
+    {
+        final StageTimings stageTimings = new StageTimings(ETL_NAME, 16, 2);
+        final Iterator<String> documents = stageTimings.measureLoading(Arrays.asList("a", "b").iterator());
+
+        final DocumentTimings timings = new DocumentTimings(documents.next());
+        stageTimings.beginLoad(timings);
+        assertEquals(0, stageTimings.getSnapshot().getDocumentCount());
+
+        documents.hasNext();
+        assertEquals(1, stageTimings.getSnapshot().getDocumentCount());
+        assertEquals(1, stageTimings.getSnapshot().getStages().get(HarvestStage.LOAD).getDocumentCount());
+    }
+}
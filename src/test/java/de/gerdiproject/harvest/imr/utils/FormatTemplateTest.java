@@ -0,0 +1,91 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.imr.constants.ImrDataCiteConstants;
+import de.gerdiproject.harvest.imr.constants.ImrStationConstants;
+
+/**
+ * This class provides Unit Tests for the {@linkplain FormatTemplate}.
+ *
+ * @author Robin Weiss
+ */
+public class FormatTemplateTest
+{
+    private static final String STATION_ID = "1337";
+    private static final int YEAR = 1999;
+
+
+    /**
+     * Tests if a string and a decimal placeholder are filled in
+     * like {@linkplain String#format(String, Object...)} does.
+     */
+    @Test
+    public void testStringAndDecimal()
+    {
+        final String format = ImrStationConstants.MEAN_SALINITY_OF_YEAR_URL;
+
+        assertEquals(String.format(format, STATION_ID, YEAR), new FormatTemplate(format).format(STATION_ID, YEAR));
+    }
+
+
+    /**
+     * Tests if a single decimal placeholder is filled in
+     * like {@linkplain String#format(String, Object...)} does.
+     */
+    @Test
+    public void testDecimal()
+    {
+        final String format = ImrDataCiteConstants.STATION_SALINITY_OF_YEAR_TITLE;
+
+        assertEquals(String.format(format, YEAR), new FormatTemplate(format).format(YEAR));
+    }
+
+
+    /**
+     * Tests if placeholders at the beginning and end of a format are filled in.
+     */
+    @Test
+    public void testPlaceholdersAtBoundaries()
+    {
+        assertEquals(STATION_ID + "/" + YEAR, new FormatTemplate("%s/%d").format(STATION_ID, YEAR));
+    }
+
+
+    /**
+     * Tests if other format specifiers are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormat()
+    {
+        new FormatTemplate("%.2f");
+    }
+
+
+    /**
+     * Tests if providing fewer values than placeholders is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingValue()
+    {
+        new FormatTemplate(ImrStationConstants.SALINITY_OF_YEAR_URL).format(YEAR);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.imr.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain Shard}.
+ *
+ * @author Robin Weiss
+ */
+public class ShardTest
+{
+    private static final int SHARD_COUNT = 3;
+    private static final int ELEMENT_COUNT = 100;
+
+
+    /**
+     * Tests if modulo shards are disjoint and cover all elements.
+     */
+    @Test
+    public void testModuloPartitioning()
+    {
+        assertPartitioning(false);
+    }
+
+
+    /**
+     * Tests if range shards are disjoint and cover all elements.
+     */
+    @Test
+    public void testRangePartitioning()
+    {
+        assertPartitioning(true);
+    }
+
+
+    /**
+     * Tests if shards of keyed elements are disjoint and cover all elements,
+     * and if elements keep their shard when the order or the presence
+     * of other elements changes.
+     */
+    @Test
+    public void testKeyPartitioning()
+    {
+        final List<String> keys = new ArrayList<>();
+
+        for (final int element : createSequence())
+            keys.add(String.valueOf(element));
+
+        final List<String> shuffledKeys = new ArrayList<>(keys.subList(1, ELEMENT_COUNT));
+        Collections.reverse(shuffledKeys);
+
+        final Set<String> allKeys = new HashSet<>();
+
+        for (int index = 0; index < SHARD_COUNT; index++) {
+            final Shard shard = new Shard(index, SHARD_COUNT, false);
+            final List<String> shardKeys = toList(shard.filter(keys.iterator(), Function.identity()));
+            final List<String> shuffledShardKeys = toList(shard.filter(shuffledKeys.iterator(), Function.identity()));
+
+            assertFalse("shard " + index + " is empty", shardKeys.isEmpty());
+
+            for (final String key : shardKeys) {
+                assertTrue("key " + key + " is in more than one shard", allKeys.add(key));
+                assertTrue(shard.contains(key));
+                assertEquals(!key.equals(keys.get(0)), shuffledShardKeys.contains(key));
+            }
+        }
+
+        assertEquals(ELEMENT_COUNT, allKeys.size());
+    }
+
+
+    /**
+     * Tests if range shards are contiguous, and if elements past
+     * the partitioned sequence belong to the last shard.
+     */
+    @Test
+    public void testRanges()
+    {
+        final Shard first = new Shard(0, SHARD_COUNT, true);
+        final Shard last = new Shard(SHARD_COUNT - 1, SHARD_COUNT, true);
+
+        assertTrue(first.contains(0, ELEMENT_COUNT));
+        assertTrue(first.contains(ELEMENT_COUNT / SHARD_COUNT - 1, ELEMENT_COUNT));
+        assertTrue(last.contains(ELEMENT_COUNT - 1, ELEMENT_COUNT));
+        assertTrue(last.contains(ELEMENT_COUNT * 2, ELEMENT_COUNT));
+        assertFalse(first.contains(ELEMENT_COUNT * 2, ELEMENT_COUNT));
+    }
+
+
+    /**
+     * Tests if a single shard contains all elements and keeps names unchanged.
+     */
+    @Test
+    public void testCompleteShard()
+    {
+        final Shard shard = new Shard(0, 1, true);
+
+        assertTrue(shard.isComplete());
+        assertEquals(ELEMENT_COUNT, shard.size(ELEMENT_COUNT));
+        assertEquals("name", shard.getUniqueName("name"));
+        assertEquals("name-shard2of3", new Shard(1, SHARD_COUNT, false).getUniqueName("name"));
+    }
+
+
+    /**
+     * Tests if shard indices that exceed the shard count are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIndex()
+    {
+        new Shard(SHARD_COUNT, SHARD_COUNT, false);
+    }
+
+
+    /**
+     * Creates all shards of a sequence, as if each was used by a separate harvester instance,
+     * and asserts that the elements of all shards are disjoint, complete,
+     * and consistent with the shard sizes.
+     *
+     * @param isPartitionedByRange if true, shards are ranges of elements
+     */
+    private static void assertPartitioning(final boolean isPartitionedByRange)
+    {
+        final Set<Integer> allElements = new HashSet<>();
+        int totalSize = 0;
+
+        for (int index = 0; index < SHARD_COUNT; index++) {
+            final Shard shard = new Shard(index, SHARD_COUNT, isPartitionedByRange);
+            int shardSize = 0;
+
+            for (final int element : createSequence()) {
+                if (shard.contains(element, ELEMENT_COUNT)) {
+                    assertTrue("element " + element + " is in more than one shard", allElements.add(element));
+                    shardSize++;
+                }
+            }
+
+            assertEquals(shard.size(ELEMENT_COUNT), shardSize);
+            totalSize += shardSize;
+        }
+
+        assertEquals(ELEMENT_COUNT, allElements.size());
+        assertEquals(ELEMENT_COUNT, totalSize);
+    }
+
+
+    /**
+     * Collects the remaining elements of an {@linkplain Iterator}.
+     *
+     * @param elements the iterated elements
+     * @param <T> the type of the elements
+     *
+     * @return a list of the remaining elements
+     */
+    private static <T> List<T> toList(final Iterator<T> elements)
+    {
+        final List<T> list = new ArrayList<>();
+        elements.forEachRemaining(list::add);
+        return list;
+    }
+
+
+    /**
+     * Creates a sequence in which each element equals its position.
+     *
+     * @return a list of all element numbers
+     */
+    private static List<Integer> createSequence()
+    {
+        final List<Integer> sequence = new ArrayList<>(ELEMENT_COUNT);
+
+        for (int i = 0; i < ELEMENT_COUNT; i++)
+            sequence.add(i);
+
+        return sequence;
+    }
+}